@@ -0,0 +1,360 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/** A compact binary format for boards and moves.
+    <p>
+    A board is written as its number of columns and rows (one byte each),
+    one bit per square for the pieces, a byte with the player to move,
+    and the square of the ball as a varint; a ball outside the board is written
+    as its column and row. On the 19x19 board this takes 51 bytes.
+    </p><p>
+    A put is written as the varint 2*square, a jump as the varint 2*leaps+1
+    followed by the leaps, two in a byte. A list of moves is its length as a varint
+    followed by the moves. Varints are unsigned, 7 bits per byte, lowest bits first.
+    </p>
+    The boards and moves of this package serialize themselves with this format,
+    through {@link Externalized}.
+   <br> $Id$
+   @threadsafe true
+   @author $Author$
+   @version $Revision$
+*/
+public final class BinaryCodec
+    implements Constants
+{
+    /** Flag: it's DOWN's turn. */
+    private static final int FLAG_DOWN = 1;
+    /** Flag: the ball is outside the board. */
+    private static final int FLAG_BALL_OUTSIDE = 2;
+
+    /** No instances.
+     */
+    private BinaryCodec()
+    {}
+
+
+    // ------------------------ varints --------------------------------------
+
+    /** Writes a non-negative number as a varint.
+     */
+    public static void writeVarint(ByteBuffer buf, int value)
+    {
+	while ((value & ~0x7f) != 0)
+	    {
+		buf.put((byte)((value & 0x7f) | 0x80));
+		value >>>= 7;
+	    }
+	buf.put((byte)value);
+    }
+
+    /** Reads a varint.
+	@throws IllegalArgumentException If the varint is longer than 5 bytes.
+     */
+    public static int readVarint(ByteBuffer buf)
+    {
+	int value = 0;
+	for (int shift=0; shift < 35; shift += 7)
+	    {
+		byte b = buf.get();
+		value |= (b & 0x7f) << shift;
+		if (b >= 0)
+		    return value;
+	    }
+	throw new IllegalArgumentException("Varint too long");
+    }
+
+
+    // ------------------------ boards ---------------------------------------
+
+    /** Returns the maximum number of bytes a board of the specified size needs.
+     */
+    public static int maxBoardBytes(BoardGeometry geometry)
+    { return 2 + (geometry.squareCount() + 7) / 8 + 1 + 2; }
+
+    /** Writes the position of a board.
+	@throws java.nio.BufferOverflowException If there is not enough space; see maxBoardBytes.
+     */
+    public static void writeBoard(ByteBuffer buf, Board board)
+    {
+	BoardGeometry geometry = board.geometry();
+	buf.put((byte)geometry.cols());
+	buf.put((byte)geometry.rows());
+	int count = geometry.squareCount();
+	int bits = 0;
+	for (int sq=0; sq < count; sq++)
+	    {
+		if (board.onSquare(sq) == PIECE)
+		    bits |= 1 << (sq & 7);
+		if ((sq & 7) == 7)
+		    {
+			buf.put((byte)bits);
+			bits = 0;
+		    }
+	    }
+	if ((count & 7) != 0)
+	    buf.put((byte)bits);
+
+	int ball = board.ballSquare();
+	int flags = (board.whoseTurn() == DOWN) ? FLAG_DOWN : 0;
+	if (ball == NO_SQUARE)
+	    {
+		Field f = board.getBall();
+		buf.put((byte)(flags | FLAG_BALL_OUTSIDE));
+		buf.put((byte)f.col());
+		buf.put((byte)f.row());
+	    }
+	else
+	    {
+		buf.put((byte)flags);
+		writeVarint(buf, ball);
+	    }
+    }
+
+    /** Reads a position written by writeBoard.
+	@return A new DefaultBoard.
+	@throws IllegalArgumentException If the data is not a valid board.
+     */
+    public static DefaultBoard readBoard(ByteBuffer buf)
+    {
+	BoardGeometry geometry = BoardGeometry.of(buf.get(), buf.get());
+	int cols = geometry.cols();
+	byte[][] fields = new byte[geometry.rows()][cols];
+	int count = geometry.squareCount();
+	int bits = 0;
+	for (int sq=0; sq < count; sq++)
+	    {
+		if ((sq & 7) == 0)
+		    bits = buf.get();
+		if ((bits & (1 << (sq & 7))) != 0)
+		    fields[sq / cols][sq % cols] = PIECE;
+	    }
+
+	int flags = buf.get();
+	Field ball;
+	if ((flags & FLAG_BALL_OUTSIDE) != 0)
+	    ball = new Field(buf.get(), buf.get());
+	else
+	    {
+		int square = readVarint(buf);
+		if (square >= count)
+		    throw new IllegalArgumentException("Ball square out of range: " + square);
+		ball = new Field(geometry.col(square), geometry.row(square));
+		fields[ball.row()][ball.col()] = BALL;
+	    }
+	return new DefaultBoard(fields, ball, ((flags & FLAG_DOWN) != 0) ? DOWN : UP);
+    }
+
+
+    // ------------------------ moves ----------------------------------------
+
+    /** Writes a move.
+	@param geometry The size of the board the move is made on; needed for the squares of puts.
+	@throws IllegalArgumentException If a put is outside the board.
+     */
+    public static void writeMove(ByteBuffer buf, Move move, BoardGeometry geometry)
+    {
+	if (move instanceof Put)
+	    {
+		int square = ((Put)move).getField().square(geometry);
+		if (square == NO_SQUARE)
+		    throw new IllegalArgumentException("Put outside the board: " + move);
+		writeVarint(buf, square << 1);
+	    }
+	else
+	    {
+		Jump jump = (Jump)move;
+		int size = jump.size();
+		writeVarint(buf, (size << 1) | 1);
+		for (int i=0; i < size; i += 2)
+		    {
+			int pair = jump.leap(i);
+			if (i+1 < size)
+			    pair |= jump.leap(i+1) << 4;
+			buf.put((byte)pair);
+		    }
+	    }
+    }
+
+    /** Reads a move written by writeMove.
+	@param geometry The size of the board the move is made on.
+	@throws IllegalArgumentException If the data is not a valid move.
+     */
+    public static Move readMove(ByteBuffer buf, BoardGeometry geometry)
+    {
+	int value = readVarint(buf);
+	if ((value & 1) == 0)
+	    {
+		int square = value >>> 1;
+		if (square >= geometry.squareCount())
+		    throw new IllegalArgumentException("Put square out of range: " + square);
+		return new Put(geometry.col(square), geometry.row(square));
+	    }
+	byte[] leaps = new byte[value >>> 1];
+	for (int i=0; i < leaps.length; i += 2)
+	    {
+		int pair = buf.get();
+		leaps[i] = (byte)(pair & 0x0f);
+		if (i+1 < leaps.length)
+		    leaps[i+1] = (byte)((pair >>> 4) & 0x0f);
+	    }
+	return new Jump(leaps);
+    }
+
+    /** Writes a list of moves.
+     */
+    public static void writeMoves(ByteBuffer buf, List moves, BoardGeometry geometry)
+    {
+	writeVarint(buf, moves.size());
+	for (int i=0; i < moves.size(); i++)
+	    writeMove(buf, (Move)moves.get(i), geometry);
+    }
+
+    /** Reads a list of moves written by writeMoves.
+	@return A new list of Put and Jump objects.
+     */
+    public static List readMoves(ByteBuffer buf, BoardGeometry geometry)
+    {
+	int count = readVarint(buf);
+	List moves = new ArrayList(Math.min(count, 1024));
+	for (int i=0; i < count; i++)
+	    moves.add(readMove(buf, geometry));
+	return moves;
+    }
+
+
+    // ------------------------ serialization --------------------------------
+
+    /** The serialized form of boards and moves, written with the binary codec.
+	The classes return it from writeReplace(), and it returns them from readResolve().
+	Moves are written with the default geometry; puts outside it are written as their coordinates.
+       @threadsafe false
+     */
+    public static final class Externalized
+	implements Externalizable
+    {
+	private static final long serialVersionUID = 1L;
+
+	private static final byte DEFAULT_BOARD = 0;
+	private static final byte BIT_BOARD = 1;
+	private static final byte SNAPSHOT = 2;
+	private static final byte MOVE = 3;
+	private static final byte WIDE_PUT = 4;
+
+	private Object object;
+
+	/** For deserialization only.
+	 */
+	public Externalized()
+	{}
+
+	/** Constructs the serialized form of a board or move.
+	 */
+	Externalized(Object object)
+	{ this.object = object; }
+
+	public void writeExternal(ObjectOutput out)
+	    throws IOException
+	{
+	    ByteBuffer buf;
+	    byte type;
+	    if (object instanceof Board)
+		{
+		    Board board = (Board)object;
+		    type = (object instanceof BitBoard) ? BIT_BOARD
+			: (object instanceof Snapshot) ? SNAPSHOT : DEFAULT_BOARD;
+		    buf = ByteBuffer.allocate(maxBoardBytes(board.geometry()));
+		    writeBoard(buf, board);
+		}
+	    else if (object instanceof Put && ((Put)object).getField().isOutside())
+		{
+		    // not a square, but may be sent as a wrong move
+		    Field f = ((Put)object).getField();
+		    out.writeByte(WIDE_PUT);
+		    out.writeInt(f.col());
+		    out.writeInt(f.row());
+		    return;
+		}
+	    else
+		{
+		    type = MOVE;
+		    int size = (object instanceof Jump) ? ((Jump)object).size() : 0;
+		    buf = ByteBuffer.allocate(5 + (size + 1) / 2);
+		    writeMove(buf, (Move)object, BoardGeometry.DEFAULT);
+		}
+	    out.writeByte(type);
+	    out.writeShort(buf.position());
+	    out.write(buf.array(), 0, buf.position());
+	}
+
+	public void readExternal(ObjectInput in)
+	    throws IOException
+	{
+	    byte type = in.readByte();
+	    if (type == WIDE_PUT)
+		{
+		    object = new Put(in.readInt(), in.readInt());
+		    return;
+		}
+	    byte[] data = new byte[in.readUnsignedShort()];
+	    in.readFully(data);
+	    ByteBuffer buf = ByteBuffer.wrap(data);
+	    try {
+		switch (type)
+		    {
+		    case DEFAULT_BOARD:
+			object = readBoard(buf);
+			break;
+		    case BIT_BOARD:
+			object = new BitBoard(readBoard(buf));
+			break;
+		    case SNAPSHOT:
+			object = new Snapshot(readBoard(buf));
+			break;
+		    case MOVE:
+			object = readMove(buf, BoardGeometry.DEFAULT);
+			break;
+		    default:
+			throw new InvalidObjectException("Unknown type " + type);
+		    }
+	    } catch (IllegalArgumentException exc) {
+		throw new InvalidObjectException(exc.getMessage());
+	    } catch (BufferUnderflowException exc) {
+		throw new InvalidObjectException("Data too short");
+	    }
+	}
+
+	/** Returns the board or move.
+	 */
+	private Object readResolve()
+	    throws ObjectStreamException
+	{ return object; }
+    }
+
+}
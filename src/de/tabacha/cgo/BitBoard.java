@@ -0,0 +1,604 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.util.Arrays;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+
+/** A compact implementation of the 19x19 board, storing one bit per field.
+    <p>
+    Field (col,row) is bit number row*COL_COUNT+col of the array <code>pieces</code>,
+    so the 361 fields fit into six long words. The ball is not stored in the bit array
+    but as a pair of coordinates; it may lie outside the board (in a goal).
+    </p>
+    Cloning copies 48 bytes instead of 19 arrays, so use this class
+    where many positions have to be copied or stored.
+    Only the default geometry is supported; use DefaultBoard for other sizes.
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class BitBoard
+    implements Cloneable, Serializable, Constants, Board
+{
+
+    /** Number of fields on the board. */
+    private static final int FIELD_COUNT = ROW_COUNT * COL_COUNT;
+    /** Number of long words needed for one bit per field. */
+    private static final int WORD_COUNT = (FIELD_COUNT + 63) / 64;
+    /** The lowest COL_COUNT bits set. */
+    private static final long ROW_MASK = (1L << COL_COUNT) - 1;
+
+    /** One bit per field, set if a piece is on it. Never set on the ball field. */
+    private long[] pieces;
+    private int ballCol, ballRow;
+    private boolean whoseTurn;
+    /** Zobrist key of the position, updated with every change. */
+    private long zobrist;
+
+    /** The moves made with makeMove; created with the first one. */
+    private transient UndoStack undo;
+    /** True while makeMove performs a jump, so jumpOnce records the leaps. */
+    private transient boolean recording;
+
+
+    /** Constructs and resets the board.
+     */
+    public BitBoard()
+    {
+	pieces = new long[WORD_COUNT];
+	reset();
+    }
+
+    /** Copy constructor.
+     */
+    private BitBoard(BitBoard original)
+    {
+	pieces = (long[])original.pieces.clone();
+	ballCol = original.ballCol;
+	ballRow = original.ballRow;
+	whoseTurn = original.whoseTurn;
+	zobrist = original.zobrist;
+    }
+
+    /** Constructor that copies the position of another board.
+	@throws IllegalArgumentException If the other board doesn't have the default geometry.
+     */
+    public BitBoard(Board original)
+	throws IllegalArgumentException
+    {
+	this(original.toArray(), original.getBall(), original.whoseTurn());
+    }
+
+    /** Serializes this board in the compact format of BinaryCodec.
+     */
+    private Object writeReplace()
+	throws ObjectStreamException
+    { return new BinaryCodec.Externalized(this); }
+
+    /** Constructor that receives direct values.
+	The array is only read, not stored.
+	A BALL in the array is treated like an empty field; the ball is set to ballField.
+	@throws IllegalArgumentException If the array doesn't have the size of the default board.
+     */
+    public BitBoard(byte[][] fields, Field ballField, boolean whoseTurn)
+	throws IllegalArgumentException
+    {
+	if (fields.length != ROW_COUNT || fields[0].length != COL_COUNT)
+	    throw new IllegalArgumentException("BitBoard supports only " + BoardGeometry.DEFAULT
+					       + ", not " + fields[0].length + "x" + fields.length);
+	pieces = new long[WORD_COUNT];
+	for (int r=0; r < ROW_COUNT; r++)
+	    for (int c=0; c < COL_COUNT; c++)
+		if (fields[r][c] == PIECE)
+		    setBit(r * COL_COUNT + c);
+	ballCol = ballField.col();
+	ballRow = ballField.row();
+	if (!Field.isOutside(ballCol, ballRow))
+	    clearBit(ballRow * COL_COUNT + ballCol);
+	this.whoseTurn = whoseTurn;
+	zobrist = Zobrist.of(this);
+    }
+
+
+    public Object clone()
+    { return new BitBoard(this); }
+
+    public byte[][] toArray()
+    {
+	byte[][] fields = new byte[ROW_COUNT][COL_COUNT];
+	for (int r=0; r < ROW_COUNT; r++)
+	    {
+		long bits = rowBits(r);
+		for (int c=0; bits != 0; c++, bits >>>= 1)
+		    if ((bits & 1) != 0)
+			fields[r][c] = PIECE;
+	    }
+	if (!Field.isOutside(ballCol, ballRow))
+	    fields[ballRow][ballCol] = BALL;
+	return fields;
+    }
+
+    /** Removes all pieces and the ball from the field.
+     * The ball field will be outside the board.
+     */
+    public void clear()
+    {
+	Arrays.fill(pieces, 0L);
+	whoseTurn = UP;
+	ballCol = ballRow = -1;
+	zobrist = Zobrist.turn(UP);
+	if (undo != null)
+	    undo.truncate(0);
+    }
+
+    /** Sets the board to the start position.
+     */
+    public void reset()
+    {
+	Arrays.fill(pieces, 0L);
+	whoseTurn = UP;
+	ballCol = KICK_OFF_FIELD.col();
+	ballRow = KICK_OFF_FIELD.row();
+	zobrist = Zobrist.turn(UP) ^ Zobrist.ball(ballCol, ballRow);
+	if (undo != null)
+	    undo.truncate(0);
+    }
+
+    public Board upsideDown()
+    {
+	BitBoard b = new BitBoard(this);
+	for (int r=0; r < ROW_COUNT; r++)
+	    b.setRowBits(ROW_COUNT-1-r, rowBits(r));
+	b.ballRow = ROW_COUNT-1-ballRow;
+	b.whoseTurn = !whoseTurn;
+	b.zobrist = Zobrist.of(b);
+	return b;
+    }
+
+
+    /** Switchs the player who has to move. */
+    protected void nextTurn()
+    {
+	whoseTurn = !whoseTurn;
+	zobrist ^= Zobrist.DOWN_TO_MOVE;
+    }
+
+    public boolean whoseTurn()
+    { return whoseTurn; }
+
+    public long zobrist()
+    { return zobrist; }
+
+    public BoardGeometry geometry()
+    { return BoardGeometry.DEFAULT; }
+
+
+    public byte onSquare(int square)
+    {
+	if (square == NO_SQUARE)
+	    return EMPTY;
+	if (square == ballSquare())
+	    return BALL;
+	return testBit(square) ? PIECE : EMPTY;
+    }
+
+    public int ballSquare()
+    { return Field.square(ballCol, ballRow); }
+
+    public int neighbor(int square, byte dir)
+    { return (square == NO_SQUARE) ? NO_SQUARE : NEIGHBOR[(square << 3) | dir]; }
+
+    public byte on(int col, int row)
+    {
+	if (Field.isOutside(col, row))
+	    return EMPTY;
+	if (col == ballCol && row == ballRow)
+	    return BALL;
+	return testBit(row * COL_COUNT + col) ? PIECE : EMPTY;
+    }
+
+    public byte on(Field field)
+    { return on(field.col(), field.row()); }
+
+    /** Returns the field of the ball. The returned object is a copy.
+     */
+    public Field getBall()
+    { return new Field(ballCol, ballRow); }
+
+    public void setBall(Field newBallField)
+    { setBall(newBallField.col(), newBallField.row()); }
+
+    public void setBall(int col, int row)
+    {
+	zobrist ^= Zobrist.ball(ballCol, ballRow) ^ Zobrist.ball(col, row);
+	ballCol = col;
+	ballRow = row;
+	if (!Field.isOutside(col, row))
+	    clearBit(row * COL_COUNT + col);
+    }
+
+    public void addPiece(Field f)
+    { addPiece(f.col(), f.row()); }
+
+    public void addPiece(int col, int row)
+    {
+	if (!Field.isOutside(col, row) && on(col, row) == EMPTY)
+	    setBit(row * COL_COUNT + col);
+    }
+
+    public void removePiece(Field f)
+    { removePiece(f.col(), f.row()); }
+
+    public void removePiece(int col, int row)
+    {
+	if (!Field.isOutside(col, row))
+	    clearBit(row * COL_COUNT + col);
+    }
+
+
+    // ----------------------- bit operations --------------------------------
+
+    private boolean testBit(int bit)
+    { return (pieces[bit >>> 6] & (1L << bit)) != 0; }
+
+    /** Sets a bit that was cleared before. */
+    private void setBit(int bit)
+    {
+	pieces[bit >>> 6] |= 1L << bit;
+	zobrist ^= Zobrist.piece(bit % COL_COUNT, bit / COL_COUNT);
+    }
+
+    private void clearBit(int bit)
+    {
+	if (testBit(bit))
+	    {
+		pieces[bit >>> 6] &= ~(1L << bit);
+		zobrist ^= Zobrist.piece(bit % COL_COUNT, bit / COL_COUNT);
+	    }
+    }
+
+    /** Returns the pieces of one row, column 0 in the lowest bit.
+	A row may be spread over two words.
+     */
+    private long rowBits(int row)
+    {
+	int bit = row * COL_COUNT;
+	int word = bit >>> 6;
+	int offset = bit & 63;
+	long bits = pieces[word] >>> offset;
+	if (offset + COL_COUNT > 64)
+	    bits |= pieces[word+1] << (64 - offset);
+	return bits & ROW_MASK;
+    }
+
+    /** Replaces the pieces of one row, column 0 in the lowest bit.
+     */
+    private void setRowBits(int row, long bits)
+    {
+	int bit = row * COL_COUNT;
+	int word = bit >>> 6;
+	int offset = bit & 63;
+	pieces[word] = (pieces[word] & ~(ROW_MASK << offset)) | (bits << offset);
+	if (offset + COL_COUNT > 64)
+	    {
+		int shift = 64 - offset;
+		pieces[word+1] = (pieces[word+1] & ~(ROW_MASK >>> shift)) | (bits >>> shift);
+	    }
+    }
+
+
+    // ----------------------- moves -----------------------------------------
+
+    public final void move(Move move)
+	throws InvalidMoveException
+    {
+	int status = (move instanceof Put) ? putStatus((Put)move) : jumpStatus((Jump)move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+	nextTurn();
+    }
+
+    /** Puts a piece on the board.
+     * The player is not changed, so this must not be a public method.
+	@exception InvalidMoveException If field is not empty or outside the board.
+    */
+    protected void put(Put move)
+	throws InvalidMoveException
+    {
+	int status = putStatus(move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+    }
+
+    /** Like put(), but returns the status instead of throwing an exception.
+	The board is only changed if the put is legal.
+     */
+    private int putStatus(Put move)
+    {
+	Field f = move.getField();
+	if ( f.isOutside() )
+		return ILLEGAL_PUT_OUTSIDE;
+	if ( on(f) != EMPTY )
+		return ILLEGAL_PUT_NOT_EMPTY;
+	setBit(f.row() * COL_COUNT + f.col());
+	return LEGAL;
+    }
+
+    /** Moves the ball around the field.
+	If the ball is in the goal, further jumps will be ignored.
+	 The player is not changed, so this must not be a public method.
+	@exception InvalidMoveException If no jumps are contained in the
+	move or one of the jumps is not possible
+    */
+    protected void jump(Jump move)
+	throws InvalidMoveException
+    {
+	int status = jumpStatus(move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+    }
+
+    /** Like jump(), but returns the status instead of throwing an exception.
+	An illegal jump may have changed the board.
+	@param move The jump; null counts as an empty move.
+     */
+    private int jumpStatus(Jump move)
+    {
+	if (move == null)
+	    return ILLEGAL_EMPTY;
+	int count = move.size();
+	if (count == 0)
+	    return ILLEGAL_EMPTY;
+	int status;
+	int i = 0;
+	do
+	    status = jumpOnceStatus(move.leap(i++));
+	while ( status == LEGAL && i < count && !Field.isOutside(ballCol, ballRow) && !isBallInGoal() );
+	if ( status == LEGAL && Field.isOutside(ballCol, ballRow) && !isBallInGoal() )
+	    return ILLEGAL_JUMP_OUTSIDE;
+	return status;
+    }
+
+    /** Same as getBall().isInGoal(), without creating a field.
+     */
+    private boolean isBallInGoal()
+    {
+	return ( (ballRow >= ROW_COUNT-1) || (ballRow < 0) ||
+		 ((ballRow == 0) && (0 <= ballCol) && (ballCol < COL_COUNT)) );
+    }
+
+    /** Makes the ball jump once.
+	Horizontal runs are found and removed with shifts on the row bits,
+	all other directions are walked bit by bit.
+	@param dir Direction where to jump to. Defined in Constants.
+	@param move The move this jump is a part of.
+	@throws InvalidMoveException If jump is not possible.
+    */
+    protected void jumpOnce(byte dir, Move move)
+	throws InvalidMoveException
+    {
+	int status = jumpOnceStatus(dir);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+    }
+
+    /** Like jumpOnce(), but returns the status instead of throwing an exception.
+	The board is only changed if the leap is legal.
+     */
+    private int jumpOnceStatus(byte dir)
+    {
+	// valid?
+	if ((FIRST_DIRECTION > dir) || (dir > LAST_DIRECTION))
+	    return ILLEGAL_JUMP_NODIR;
+	int col = ballCol + DCOL[dir];
+	int row = ballRow + DROW[dir];
+	if (on(col, row) != PIECE)
+	    return ILLEGAL_JUMP_WRONGDIR;
+
+	// remove pieces
+	int run;
+	if (dir == E || dir == W)
+	    {
+		long bits = rowBits(row);
+		if (dir == E)
+		    {
+			run = Long.numberOfTrailingZeros(~(bits >>> col));
+			setRowBits(row, bits & ~(((1L << run) - 1) << col));
+			for (int i=0; i < run; i++, col++)
+			    zobrist ^= Zobrist.piece(col, row);
+		    }
+		else
+		    {
+			run = Long.numberOfLeadingZeros(~(bits << (63 - col)));
+			setRowBits(row, bits & ~(((1L << run) - 1) << (col - run + 1)));
+			for (int i=0; i < run; i++, col--)
+			    zobrist ^= Zobrist.piece(col, row);
+		    }
+	    }
+	else
+	    {
+		int step = DROW[dir] * COL_COUNT + DCOL[dir];
+		int bit = row * COL_COUNT + col;
+		run = 0;
+		do
+		    {
+			clearBit(bit);
+			col += DCOL[dir];
+			row += DROW[dir];
+			bit += step;
+			run++;
+		    }
+		while (!Field.isOutside(col, row) && testBit(bit));
+	    }
+
+	// move ball
+	setBall(col, row);
+	if (recording)
+	    undo.push(UndoStack.leap(dir, run));
+	return LEGAL;
+    }
+
+    public void makeMove(Move move)
+	throws InvalidMoveException
+    {
+	int status = makeMoveStatus(move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+    }
+
+    /** Like makeMove(), but returns the status instead of throwing an exception.
+     */
+    private int makeMoveStatus(Move move)
+    {
+	if (undo == null)
+	    undo = new UndoStack();
+	int mark = undo.size();
+	int oldBallCol = ballCol;
+	int oldBallRow = ballRow;
+	if (move instanceof Put)
+	    {
+		int status = putStatus((Put)move);
+		if (status != LEGAL)
+		    return status;
+		Field f = ((Put)move).getField();
+		undo.push(f.col());
+		undo.push(f.row());
+		undo.pushHeader(oldBallCol, oldBallRow, whoseTurn, UndoStack.PUT);
+	    }
+	else
+	    {
+		int status;
+		recording = true;
+		try {
+		    status = jumpStatus((Jump)move);
+		} finally {
+		    recording = false;
+		}
+		if (status != LEGAL)
+		    {
+			while (undo.size() > mark)
+			    undoLeap(undo.pop());
+			return status;
+		    }
+		undo.pushHeader(oldBallCol, oldBallRow, whoseTurn, undo.size() - mark);
+	    }
+	nextTurn();
+	return LEGAL;
+    }
+
+    /** Tries the move and takes it back.
+     */
+    public boolean isLegal(Move move)
+    {
+	if (makeMoveStatus(move) != LEGAL)
+	    return false;
+	unmakeMove();
+	return true;
+    }
+
+    /** Makes the move like makeMove(), but doesn't record it.
+     */
+    public int tryMove(Move move)
+    {
+	int mark = (undo == null) ? 0 : undo.size();
+	int status = makeMoveStatus(move);
+	if (status == LEGAL)
+	    undo.truncate(mark);
+	return status;
+    }
+
+    public void unmakeMove()
+	throws IllegalStateException
+    {
+	if (undo == null || undo.isEmpty())
+	    throw new IllegalStateException("No move to take back");
+	int leaps = undo.pop();
+	boolean turn = (undo.pop() == 1) ? DOWN : UP;
+	int oldBallRow = undo.pop();
+	int oldBallCol = undo.pop();
+	if (leaps == UndoStack.PUT)
+	    {
+		int row = undo.pop();
+		int col = undo.pop();
+		clearBit(row * COL_COUNT + col);
+	    }
+	else
+	    for (; leaps > 0; leaps--)
+		undoLeap(undo.pop());
+	if (ballCol != oldBallCol || ballRow != oldBallRow)
+	    setBall(oldBallCol, oldBallRow);
+	if (whoseTurn != turn)
+	    nextTurn();
+    }
+
+    /** Takes back one leap: puts the removed pieces back and moves the ball to where it came from.
+	@param leap A leap packed by UndoStack.leap().
+     */
+    private void undoLeap(int leap)
+    {
+	byte dir = UndoStack.leapDirection(leap);
+	int col = ballCol;
+	int row = ballRow;
+	for (int i = UndoStack.leapRun(leap); i > 0; i--)
+	    {
+		col -= DCOL[dir];
+		row -= DROW[dir];
+		setBit(row * COL_COUNT + col);
+	    }
+	setBall(col - DCOL[dir], row - DROW[dir]);
+    }
+
+    /** Returns true if the other object is also a BitBoard and represents the same position.
+     */
+    public boolean equals(Object o)
+    {
+	if (!(o instanceof BitBoard))
+	    return false;
+	BitBoard b = (BitBoard)o;
+	if (b.whoseTurn != whoseTurn || !Arrays.equals(pieces, b.pieces))
+	    return false;
+	boolean outside = Field.isOutside(ballCol, ballRow);
+	if (outside || Field.isOutside(b.ballCol, b.ballRow))
+	    return outside && Field.isOutside(b.ballCol, b.ballRow);
+	return ballCol == b.ballCol && ballRow == b.ballRow;
+    }
+
+    /** Returns the folded Zobrist key.
+     */
+    public int hashCode()
+    { return (int)(zobrist ^ (zobrist >>> 32)); }
+
+    /** Returns a string representation of the board, for debugging.
+	Not localized.
+    */
+    public String toString()
+    {
+	StringBuffer erg = new StringBuffer("Board=(ball=")
+	    .append(getBall().toString())
+	    .append(";  pieces=");
+	for (int x=0; x<COL_COUNT; x++)
+	    for (int y=0; y<ROW_COUNT; y++)
+		if (on(x,y) == PIECE)
+		    erg.append((new Field(x,y)).toString()).append(' ');
+	return erg.append(")").toString();
+    }
+
+}
@@ -21,7 +21,9 @@ package de.tabacha.cgo;
  * Why using an interface when there is only one implementation?
  * Because there isn't only one, one of the AI classes provides an own
  * read-only implementation, and you're free to write others.
- * A synchronized implementation does not exist yet.
+ * {@link ConcurrentBoard} is a thread-safe implementation,
+ * {@link Snapshot} an immutable one, {@link BoardView} a read-only view
+ * of another board that can be turned upside down without copying.
    <br> $Id: Board.java,v 1.11 2004/12/23 21:42:43 mk Exp $
    @author michael@tabacha.de
    @author $Author: mk $
@@ -48,6 +50,17 @@ public interface Board
     public byte[][] toArray();
 
 
+    /** Returns the size of this board.
+	Square indices, goals and the kick-off field depend on it.
+     */
+    public BoardGeometry geometry();
+
+    /** Returns the Zobrist key of the position, including the player to move.
+	Equal positions have equal keys.
+	@see Zobrist
+    */
+    public long zobrist();
+
     /** Returns the player who has to move.
 	@return UP or DOWN, declared in Constants.
     */
@@ -64,6 +77,26 @@ public interface Board
      */
     public byte on(Field field);
 
+    /** Returns the content of the field with the specified square index.
+	This and the other square methods are the fast way to read the board;
+	they create no objects.
+	@param square A square index or NO_SQUARE; declared in Constants.
+	@return EMPTY, PIECE or BALL; declared in Constants. EMPTY for NO_SQUARE.
+     */
+    public byte onSquare(int square);
+
+    /** Returns the square index of the field of the ball,
+	or NO_SQUARE if the ball is outside the board (in a goal).
+     */
+    public int ballSquare();
+
+    /** Returns the square index of the neighbour field in the specified direction.
+	@param square A square index or NO_SQUARE.
+	@param dir A direction declared in Constants.
+	@return NO_SQUARE if the neighbour is outside the board.
+     */
+    public int neighbor(int square, byte dir);
+
     /** Returns the actual field of the ball.
      */
     public Field getBall();
@@ -104,4 +137,36 @@ public interface Board
     public void move(Move move)
 	throws InvalidMoveException;
 
+    /** Makes a move that can be taken back with unmakeMove.
+	If successfully performed, it's the next player's turn.
+	Moves made with this method are recorded until they are taken back
+	or the board is reset; they are not copied by clone().
+       @exception InvalidMoveException If the move was not correct.
+       The board is left unchanged in this case.
+    */
+    public void makeMove(Move move)
+	throws InvalidMoveException;
+
+    /** Takes back the last move made with makeMove, restoring the removed pieces,
+	the ball field and the player to move.
+	Other changes of the board since that move must have been taken back before.
+	@throws IllegalStateException If there is no move to take back.
+    */
+    public void unmakeMove()
+	throws IllegalStateException;
+
+    /** Returns true if the move is legal in the actual position.
+	The board is not changed; changeable boards may try the move and take it back.
+	Creates no exception, so it is the cheap way to test many candidate moves.
+    */
+    public boolean isLegal(Move move);
+
+    /** Makes the move if it is legal; else leaves the board unchanged.
+	Like move(), but returns a status instead of throwing an exception.
+	Use this where illegal moves are common; move() is for the final check in the game loop.
+	@return LEGAL, or one of the ILLEGAL_ statuses declared in Constants.
+	@throws UnsupportedOperationException If the board cannot be changed.
+    */
+    public int tryMove(Move move);
+
 }
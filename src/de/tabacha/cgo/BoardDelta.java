@@ -0,0 +1,153 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+
+/** The changes one move made on a board.
+    <p>
+    {@link DefaultBoard#move(Move, BoardDelta)} and {@link DefaultBoard#tryMove(Move, BoardDelta)}
+    fill it with every field they changed, in the order of the changes,
+    with the old and the new contents, and with the ball field before and after the move.
+    So a consumer can update its own view of the board, like the screen or an evaluation,
+    without looking at the unchanged fields. A field may appear more than once,
+    e.g. a field the ball lands on and leaves again; the last entry is its final contents.
+    </p>
+    Every entry is packed into one int, and a delta can be used for many moves
+    one after another, so recording creates no objects once the array is large enough.
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class BoardDelta
+    implements Constants
+{
+    private static final int INITIAL_LENGTH = 16;
+
+    /** The changes, each packed as square<<4 | old<<2 | new. */
+    private int[] entries = new int[INITIAL_LENGTH];
+    private int size;
+
+    private int oldBallCol, oldBallRow, oldBallSquare;
+    private int newBallCol, newBallRow, newBallSquare;
+    private long oldZobrist, newZobrist;
+
+
+    /** Constructs an empty delta.
+     */
+    public BoardDelta()
+    {}
+
+    /** Starts recording: removes all changes and sets the ball before and after the move.
+     */
+    void reset(int ballCol, int ballRow, int ballSquare, long zobrist)
+    {
+	size = 0;
+	oldBallCol = newBallCol = ballCol;
+	oldBallRow = newBallRow = ballRow;
+	oldBallSquare = newBallSquare = ballSquare;
+	oldZobrist = newZobrist = zobrist;
+    }
+
+    /** Records the change of a field.
+     */
+    void add(int square, byte oldContent, byte newContent)
+    {
+	if (size == entries.length)
+	    {
+		int[] temp = new int[size * 2];
+		System.arraycopy(entries, 0, temp, 0, size);
+		entries = temp;
+	    }
+	entries[size++] = (square << 4) | (oldContent << 2) | newContent;
+    }
+
+    /** Ends recording: sets the ball and key after the move.
+     */
+    void finish(int ballCol, int ballRow, int ballSquare, long zobrist)
+    {
+	newBallCol = ballCol;
+	newBallRow = ballRow;
+	newBallSquare = ballSquare;
+	newZobrist = zobrist;
+    }
+
+
+    /** Returns true if no field was changed.
+     */
+    public boolean isEmpty()
+    { return size == 0; }
+
+    /** Returns the number of changes.
+     */
+    public int size()
+    { return size; }
+
+    /** Returns the square index of the field of a change.
+	@param i The number of the change, starting with 0.
+     */
+    public int square(int i)
+    { return entries[i] >>> 4; }
+
+    /** Returns the contents of the field before a change.
+	@return EMPTY, PIECE or BALL; declared in Constants.
+     */
+    public byte oldContent(int i)
+    { return (byte)((entries[i] >>> 2) & 3); }
+
+    /** Returns the contents of the field after a change.
+	@return EMPTY, PIECE or BALL; declared in Constants.
+     */
+    public byte newContent(int i)
+    { return (byte)(entries[i] & 3); }
+
+    /** Returns the square index of the ball before the move, NO_SQUARE if it was outside the board.
+     */
+    public int oldBallSquare()
+    { return oldBallSquare; }
+
+    /** Returns the square index of the ball after the move, NO_SQUARE if it is outside the board.
+     */
+    public int newBallSquare()
+    { return newBallSquare; }
+
+    /** Returns the field of the ball before the move, as a new object.
+     */
+    public Field getOldBall()
+    { return new Field(oldBallCol, oldBallRow); }
+
+    /** Returns the field of the ball after the move, as a new object; it may be in a goal.
+     */
+    public Field getNewBall()
+    { return new Field(newBallCol, newBallRow); }
+
+    /** Returns the Zobrist key of the position before the move exclusive-or the key after it.
+	A consumer that keeps the key of the old position gets the new one with a single xor.
+     */
+    public long zobristChange()
+    { return oldZobrist ^ newZobrist; }
+
+    public String toString()
+    {
+	StringBuffer buf = new StringBuffer("BoardDelta=(ball ")
+	    .append(getOldBall()).append(" -> ").append(getNewBall()).append(';');
+	for (int i=0; i < size; i++)
+	    buf.append(' ').append(square(i)).append(':').append(oldContent(i)).append("->").append(newContent(i));
+	return buf.append(')').toString();
+    }
+
+}
@@ -0,0 +1,223 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+
+/** The size of a board and everything that depends on it.
+    <p>
+    The constants ROW_COUNT, COL_COUNT, SQUARE_COUNT, KICK_OFF_FIELD and the square tables
+    in {@link Constants} describe the normal 19x19 board, {@link #DEFAULT}.
+    Other sizes, e.g. 9x9 for solving positions or 39x39 for stress tests,
+    are described by other instances of this class. Every board carries its geometry,
+    see {@link Board#geometry}.
+    </p><p>
+    The square indices are numbered row by row like on the default board:
+    field (col,row) has the index row*cols()+col. The goals are
+    the first and the last row and everything beyond them.
+    </p>
+    There is only one instance per size, so geometries may be compared with ==.
+   <br> $Id$
+   @threadsafe true Immutable
+   @author $Author$
+   @version $Revision$
+*/
+public final class BoardGeometry
+    implements Serializable, Constants
+{
+    /** Minimum number of rows and columns. */
+    public static final int MIN_SIZE = 5;
+    /** Maximum number of rows and columns. */
+    public static final int MAX_SIZE = 39;
+    /** Maximum number of squares of all geometries. */
+    public static final int MAX_SQUARE_COUNT = MAX_SIZE * MAX_SIZE;
+
+    /** Number of odd sizes from MIN_SIZE to MAX_SIZE. */
+    private static final int ODD_SIZES = (MAX_SIZE - MIN_SIZE) / 2 + 1;
+    /** All geometries created so far, at index(cols, rows); null for the others. */
+    private static final BoardGeometry[] INSTANCES = new BoardGeometry[ODD_SIZES * ODD_SIZES];
+
+    /** The 19x19 board described by Constants. */
+    public static final BoardGeometry DEFAULT =
+	new BoardGeometry(COL_COUNT, ROW_COUNT, SQUARE_COL, SQUARE_ROW, NEIGHBOR);
+
+    private final int cols, rows;
+    private final transient int[] squareCol, squareRow, neighbor;
+
+
+    /** Returns the geometry of a board with the specified size.
+	@param cols The number of columns; odd, between MIN_SIZE and MAX_SIZE.
+	@param rows The number of rows; odd, between MIN_SIZE and MAX_SIZE.
+	@throws IllegalArgumentException If a number is out of range or even.
+     */
+    public static BoardGeometry of(int cols, int rows)
+	throws IllegalArgumentException
+    {
+	if (cols < MIN_SIZE || cols > MAX_SIZE || rows < MIN_SIZE || rows > MAX_SIZE)
+	    throw new IllegalArgumentException("Board size out of range: " + cols + "x" + rows);
+	// the kick-off field must be in the middle, for fairness
+	if (cols % 2 == 0 || rows % 2 == 0)
+	    throw new IllegalArgumentException("Board size must be odd: " + cols + "x" + rows);
+	synchronized (INSTANCES) {
+	    BoardGeometry geometry = INSTANCES[index(cols, rows)];
+	    if (geometry == null)
+		geometry = new BoardGeometry(cols, rows,
+					     Field.createSquareColTable(cols, rows),
+					     Field.createSquareRowTable(cols, rows),
+					     Field.createNeighborTable(cols, rows));
+	    return geometry;
+	}
+    }
+
+    /** Constructor; registers the new geometry.
+     */
+    private BoardGeometry(int cols, int rows, int[] squareCol, int[] squareRow, int[] neighbor)
+    {
+	this.cols = cols;
+	this.rows = rows;
+	this.squareCol = squareCol;
+	this.squareRow = squareRow;
+	this.neighbor = neighbor;
+	synchronized (INSTANCES) {
+	    INSTANCES[index(cols, rows)] = this;
+	}
+    }
+
+    /** Returns the index of a size in INSTANCES.
+	@param cols The number of columns; odd, between MIN_SIZE and MAX_SIZE.
+	@param rows The number of rows; odd, between MIN_SIZE and MAX_SIZE.
+     */
+    private static int index(int cols, int rows)
+    { return (cols - MIN_SIZE) / 2 * ODD_SIZES + (rows - MIN_SIZE) / 2; }
+
+    /** Keeps the geometries unique when a board is deserialized.
+     */
+    private Object readResolve()
+	throws ObjectStreamException
+    { return of(cols, rows); }
+
+
+    // ------------------------ size -----------------------------------------
+
+    /** Returns the number of columns. */
+    public int cols()
+    { return cols; }
+
+    /** Returns the number of rows. */
+    public int rows()
+    { return rows; }
+
+    /** Returns the number of fields on the board. */
+    public int squareCount()
+    { return cols * rows; }
+
+    /** Returns true if this is the 19x19 board described by Constants. */
+    public boolean isDefault()
+    { return this == DEFAULT; }
+
+    /** Returns the column of the kick-off field. */
+    public int kickOffCol()
+    { return (cols-1)/2; }
+
+    /** Returns the row of the kick-off field. */
+    public int kickOffRow()
+    { return (rows-1)/2; }
+
+    /** Returns the kick-off field as a new object. */
+    public Field kickOffField()
+    { return new Field(kickOffCol(), kickOffRow()); }
+
+
+    // ------------------------ fields ---------------------------------------
+
+    /** Returns the square index of the specified field, or NO_SQUARE if it is not on the board.
+     */
+    public int square(int col, int row)
+    { return isOutside(col, row) ? NO_SQUARE : row * cols + col; }
+
+    /** Returns the column of a square index. */
+    public int col(int square)
+    { return squareCol[square]; }
+
+    /** Returns the row of a square index. */
+    public int row(int square)
+    { return squareRow[square]; }
+
+    /** Returns the square index of the neighbour field in the specified direction.
+	@param square A square index or NO_SQUARE.
+	@return NO_SQUARE if the neighbour is outside the board.
+     */
+    public int neighbor(int square, byte dir)
+    { return (square == NO_SQUARE) ? NO_SQUARE : neighbor[(square << 3) | dir]; }
+
+    /** Returns true if the specified field is not on the board.
+     */
+    public boolean isOutside(int col, int row)
+    { return (0 > col) || (col >= cols) || (0 > row) || (row >= rows); }
+
+    /** Returns true if the specified field is in one of the goals.
+     */
+    public boolean isInGoal(int col, int row)
+    {
+	return ( (row >= rows-1) || (row < 0) ||
+		 ((row == 0) && (0 <= col) && (col < cols)) );
+    }
+
+    /** Returns true if the specified field is in the goal of the specified player.
+	@param player UP or DOWN, declared in Constants.
+     */
+    public boolean isInGoalOf(boolean player, int col, int row)
+    {
+	if (player == DOWN)
+	    return (row >= rows-1);
+	// player == UP
+	return ( (row < 0) ||
+	         ((row == 0) && (0 <= col) && (col < cols)) );
+    }
+
+    /** Returns the row that is mirrored along the central row.
+     */
+    public int upsideDownRow(int row)
+    { return rows-1-row; }
+
+    /** Returns the column that is mirrored along the central column.
+     */
+    public int mirroredCol(int col)
+    { return cols-1-col; }
+
+
+    // ------------------------ tables for the boards ------------------------
+
+    /** Column of each square index. Must not be changed. */
+    int[] squareColTable()
+    { return squareCol; }
+
+    /** Row of each square index. Must not be changed. */
+    int[] squareRowTable()
+    { return squareRow; }
+
+    /** Neighbour table like Constants.NEIGHBOR. Must not be changed. */
+    int[] neighborTable()
+    { return neighbor; }
+
+
+    public String toString()
+    { return cols + "x" + rows; }
+
+}
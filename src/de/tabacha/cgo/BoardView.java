@@ -0,0 +1,211 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+
+/** A read-only view of another board, maybe upside down.
+    <p>
+    The view copies nothing: every method reads the board behind it.
+    A flipped view shows row r of the board as row rows-1-r and
+    the other player to move, like {@link Board#upsideDown}.
+    {@link #upsideDown} returns the view flipped back, again without copying,
+    so a position can be turned for an engine and back as often as needed.
+    Moves found on a flipped view are turned for the board with {@link #toBoard}.
+    </p><p>
+    The view shows the actual position of the board, so it changes when the board changes.
+    Give it an immutable board like a {@link Snapshot} to hand it to other threads.
+    Methods that would change the board throw an UnsupportedOperationException;
+    to get a changeable board, use the clone() method.
+    </p>
+    The Zobrist key of a flipped view is computed on every call.
+   <br> $Id$
+   @threadsafe false Like the board behind it.
+   @author $Author$
+   @version $Revision$
+*/
+public final class BoardView
+    implements Constants, Board
+{
+    /** The board behind this view. Never a BoardView. */
+    private final Board board;
+    /** True if the view shows the board upside down. */
+    private final boolean flipped;
+    private final BoardGeometry geometry;
+
+
+    /** Constructs a view that shows the board as it is.
+     */
+    public BoardView(Board board)
+    { this(board, false); }
+
+    /** Constructor.
+	@param flipped True if the view shows the board upside down.
+     */
+    public BoardView(Board board, boolean flipped)
+    {
+	if (board instanceof BoardView)
+	    {
+		BoardView other = (BoardView)board;
+		board = other.board;
+		flipped ^= other.flipped;
+	    }
+	this.board = board;
+	this.flipped = flipped;
+	this.geometry = board.geometry();
+    }
+
+    /** Returns a view that shows the board upside down.
+	If the board is a view itself, the result shows its board as it is or upside down.
+     */
+    public static BoardView flipped(Board board)
+    { return new BoardView(board, true); }
+
+
+    /** Returns the board behind this view.
+     */
+    public Board getBoard()
+    { return board; }
+
+    /** Returns true if the view shows the board upside down.
+     */
+    public boolean isFlipped()
+    { return flipped; }
+
+    /** Returns the move on the board behind this view that does the same as the specified move on the view.
+     */
+    public Move toBoard(Move move)
+    { return flipped ? move.upsideDown(geometry) : move; }
+
+    /** Returns the row of the board that is shown as the specified row, and vice versa.
+     */
+    private int row(int row)
+    { return flipped ? geometry.upsideDownRow(row) : row; }
+
+    /** Returns the square of the board that is shown as the specified square, and vice versa.
+     */
+    private int square(int square)
+    {
+	if (!flipped || square == NO_SQUARE)
+	    return square;
+	return geometry.upsideDownRow(geometry.row(square)) * geometry.cols() + geometry.col(square);
+    }
+
+
+    // ------------------------ Board methods --------------------------------
+
+    /** Returns a changeable copy of the position shown.
+     */
+    public Object clone()
+    { return new DefaultBoard(toArray(), getBall(), whoseTurn()); }
+
+    /** Returns the view flipped the other way, without copying.
+     */
+    public Board upsideDown()
+    { return new BoardView(board, !flipped); }
+
+    /** Copies the board once; for a flipped view only the order of the rows changes.
+     */
+    public byte[][] toArray()
+    {
+	byte[][] fields = board.toArray();
+	if (flipped)
+	    for (int top=0, bottom=fields.length-1; top < bottom; top++, bottom--)
+		{
+		    byte[] temp = fields[top];
+		    fields[top] = fields[bottom];
+		    fields[bottom] = temp;
+		}
+	return fields;
+    }
+
+    public BoardGeometry geometry()
+    { return geometry; }
+
+    public long zobrist()
+    { return flipped ? Zobrist.of(this) : board.zobrist(); }
+
+    public boolean whoseTurn()
+    { return flipped ^ board.whoseTurn(); }
+
+    public byte on(int col, int row)
+    { return board.on(col, row(row)); }
+
+    public byte on(Field field)
+    { return board.on(field.col(), row(field.row())); }
+
+    public byte onSquare(int square)
+    { return board.onSquare(square(square)); }
+
+    public int ballSquare()
+    { return square(board.ballSquare()); }
+
+    public int neighbor(int square, byte dir)
+    { return geometry.neighbor(square, dir); }
+
+    /** Returns the field of the ball. The returned object is a copy.
+     */
+    public Field getBall()
+    {
+	Field ball = board.getBall();
+	return flipped ? ball.upsideDown(geometry) : ball;
+    }
+
+    public void reset()
+    { throw new UnsupportedOperationException(); }
+    public void setBall(Field f)
+    { throw new UnsupportedOperationException(); }
+    public void setBall(int col, int row)
+    { throw new UnsupportedOperationException(); }
+    public void addPiece(Field f)
+    { throw new UnsupportedOperationException(); }
+    public void addPiece(int col, int row)
+    { throw new UnsupportedOperationException(); }
+    public void removePiece(Field f)
+    { throw new UnsupportedOperationException(); }
+    public void removePiece(int col, int row)
+    { throw new UnsupportedOperationException(); }
+    public void move(Move m)
+    { throw new UnsupportedOperationException(); }
+    public void makeMove(Move m)
+    { throw new UnsupportedOperationException(); }
+    public void unmakeMove()
+    { throw new UnsupportedOperationException(); }
+    public int tryMove(Move m)
+    { throw new UnsupportedOperationException(); }
+
+    public boolean isLegal(Move move)
+    { return board.isLegal(toBoard(move)); }
+
+
+    /** Returns a string representation of the position shown, for debugging.
+	Not localized.
+    */
+    public String toString()
+    {
+	StringBuffer erg = new StringBuffer("BoardView=(flipped=")
+	    .append(flipped)
+	    .append("; ball=")
+	    .append(getBall().toString())
+	    .append(";  pieces=");
+	for (int x=0; x<geometry.cols(); x++)
+	    for (int y=0; y<geometry.rows(); y++)
+		if (on(x,y) == PIECE)
+		    erg.append((new Field(x,y)).toString()).append(' ');
+	return erg.append(")").toString();
+    }
+
+}
@@ -0,0 +1,366 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.util.concurrent.locks.StampedLock;
+
+
+/** A thread-safe board: one thread changes the position, other threads read it.
+    <p>
+    The position is kept in an ordinary board that is not thread-safe.
+    Methods that change it hold the write lock of a StampedLock.
+    Methods that read it don't lock at all: they read optimistically and
+    validate the stamp afterwards. Only if a change came in between, they read
+    again with the read lock. So readers never block the writer, and
+    as long as no move is made, they never block each other.
+    </p><p>
+    Every change increments the {@link #version} counter, so a reader can find out
+    cheaply whether the position has changed since it looked the last time.
+    Use {@link #snapshot} to read several fields of the same position.
+    </p>
+   <br> $Id$
+   @threadsafe true
+   @author $Author$
+   @version $Revision$
+*/
+public final class ConcurrentBoard
+    implements Constants, Board
+{
+    private final StampedLock lock = new StampedLock();
+
+    /** The position; only changed with the write lock. */
+    private final Board board;
+
+    /** Number of changes so far. Only incremented with the write lock. */
+    private volatile long version;
+
+    /** The last snapshot, with the version it was taken at. */
+    private volatile Cached cached;
+
+
+    /** Constructs a board with the start position.
+     */
+    public ConcurrentBoard()
+    { board = new DefaultBoard(); }
+
+    /** Constructs a board with the position of the specified board.
+	The position is copied.
+     */
+    public ConcurrentBoard(Board original)
+    { board = (Board)original.clone(); }
+
+
+    /** Returns the number of changes made on this board.
+	If it is the same in two calls, the position has not changed in between.
+     */
+    public long version()
+    { return version; }
+
+    /** Returns an immutable copy of the actual position.
+	The copy is only taken again after a change, so it may be the same object as before.
+     */
+    public Snapshot snapshot()
+    {
+	Cached c = cached;
+	if (c == null || c.version != version)
+	    {
+		long stamp = lock.readLock();
+		try {
+		    c = new Cached(new Snapshot(board), version);
+		} finally {
+		    lock.unlockRead(stamp);
+		}
+		cached = c;
+	    }
+	return c.position;
+    }
+
+
+    // ------------------------ reading --------------------------------------
+
+    /** Returns a copy of this board, also a ConcurrentBoard.
+     */
+    public Object clone()
+    {
+	long stamp = lock.readLock();
+	try {
+	    return new ConcurrentBoard(board);
+	} finally {
+	    lock.unlockRead(stamp);
+	}
+    }
+
+    /** Returns a mirrored copy of this board, also a ConcurrentBoard.
+     */
+    public Board upsideDown()
+    {
+	long stamp = lock.readLock();
+	try {
+	    return new ConcurrentBoard(board.upsideDown());
+	} finally {
+	    lock.unlockRead(stamp);
+	}
+    }
+
+    public byte[][] toArray()
+    {
+	long stamp = lock.tryOptimisticRead();
+	byte[][] result = board.toArray();
+	if (!lock.validate(stamp))
+	    {
+		stamp = lock.readLock();
+		try {
+		    result = board.toArray();
+		} finally {
+		    lock.unlockRead(stamp);
+		}
+	    }
+	return result;
+    }
+
+    public long zobrist()
+    {
+	long stamp = lock.tryOptimisticRead();
+	long result = board.zobrist();
+	if (!lock.validate(stamp))
+	    {
+		stamp = lock.readLock();
+		try {
+		    result = board.zobrist();
+		} finally {
+		    lock.unlockRead(stamp);
+		}
+	    }
+	return result;
+    }
+
+    public boolean whoseTurn()
+    {
+	long stamp = lock.tryOptimisticRead();
+	boolean result = board.whoseTurn();
+	if (!lock.validate(stamp))
+	    {
+		stamp = lock.readLock();
+		try {
+		    result = board.whoseTurn();
+		} finally {
+		    lock.unlockRead(stamp);
+		}
+	    }
+	return result;
+    }
+
+    public byte on(int col, int row)
+    { return onSquare(board.geometry().square(col, row)); }
+
+    public byte on(Field field)
+    { return onSquare(field.square(board.geometry())); }
+
+    public byte onSquare(int square)
+    {
+	long stamp = lock.tryOptimisticRead();
+	byte result = board.onSquare(square);
+	if (!lock.validate(stamp))
+	    {
+		stamp = lock.readLock();
+		try {
+		    result = board.onSquare(square);
+		} finally {
+		    lock.unlockRead(stamp);
+		}
+	    }
+	return result;
+    }
+
+    public int ballSquare()
+    {
+	long stamp = lock.tryOptimisticRead();
+	int result = board.ballSquare();
+	if (!lock.validate(stamp))
+	    {
+		stamp = lock.readLock();
+		try {
+		    result = board.ballSquare();
+		} finally {
+		    lock.unlockRead(stamp);
+		}
+	    }
+	return result;
+    }
+
+    /** Doesn't need any lock: the geometry of a board never changes.
+     */
+    public BoardGeometry geometry()
+    { return board.geometry(); }
+
+    /** Doesn't need any lock: the neighbours don't depend on the position.
+     */
+    public int neighbor(int square, byte dir)
+    { return board.geometry().neighbor(square, dir); }
+
+    public Field getBall()
+    {
+	long stamp = lock.tryOptimisticRead();
+	Field result = board.getBall();
+	if (!lock.validate(stamp))
+	    {
+		stamp = lock.readLock();
+		try {
+		    result = board.getBall();
+		} finally {
+		    lock.unlockRead(stamp);
+		}
+	    }
+	return result;
+    }
+
+
+    // ------------------------ changing -------------------------------------
+
+    public void reset()
+    {
+	long stamp = lock.writeLock();
+	try {
+	    board.reset();
+	    version++;
+	} finally {
+	    lock.unlockWrite(stamp);
+	}
+    }
+
+    public void setBall(Field newBallField)
+    { setBall(newBallField.col(), newBallField.row()); }
+
+    public void setBall(int col, int row)
+    {
+	long stamp = lock.writeLock();
+	try {
+	    board.setBall(col, row);
+	    version++;
+	} finally {
+	    lock.unlockWrite(stamp);
+	}
+    }
+
+    public void addPiece(Field f)
+    { addPiece(f.col(), f.row()); }
+
+    public void addPiece(int col, int row)
+    {
+	long stamp = lock.writeLock();
+	try {
+	    board.addPiece(col, row);
+	    version++;
+	} finally {
+	    lock.unlockWrite(stamp);
+	}
+    }
+
+    public void removePiece(Field f)
+    { removePiece(f.col(), f.row()); }
+
+    public void removePiece(int col, int row)
+    {
+	long stamp = lock.writeLock();
+	try {
+	    board.removePiece(col, row);
+	    version++;
+	} finally {
+	    lock.unlockWrite(stamp);
+	}
+    }
+
+    public void move(Move move)
+	throws InvalidMoveException
+    {
+	long stamp = lock.writeLock();
+	try {
+	    board.move(move);
+	} finally {
+	    version++; // an invalid move may have changed the board, too
+	    lock.unlockWrite(stamp);
+	}
+    }
+
+    public void makeMove(Move move)
+	throws InvalidMoveException
+    {
+	long stamp = lock.writeLock();
+	try {
+	    board.makeMove(move);
+	    version++;
+	} finally {
+	    lock.unlockWrite(stamp);
+	}
+    }
+
+    public void unmakeMove()
+	throws IllegalStateException
+    {
+	long stamp = lock.writeLock();
+	try {
+	    board.unmakeMove();
+	    version++;
+	} finally {
+	    lock.unlockWrite(stamp);
+	}
+    }
+
+    /** Checks the move on snapshot(), so it never takes the write lock,
+	and doesn't disturb the optimistic reads of other threads.
+     */
+    public boolean isLegal(Move move)
+    { return snapshot().isLegal(move); }
+
+    public int tryMove(Move move)
+    {
+	long stamp = lock.writeLock();
+	try {
+	    int status = board.tryMove(move);
+	    if (status == LEGAL)
+		version++;
+	    return status;
+	} finally {
+	    lock.unlockWrite(stamp);
+	}
+    }
+
+
+    /** Returns a string representation of the board, for debugging.
+     */
+    public String toString()
+    { return snapshot().toString(); }
+
+
+    // ----------------------- inner classes ---------------------------------
+
+    /** A snapshot and the version of the board it was taken at.
+	@threadsafe true Immutable
+     */
+    private static final class Cached
+    {
+	final Snapshot position;
+	final long version;
+
+	Cached(Snapshot position, long version)
+	{
+	    this.position = position;
+	    this.version = version;
+	}
+    }
+
+}
@@ -47,7 +47,33 @@ public interface Constants
     public final static byte LAST_DIRECTION = NW;
     public final static byte[] UPSIDEDOWN = {S, SE, E, NE, N, NW, W, SW};
     public final static byte[] OPPOSITE = {S, SW, W, NW, N, NE, E, SE};
+    /** The directions mirrored along the central column. */
+    public final static byte[] MIRRORED = {N, NW, W, SW, S, SE, E, NE};
 
     public final static byte[] DCOL = { 0, 1, 1, 1, 0,-1,-1,-1};
     public final static byte[] DROW = {-1,-1, 0, 1, 1, 1, 0,-1};
+
+    /** Number of fields on the board.
+	The fields are numbered row by row: field (col,row) has the square index row*COL_COUNT+col.
+    */
+    public final static int SQUARE_COUNT = ROW_COUNT * COL_COUNT;
+    /** Square index for all fields outside the board. */
+    public final static int NO_SQUARE = -1;
+    /** Column of each square index. */
+    public final static int[] SQUARE_COL = Field.createSquareColTable(COL_COUNT, ROW_COUNT);
+    /** Row of each square index. */
+    public final static int[] SQUARE_ROW = Field.createSquareRowTable(COL_COUNT, ROW_COUNT);
+    /** NEIGHBOR[(square &lt;&lt; 3) | direction] is the square index of the neighbour field
+	in this direction, or NO_SQUARE if the neighbour is outside the board. */
+    public final static int[] NEIGHBOR = Field.createNeighborTable(COL_COUNT, ROW_COUNT);
+
+    /** Status of a legal move, returned by Board.tryMove. The other statuses tell why a move is illegal;
+	see {@link InvalidMoveException#messageKey} for their messages. */
+    public final static int LEGAL = 0;
+    public final static int ILLEGAL_EMPTY = 1;
+    public final static int ILLEGAL_PUT_OUTSIDE = 2;
+    public final static int ILLEGAL_PUT_NOT_EMPTY = 3;
+    public final static int ILLEGAL_JUMP_NODIR = 4;
+    public final static int ILLEGAL_JUMP_WRONGDIR = 5;
+    public final static int ILLEGAL_JUMP_OUTSIDE = 6;
 }
@@ -17,10 +17,21 @@
 package de.tabacha.cgo;
 
 import java.util.Arrays;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 
 
-/** The 19x19 board from the game Go.
+/** The 19x19 board from the game Go, or a board of another size.
+    The contents of the fields are stored in one array, indexed by square.
+    <p>
+    For every square and direction the board also knows how many pieces
+    lie in a row next to it ({@link #pieceRun}), so the field where a leap lands is
+    found without walking over the pieces. The runs are updated whenever a field changes;
+    a change costs a walk along the pieces behind the field in each direction.
+    </p><p>
+    It also keeps the pieces of each row as a bit mask ({@link RowOccupancy}),
+    so the pieces in a region are counted with a few bit counts ({@link #countPieces}, {@link #countCone}).
+    </p>
    <br> $Id: DefaultBoard.java,v 1.9 2004/12/23 21:42:43 mk Exp $
    @threadsafe false
    @author michael@tabacha.de
@@ -31,16 +42,44 @@ public final class DefaultBoard
     implements Cloneable, Serializable, Constants, Board
 {
     
-    private byte[][] fields;
-    private Field ballField;
+    /** The size of the board. */
+    private final BoardGeometry geometry;
+    /** Contents of the fields, indexed by square. */
+    private byte[] squares;
+    /** The ball field; may be outside the board. */
+    private int ballCol, ballRow;
+    /** Square index of the ball field, NO_SQUARE if it is outside the board. */
+    private int ballSquare;
     private boolean whoseTurn;
+    /** Zobrist key of the position, updated in set() and nextTurn(). */
+    private long zobrist;
+    /** Number of pieces in a row next to each square, indexed like NEIGHBOR by (square<<3)|dir.
+	Updated in set(). */
+    private transient byte[] runs;
+    /** The pieces of each row. Updated in set(). */
+    private transient RowOccupancy occupancy;
+
+    /** The moves made with makeMove; created with the first one. */
+    private transient UndoStack undo;
+    /** True while makeMove performs a jump, so jumpOnce records the leaps. */
+    private transient boolean recording;
+    /** Records the changes of set() while a move with a delta is made, else null. */
+    private transient BoardDelta delta;
 
 
     /** Constructs and resets the board.
      */
     public DefaultBoard()
+    { this(BoardGeometry.DEFAULT); }
+
+    /** Constructs and resets a board with the specified size.
+     */
+    public DefaultBoard(BoardGeometry geometry)
     {
-	fields = new byte [ROW_COUNT] [COL_COUNT];
+	this.geometry = geometry;
+	squares = new byte[geometry.squareCount()];
+	runs = new byte[squares.length << 3];
+	occupancy = new RowOccupancy(geometry.rows());
 	reset();
     }
     
@@ -48,32 +87,54 @@ public final class DefaultBoard
      */
     private DefaultBoard(DefaultBoard original)
     {
-	fields = new byte[ROW_COUNT][];
-	for (int i=0; i<ROW_COUNT; i++)
-	    fields[i] = (byte[])original.fields[i].clone();
-	ballField = (Field)original.ballField.clone();
+	geometry = original.geometry;
+	squares = (byte[])original.squares.clone();
+	runs = (byte[])original.runs.clone();
+	occupancy = (RowOccupancy)original.occupancy.clone();
+	ballCol = original.ballCol;
+	ballRow = original.ballRow;
+	ballSquare = original.ballSquare;
 	whoseTurn = original.whoseTurn;
+	zobrist = original.zobrist;
     }
 
     /** Constructor that receives direct values.
      * 	Will not test if the ball is set in the byte array at the place of the ball field.
+     *  The array is copied. Its size determines the size of the board.
+     *  @throws IllegalArgumentException If there is no BoardGeometry of this size.
      */
     public DefaultBoard(byte[][]fields, Field ballField, boolean whoseTurn)
+	throws IllegalArgumentException
     {
-	this.fields = fields;
-	this.ballField = ballField;
+	geometry = BoardGeometry.of(fields[0].length, fields.length);
+	int cols = geometry.cols();
+	squares = new byte[geometry.squareCount()];
+	for (int r=0; r < fields.length; r++)
+	    System.arraycopy(fields[r], 0, squares, r * cols, cols);
+	this.ballCol = ballField.col();
+	this.ballRow = ballField.row();
+	this.ballSquare = ballField.square(geometry);
 	this.whoseTurn = whoseTurn;
+	this.zobrist = Zobrist.of(this);
+	computeRuns();
     }
 
+    /** Serializes this board in the compact format of BinaryCodec.
+     */
+    private Object writeReplace()
+	throws ObjectStreamException
+    { return new BinaryCodec.Externalized(this); }
+
 
     public Object clone()
     { return new DefaultBoard(this); }
 
     public byte[][] toArray()
     {
-        byte[][] klon = new byte[ROW_COUNT][];
-        for (int i=0; i<ROW_COUNT; i++)
-            klon[i] = (byte[])fields[i].clone();
+        int cols = geometry.cols();
+        byte[][] klon = new byte[geometry.rows()][cols];
+        for (int r=0; r<klon.length; r++)
+            System.arraycopy(squares, r * cols, klon[r], 0, cols);
         return klon;
     }
 
@@ -83,10 +144,13 @@ public final class DefaultBoard
      */
     private void makeEmpty()
     {
-    	for (int x=0; x < COL_COUNT; x++)
-    	    for (int y=0; y < ROW_COUNT; y++)
-    	        fields[y][x] = EMPTY;
+        Arrays.fill(squares, EMPTY);
+        Arrays.fill(runs, (byte)0);
+        occupancy.clear();
         whoseTurn = UP;
+        zobrist = Zobrist.turn(UP);
+        if (undo != null)
+            undo.truncate(0);
     }
 
     /** Removes all pieces and the ball from the field.
@@ -95,7 +159,8 @@ public final class DefaultBoard
     public void clear()
     {
         makeEmpty();
-        ballField = new Field(-1, -1); 
+        ballCol = ballRow = -1;
+        ballSquare = NO_SQUARE;
     }
 
     /** Sets the board to the start position.
@@ -103,101 +168,245 @@ public final class DefaultBoard
     public void reset()
     {
         makeEmpty();
-        ballField = (Field)KICK_OFF_FIELD.clone();
-        set(ballField, BALL);
+        ballSquare = NO_SQUARE;
+        setBall(geometry.kickOffCol(), geometry.kickOffRow());
     }
 
     public Board upsideDown()
     {
-        byte[][] newFields = new byte[ROW_COUNT][COL_COUNT];
-        for (int r=0; r < ROW_COUNT; r++)
-            System.arraycopy(fields[ROW_COUNT-1-r], 0, newFields[r], 0, COL_COUNT);
-        return new DefaultBoard(newFields, ballField.upsideDown(), !whoseTurn);
+        DefaultBoard b = new DefaultBoard(this);
+        int cols = geometry.cols();
+        for (int r=0; r < geometry.rows(); r++)
+            System.arraycopy(squares, geometry.upsideDownRow(r) * cols, b.squares, r * cols, cols);
+        b.ballRow = geometry.upsideDownRow(ballRow);
+        b.ballSquare = geometry.square(b.ballCol, b.ballRow);
+        b.whoseTurn = !whoseTurn;
+        b.zobrist = Zobrist.of(b);
+        b.occupancy = occupancy.upsideDown();
+        // the runs are mirrored, too
+        for (int square=0; square < squares.length; square++)
+            {
+                int mirrored = geometry.upsideDownRow(geometry.row(square)) * cols + geometry.col(square);
+                for (byte dir=FIRST_DIRECTION; dir <= LAST_DIRECTION; dir++)
+                    b.runs[(mirrored << 3) | UPSIDEDOWN[dir]] = runs[(square << 3) | dir];
+            }
+        return b;
     }
 
 
     /** Switchs the player who has to move. */
     protected void nextTurn()
-    { whoseTurn = !whoseTurn; }
+    {
+	whoseTurn = !whoseTurn;
+	zobrist ^= Zobrist.DOWN_TO_MOVE;
+    }
 
     public boolean whoseTurn()
     { return whoseTurn; }
 
+    public long zobrist()
+    { return zobrist; }
+
+    public BoardGeometry geometry()
+    { return geometry; }
+
+
+    public byte onSquare(int square)
+    { return (square == NO_SQUARE) ? EMPTY : squares[square]; }
+
+    public int ballSquare()
+    { return ballSquare; }
+
+    public int neighbor(int square, byte dir)
+    { return geometry.neighbor(square, dir); }
 
     public byte on(int col, int row)
-    { return ( Field.isOutside(col,row) ? EMPTY : fields[row][col] ); }
+    { return onSquare(geometry.square(col, row)); }
 
     public byte on(Field field)
-    { return ( field.isOutside() ? EMPTY : fields[field.row()][field.col()] ); }
+    { return onSquare(field.square(geometry)); }
 
+    /** Returns the field of the ball. The returned object is a copy.
+     */
     public Field getBall()
-    { return ballField; }
+    { return new Field(ballCol, ballRow); }
 
-    public void setBall(Field newBallField)
+    /** Returns the number of pieces in a row next to the specified square
+	in the specified direction: the pieces the ball jumps over when it leaps from there.
+	@param square A square index, not NO_SQUARE.
+	@param dir A direction declared in Constants.
+     */
+    public int pieceRun(int square, byte dir)
+    { return runs[(square << 3) | dir]; }
+
+    /** Returns the square where the ball lands when it leaps from the specified square
+	in the specified direction.
+	@param square A square index, not NO_SQUARE.
+	@param dir A direction declared in Constants.
+	@return NO_SQUARE if there is no piece to jump over or the ball would land outside the board.
+     */
+    public int landingSquare(int square, byte dir)
     {
-	if (!ballField.isOutside())
-	    set(ballField, EMPTY);
-	this.ballField = newBallField;
-	if (!ballField.isOutside())
-	    set(ballField, BALL);
+	int run = runs[(square << 3) | dir];
+	if (run == 0)
+	    return NO_SQUARE;
+	return geometry.square(geometry.col(square) + (run+1) * DCOL[dir],
+			       geometry.row(square) + (run+1) * DROW[dir]);
     }
 
-    public void setBall(int col, int row)
-    { setBall(new Field(col, row)); }
+    /** Returns the pieces of a row as a bit mask, bit c for column c.
+     */
+    public long rowMask(int row)
+    { return occupancy.mask(row); }
 
-    public void addPiece(Field f)
+    /** Returns the number of pieces in a row.
+     */
+    public int rowCount(int row)
+    { return occupancy.count(row); }
+
+    /** Returns the number of pieces in a row between two columns, inclusive.
+	@see RowOccupancy#count(int, int, int)
+     */
+    public int countPieces(int row, int fromCol, int toCol)
+    { return occupancy.count(row, fromCol, toCol); }
+
+    /** Returns the number of pieces in the rows fromRow to toRow that can be reached
+	from the field (col, row) with straight or diagonal steps.
+	@see RowOccupancy#countCone
+     */
+    public int countCone(int col, int row, int fromRow, int toRow)
+    { return occupancy.countCone(col, row, fromRow, toRow); }
+
+    public void setBall(Field newBallField)
+    { setBall(newBallField.col(), newBallField.row()); }
+
+    public void setBall(int col, int row)
     {
-	if (on(f) == EMPTY)
-	    set(f, PIECE);
+	if (ballSquare != NO_SQUARE)
+	    set(ballSquare, EMPTY);
+	ballCol = col;
+	ballRow = row;
+	ballSquare = geometry.square(col, row);
+	if (ballSquare != NO_SQUARE)
+	    set(ballSquare, BALL);
     }
 
+    public void addPiece(Field f)
+    { addPiece(f.col(), f.row()); }
+
     public void addPiece(int col, int row)
     {
-	if (on(col, row) == EMPTY)
-	    set(col, row, PIECE);
+	int square = geometry.square(col, row);
+	if (square != NO_SQUARE && squares[square] == EMPTY)
+	    set(square, PIECE);
     }
 
     public void removePiece(Field f)
-    {
-	if (on(f) == PIECE)
-	    set(f, EMPTY);
-    }
+    { removePiece(f.col(), f.row()); }
 
     public void removePiece(int col, int row)
     {
-	if (on(col, row) == PIECE)
-	    set(col, row, EMPTY);
+	int square = geometry.square(col, row);
+	if (square != NO_SQUARE && squares[square] == PIECE)
+	    set(square, EMPTY);
     }
 
 
     /** Changes the contents of a field on the board.
 	Will not check for validity.
-	@param field The field to be changed. Must be on the board.
+	@param square The square index of the field to be changed. Must be on the board.
 	@param what what to set on this field: EMPTY, PIECE or BALL
     */
-    private void set(final Field field, final byte what)
-    { fields[field.row()][field.col()] = what; }
+    private void set(final int square, final byte what)
+    {
+	zobrist ^= Zobrist.of(squares[square], square) ^ Zobrist.of(what, square);
+	if (delta != null)
+	    delta.add(square, squares[square], what);
+	boolean runsChange = (squares[square] == PIECE) != (what == PIECE);
+	squares[square] = what;
+	if (runsChange)
+	    {
+		updateRuns(square);
+		if (what == PIECE)
+		    occupancy.add(geometry.col(square), geometry.row(square));
+		else
+		    occupancy.remove(geometry.col(square), geometry.row(square));
+	    }
+    }
 
-    /** Changes the contents of a field on the board.
-	Will not check for validity.
-	@param what what to set on this field: EMPTY, PIECE or BALL
-    */
-    private void set(final int col, final int row, final byte what)
-    { fields[row][col] = what; }
+    /** Updates the runs of the squares behind a square that got or lost a piece.
+	The runs of the square itself don't change, they start at its neighbours.
+     */
+    private void updateRuns(final int square)
+    {
+	for (byte dir=FIRST_DIRECTION; dir <= LAST_DIRECTION; dir++)
+	    {
+		byte back = OPPOSITE[dir];
+		int run = (squares[square] == PIECE) ? runs[(square << 3) | dir] + 1 : 0;
+		int behind = geometry.neighbor(square, back);
+		while (behind != NO_SQUARE)
+		    {
+			runs[(behind << 3) | dir] = (byte)run;
+			if (squares[behind] != PIECE)
+			    break;
+			run++;
+			behind = geometry.neighbor(behind, back);
+		    }
+	    }
+    }
+
+    /** Computes all runs and the occupancy from scratch.
+     */
+    private void computeRuns()
+    {
+	if (runs == null)
+	    runs = new byte[squares.length << 3];
+	occupancy = new RowOccupancy(geometry.rows());
+	for (int square=0; square < squares.length; square++)
+	    if (squares[square] == PIECE)
+		occupancy.add(geometry.col(square), geometry.row(square));
+	for (int square=0; square < squares.length; square++)
+	    for (byte dir=FIRST_DIRECTION; dir <= LAST_DIRECTION; dir++)
+		{
+		    int run = 0;
+		    int next = geometry.neighbor(square, dir);
+		    while (next != NO_SQUARE && squares[next] == PIECE)
+			{
+			    run++;
+			    next = geometry.neighbor(next, dir);
+			}
+		    runs[(square << 3) | dir] = (byte)run;
+		}
+    }
     
 
     public final void move(Move move)
 	throws InvalidMoveException
     {
-	if (move == null)
-	    throw new InvalidMoveException("error.move.empty", move);
-	if (move instanceof Put)
-	    put((Put)move);
-	else
-	    jump((Jump)move);
+	int status = (move instanceof Put) ? putStatus((Put)move) : jumpStatus((Jump)move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
 	nextTurn();
     }
 
+    /** Makes a move like move(Move), and reports the changed fields.
+	@param delta Gets the changes; its old contents are removed.
+	If the move is not valid, it has the changes made before the error was found.
+	@exception InvalidMoveException If the move is not valid.
+     */
+    public final void move(Move move, BoardDelta delta)
+	throws InvalidMoveException
+    {
+	delta.reset(ballCol, ballRow, ballSquare, zobrist);
+	this.delta = delta;
+	try {
+	    move(move);
+	} finally {
+	    this.delta = null;
+	    delta.finish(ballCol, ballRow, ballSquare, zobrist);
+	}
+    }
+
     /** Puts a piece on the board.
      * The player is not changed, so this must not be a public method.
 	@exception InvalidMoveException If field is not empty or outside the board.
@@ -205,12 +414,23 @@ public final class DefaultBoard
     protected void put(Put move)
 	throws InvalidMoveException
     {
-	Field f = move.getField();
-	if ( f.isOutside() )
-		throw new InvalidMoveException("error.move.put_outside", move);
-	if ( on(f) != EMPTY )
-		throw new InvalidMoveException("error.move.put_not_empty", move);
-	set(f, PIECE);
+	int status = putStatus(move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+    }
+
+    /** Like put(), but returns the status instead of throwing an exception.
+	The board is only changed if the put is legal.
+     */
+    private int putStatus(Put move)
+    {
+	int square = move.getField().square(geometry);
+	if ( square == NO_SQUARE )
+		return ILLEGAL_PUT_OUTSIDE;
+	if ( squares[square] != EMPTY )
+		return ILLEGAL_PUT_NOT_EMPTY;
+	set(square, PIECE);
+	return LEGAL;
     }
 
     /** Moves the ball around the field.
@@ -222,14 +442,30 @@ public final class DefaultBoard
     protected void jump(Jump move)
 	throws InvalidMoveException
     {
-	move.startIteration();
-	if (!move.hasNextLeap())
-	    throw new InvalidMoveException("error.move.empty", move);
+	int status = jumpStatus(move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+    }
+
+    /** Like jump(), but returns the status instead of throwing an exception.
+	An illegal jump may have changed the board.
+	@param move The jump; null counts as an empty move.
+     */
+    private int jumpStatus(Jump move)
+    {
+	if (move == null)
+	    return ILLEGAL_EMPTY;
+	int count = move.size();
+	if (count == 0)
+	    return ILLEGAL_EMPTY;
+	int status;
+	int i = 0;
 	do
-	    jumpOnce(move.nextLeap(), move);
-	while ( move.hasNextLeap() && !ballField.isOutside() && !ballField.isInGoal() );
-	if ( ballField.isOutside() && !ballField.isInGoal() )
-	    throw new InvalidMoveException("error.move.jump_outside", move);
+	    status = jumpOnceStatus(move.leap(i++));
+	while ( status == LEGAL && i < count && ballSquare != NO_SQUARE && !geometry.isInGoal(ballCol, ballRow) );
+	if ( status == LEGAL && ballSquare == NO_SQUARE && !geometry.isInGoal(ballCol, ballRow) )
+	    return ILLEGAL_JUMP_OUTSIDE;
+	return status;
     }
 
     /** Makes the ball jump once.
@@ -239,24 +475,172 @@ public final class DefaultBoard
     */
     protected void jumpOnce(byte dir, Move move)
 	throws InvalidMoveException
+    {
+	int status = jumpOnceStatus(dir);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+    }
+
+    /** Like jumpOnce(), but returns the status instead of throwing an exception.
+	The board is only changed if the leap is legal.
+     */
+    private int jumpOnceStatus(byte dir)
     {
 	// valid?
 	if ((FIRST_DIRECTION > dir) || (dir > LAST_DIRECTION))
-	    throw new InvalidMoveException("error.move.jump_nodir", move);
-	Field actField = ballField.fieldIn(dir);
-	if (on(actField) != PIECE)
-	    throw new InvalidMoveException("error.move.jump_wrongdir", move);
+	    return ILLEGAL_JUMP_NODIR;
+	int square = neighbor(ballSquare, dir);
+	if (onSquare(square) != PIECE)
+	    return ILLEGAL_JUMP_WRONGDIR;
+
+	// landing field
+	int run = runs[(ballSquare << 3) | dir];
+	int col = ballCol + (run+1) * DCOL[dir];
+	int row = ballRow + (run+1) * DROW[dir];
 
 	// remove pieces
-	do
+	for (int i=0; i < run; i++)
 	    {
-		set(actField, EMPTY);
-		actField.moveIn(dir);
+		set(square, EMPTY);
+		square = geometry.neighbor(square, dir);
 	    }
-	while (on(actField) == PIECE);
 
 	// move ball
-	setBall(actField);
+	setBall(col, row);
+	if (recording)
+	    undo.push(UndoStack.leap(dir, run));
+	return LEGAL;
+    }
+
+    public void makeMove(Move move)
+	throws InvalidMoveException
+    {
+	int status = makeMoveStatus(move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+    }
+
+    /** Like makeMove(), but returns the status instead of throwing an exception.
+     */
+    private int makeMoveStatus(Move move)
+    {
+	if (undo == null)
+	    undo = new UndoStack();
+	int mark = undo.size();
+	int oldBallCol = ballCol;
+	int oldBallRow = ballRow;
+	if (move instanceof Put)
+	    {
+		int status = putStatus((Put)move);
+		if (status != LEGAL)
+		    return status;
+		Field f = ((Put)move).getField();
+		undo.push(f.col());
+		undo.push(f.row());
+		undo.pushHeader(oldBallCol, oldBallRow, whoseTurn, UndoStack.PUT);
+	    }
+	else
+	    {
+		int status;
+		recording = true;
+		try {
+		    status = jumpStatus((Jump)move);
+		} finally {
+		    recording = false;
+		}
+		if (status != LEGAL)
+		    {
+			while (undo.size() > mark)
+			    undoLeap(undo.pop());
+			return status;
+		    }
+		undo.pushHeader(oldBallCol, oldBallRow, whoseTurn, undo.size() - mark);
+	    }
+	nextTurn();
+	return LEGAL;
+    }
+
+    /** Tries the move and takes it back.
+     */
+    public boolean isLegal(Move move)
+    {
+	if (makeMoveStatus(move) != LEGAL)
+	    return false;
+	unmakeMove();
+	return true;
+    }
+
+    /** Makes the move like makeMove(), but doesn't record it.
+     */
+    public int tryMove(Move move)
+    {
+	int mark = (undo == null) ? 0 : undo.size();
+	int status = makeMoveStatus(move);
+	if (status == LEGAL)
+	    undo.truncate(mark);
+	return status;
+    }
+
+    /** Makes the move like tryMove(Move), and reports the changed fields.
+	@param delta Gets the changes; its old contents are removed.
+	It stays empty if the move is not valid, as the board is unchanged then.
+     */
+    public int tryMove(Move move, BoardDelta delta)
+    {
+	delta.reset(ballCol, ballRow, ballSquare, zobrist);
+	this.delta = delta;
+	int status;
+	try {
+	    status = tryMove(move);
+	} finally {
+	    this.delta = null;
+	}
+	if (status != LEGAL)
+	    delta.reset(ballCol, ballRow, ballSquare, zobrist);
+	else
+	    delta.finish(ballCol, ballRow, ballSquare, zobrist);
+	return status;
+    }
+
+    public void unmakeMove()
+	throws IllegalStateException
+    {
+	if (undo == null || undo.isEmpty())
+	    throw new IllegalStateException("No move to take back");
+	int leaps = undo.pop();
+	boolean turn = (undo.pop() == 1) ? DOWN : UP;
+	int oldBallRow = undo.pop();
+	int oldBallCol = undo.pop();
+	if (leaps == UndoStack.PUT)
+	    {
+		int row = undo.pop();
+		int col = undo.pop();
+		set(geometry.square(col, row), EMPTY);
+	    }
+	else
+	    for (; leaps > 0; leaps--)
+		undoLeap(undo.pop());
+	if (ballCol != oldBallCol || ballRow != oldBallRow)
+	    setBall(oldBallCol, oldBallRow);
+	if (whoseTurn != turn)
+	    nextTurn();
+    }
+
+    /** Takes back one leap: puts the removed pieces back and moves the ball to where it came from.
+	@param leap A leap packed by UndoStack.leap().
+     */
+    private void undoLeap(int leap)
+    {
+	byte dir = UndoStack.leapDirection(leap);
+	int col = ballCol;
+	int row = ballRow;
+	for (int i = UndoStack.leapRun(leap); i > 0; i--)
+	    {
+		col -= DCOL[dir];
+		row -= DROW[dir];
+		set(geometry.square(col, row), PIECE);
+	    }
+	setBall(col - DCOL[dir], row - DROW[dir]);
     }
 
     /** Returns true if the other object is also a DefaultBoard and represents the same position.
@@ -266,26 +650,13 @@ public final class DefaultBoard
         if (!(o instanceof DefaultBoard))
             return false;
         DefaultBoard b = (DefaultBoard)o;
-        if (b.whoseTurn != whoseTurn)
-            return false;
-        for (int i=0; i<COL_COUNT; i++)
-            if (!Arrays.equals(fields[i], b.fields[i]))
-                return false;
-        return true;
+        return (b.whoseTurn == whoseTurn) && (b.geometry == geometry) && Arrays.equals(squares, b.squares);
     }
     
-    /** As nearly all information about the position is in the byte arrays,
-     * returns the hash code of the two-dimensional field array.
+    /** Returns the folded Zobrist key.
      */
-    /* naive implementation. */
     public int hashCode()
-    {
-        int hash = 0;
-        for (int c=0; c<COL_COUNT; c++)
-            for (int r=0; r<ROW_COUNT; r++)
-                hash += c * r * fields[c][r];
-        return whoseTurn ? hash : hash;
-    }
+    { return (int)(zobrist ^ (zobrist >>> 32)); }
 
     /** Returns a string representation of the board, for debugging.
 	Not localized.
@@ -295,8 +666,8 @@ public final class DefaultBoard
 	StringBuffer erg = new StringBuffer("Board=(ball=")
 	    .append(getBall().toString())
 	    .append(";  pieces=");
-	for (int x=0; x<COL_COUNT; x++)
-	    for (int y=0; y<ROW_COUNT; y++)
+	for (int x=0; x<geometry.cols(); x++)
+	    for (int y=0; y<geometry.rows(); y++)
 		if (on(x,y) == PIECE)
 		    erg.append((new Field(x,y)).toString()).append(' ');
 	return erg.append(")").toString();
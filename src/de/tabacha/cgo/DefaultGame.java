@@ -22,6 +22,12 @@ import java.util.Iterator;
 
 
 /** Represents one game of conwaygo: two players and a board.
+    <p>
+    The game keeps all its positions as {@link Snapshot}s, which share
+    unchanged rows with each other. So the whole history costs little memory,
+    and every position of the game can be looked up without replaying the moves.
+    The engines and listeners get the immutable snapshots instead of copies.
+    </p>
     <br />$Id: DefaultGame.java,v 1.16 2004/12/23 21:42:43 mk Exp $
     @author michael@tabacha.de
     @author $Author: mk $
@@ -32,7 +38,14 @@ public class DefaultGame
     implements Constants, BackgroundGame
 {
 
-    private DefaultBoard board;
+    /** The size of the board. */
+    private volatile BoardGeometry geometry;
+    /** The actual position; the last element of history. */
+    private volatile Snapshot position;
+    /** The positions of the game: element i is the position after i moves. Guarded by itself. */
+    private ArrayList history;
+    /** The moves of the game. Guarded by history. */
+    private ArrayList moves;
     private Engine playerUp, playerDown;
 
     private transient Collection gameListeners;
@@ -40,11 +53,19 @@ public class DefaultGame
     private GameRunner gameRunner;
 
 
-    /** Constructor.
+    /** Constructor for a game on the default board.
      */
     public DefaultGame(Engine playerUp, Engine playerDown)
+    { this(playerUp, playerDown, BoardGeometry.DEFAULT); }
+
+    /** Constructor for a game on a board of the specified size.
+     */
+    public DefaultGame(Engine playerUp, Engine playerDown, BoardGeometry geometry)
     {
-	board = new DefaultBoard();
+	this.geometry = geometry;
+	history = new ArrayList();
+	moves = new ArrayList();
+	startHistory();
 	gameListeners = new ArrayList();
 
 	gameRunner = new GameRunner();
@@ -92,9 +113,109 @@ public class DefaultGame
 
     /** Returns the board with the game position.
 	Never returns zero.
+	The board is an immutable Snapshot; it is not changed by further moves.
      */
     public Board getBoard()
-    { return board; }
+    { return position; }
+
+
+    /** Returns the size of the board.
+     */
+    public BoardGeometry getGeometry()
+    { return geometry; }
+
+    /** Changes the size of the board and sets it to the start position.
+	@throws IllegalStateException If the game is running.
+     */
+    public void setGeometry(BoardGeometry geometry)
+	throws IllegalStateException
+    {
+	if (isAlive())
+	    throw new IllegalStateException();
+	this.geometry = geometry;
+	startHistory();
+    }
+
+
+    // ------------- history ----------------------
+
+    /** Returns the number of moves made in this game.
+     */
+    public int getMoveCount()
+    {
+	synchronized (history) {
+	    return moves.size();
+	}
+    }
+
+    /** Returns the position after the specified number of moves.
+	@param moveCount Between 0 (start position) and getMoveCount().
+	@throws IndexOutOfBoundsException If there is no such position.
+     */
+    public Snapshot getPosition(int moveCount)
+    {
+	synchronized (history) {
+	    return (Snapshot)history.get(moveCount);
+	}
+    }
+
+    /** Returns the move with the specified number, starting with 0.
+	@throws IndexOutOfBoundsException If there is no such move.
+     */
+    public Move getMove(int index)
+    {
+	synchronized (history) {
+	    return (Move)moves.get(index);
+	}
+    }
+
+    /** Takes back the last moves of a stopped game.
+	@param count The number of moves to take back.
+	@return The position now.
+	@throws IllegalStateException If the game is running.
+	@throws IndexOutOfBoundsException If count is negative or more than getMoveCount().
+     */
+    public Snapshot takeBack(int count)
+	throws IllegalStateException
+    {
+	if (isAlive())
+	    throw new IllegalStateException();
+	synchronized (history) {
+	    int newCount = moves.size() - count;
+	    if (count < 0 || newCount < 0)
+		throw new IndexOutOfBoundsException("take back " + count + ", moves " + moves.size());
+	    position = (Snapshot)history.get(newCount);
+	    history.subList(newCount + 1, history.size()).clear();
+	    moves.subList(newCount, moves.size()).clear();
+	    return position;
+	}
+    }
+
+    /** Removes all moves and positions; the actual position is the start position.
+     */
+    private void startHistory()
+    {
+	synchronized (history) {
+	    history.clear();
+	    moves.clear();
+	    position = Snapshot.start(geometry);
+	    history.add(position);
+	}
+    }
+
+    /** Makes a move on the actual position and adds it to the history.
+	@exception InvalidMoveException If the move is not correct. The history is not changed.
+     */
+    private void addMove(Move m)
+	throws InvalidMoveException
+    {
+	Snapshot next = position.after(m);
+	synchronized (history) {
+	    history.add(next);
+	    moves.add(m);
+	    position = next;
+	}
+    }
 
 
     public void addGameListener(GameListener listener)
@@ -258,7 +379,7 @@ public class DefaultGame
 			    }
 			}
 
-		    board.reset();
+		    startHistory();
 
 		    randSeed = System.currentTimeMillis();
 		    getPlayer(UP).initGame(randSeed);
@@ -272,13 +393,13 @@ public class DefaultGame
 		    player = getPlayer(UP);
 
 		    try {
-			while (!board.getBall().isInGoal())
+			while (!position.getBall().isInGoal(geometry))
 			    {
-				direction = board.whoseTurn();
+				direction = position.whoseTurn();
 				player = getPlayerToMove();
 				
 				turnBoard = (direction == DOWN && !player.canPlayBothSides());
-				thinkRunner.setBoard(turnBoard ? board.upsideDown() : (Board)board.clone());
+				thinkRunner.setBoard(turnBoard ? BoardView.flipped(position) : position);
 				thinkRunner.setEngine(player);
 
 				synchronized (thinkRunner) {
@@ -286,13 +407,13 @@ public class DefaultGame
 				}
 				wait();
 
-				m = turnBoard ? thinkRunner.getMove().upsideDown() : thinkRunner.getMove();
+				m = turnBoard ? thinkRunner.getMove().upsideDown(geometry) : thinkRunner.getMove();
 				
-				board.move(m);
+				addMove(m);
 				fireHasMoved(direction, m);
 			    }
 			playing = false;
-			if (board.getBall().isInGoalOf(UP))
+			if (position.getBall().isInGoalOf(UP, geometry))
 			    fireGameEnded(UP);
 			else // if (board.getBall().isInGoalOf(DOWN))
 			    fireGameEnded(DOWN);
@@ -308,7 +429,7 @@ public class DefaultGame
 				return;
 			    }
 			thinkRunner.interrupt();
-			fireGameAborted(board.whoseTurn(), null, "msg.game_aborted");
+			fireGameAborted(position.whoseTurn(), null, "msg.game_aborted");
 		    }
 		}
 	}
@@ -69,7 +69,8 @@ public interface Engine
     public void initGame(long randSeed);
 
     /** Routine thinks here.
-	@param position The actual position
+	@param position The actual position.
+	May be immutable or a read-only {@link BoardView}; use clone() to get a board that can be changed.
 	@return The move the routine makes
     */
     public Move think(Board position);
@@ -70,6 +70,13 @@ public final class Field
 
     public Object clone()
     { return new Field(this); }
+
+    /** Returns the field with the specified square index.
+	@param square A square index between 0 and SQUARE_COUNT-1.
+	@return A new field.
+    */
+    public static Field ofSquare(int square)
+    { return new Field(SQUARE_COL[square], SQUARE_ROW[square]); }
     
     /** Returns the field that lies one step from this field
 	in the specified direction.
@@ -102,14 +109,50 @@ public final class Field
     public final Field upsideDown()
     { return new Field(col, ROW_COUNT-1-row); }
 
+    /** Returns the equivalent field on the other half of a board
+	with the specified geometry, mirrored along the central row.
+    */
+    public final Field upsideDown(BoardGeometry geometry)
+    { return new Field(col, geometry.upsideDownRow(row)); }
+
+    /** Returns the equivalent field on the other side of a board
+	with the specified geometry, mirrored along the central column.
+    */
+    public final Field mirrored(BoardGeometry geometry)
+    { return new Field(geometry.mirroredCol(col), row); }
+
     public int hashCode()
     { return col + row; }
 
+    /** Returns the square index of this field, or NO_SQUARE if it is not on the board.
+	@see Constants#SQUARE_COUNT
+     */
+    public final int square()
+    { return square(col, row); }
+
+    /** Returns the square index of this field on a board with the specified geometry,
+	or NO_SQUARE if it is not on that board.
+     */
+    public final int square(BoardGeometry geometry)
+    { return geometry.square(col, row); }
+
+    /** Returns the square index of the field with the specified row and column,
+	or NO_SQUARE if it is not on the board.
+	@see Constants#SQUARE_COUNT
+     */
+    public static int square(int col, int row)
+    { return isOutside(col, row) ? NO_SQUARE : row * COL_COUNT + col; }
+
     /** Returns true if this field is not on the board.
      */
     public final boolean isOutside()
     { return isOutside(col, row); }
 
+    /** Returns true if this field is not on a board with the specified geometry.
+     */
+    public final boolean isOutside(BoardGeometry geometry)
+    { return geometry.isOutside(col, row); }
+
     /** Returns true if the field with the specified row and
 	column is not on the board.
     */
@@ -123,20 +166,35 @@ public final class Field
     /** Returns true if this field is in one of the goals.
      */
     public final boolean isInGoal()
-    { return ( isInGoalOf(UP) || isInGoalOf(DOWN) ); }
+    { return isInGoal(col, row); }
+
+    /** Returns true if this field is in one of the goals
+	of a board with the specified geometry.
+     */
+    public final boolean isInGoal(BoardGeometry geometry)
+    { return geometry.isInGoal(col, row); }
+
+    /** Returns true if the field with the specified row and column
+	is in one of the goals.
+    */
+    public static boolean isInGoal(int col, int row)
+    {
+	return ( (row >= ROW_COUNT-1) || (row < 0) ||
+		 ((row == 0) && (0 <= col) && (col < COL_COUNT)) );
+    }
 
     /** Returns true if this field is in the goal of the specified player.
 	@param player One of the constants UP or DOWN defined in Constants
     */
     public final boolean isInGoalOf(boolean player)
-    {
-	if (player == DOWN)
-	    return ( (row >= ROW_COUNT-1) || 
-		     ((row == ROW_COUNT-1) && (0 <= col) && (col < COL_COUNT)) );
-	// player == UP
-	return ( (row < 0) ||
-	         ((row == 0) && (0 <= col) && (col < COL_COUNT)) );
-    }
+    { return isInGoalOf(player, BoardGeometry.DEFAULT); }
+
+    /** Returns true if this field is in the goal of the specified player
+	on a board with the specified geometry.
+	@param player One of the constants UP or DOWN defined in Constants
+    */
+    public final boolean isInGoalOf(boolean player, BoardGeometry geometry)
+    { return geometry.isInGoalOf(player, col, row); }
 
     public final int col()
     { return col; }
@@ -153,4 +211,37 @@ public final class Field
     public String toString()
     { return "(" + col + "," + row + ")"; }
 
+
+    // ------------- tables for Constants and BoardGeometry ------------------
+
+    static int[] createSquareColTable(int cols, int rows)
+    {
+	int[] table = new int[cols * rows];
+	for (int sq=0; sq < table.length; sq++)
+	    table[sq] = sq % cols;
+	return table;
+    }
+
+    static int[] createSquareRowTable(int cols, int rows)
+    {
+	int[] table = new int[cols * rows];
+	for (int sq=0; sq < table.length; sq++)
+	    table[sq] = sq / cols;
+	return table;
+    }
+
+    static int[] createNeighborTable(int cols, int rows)
+    {
+	int[] table = new int[(cols * rows) << 3];
+	for (int sq=0; sq < cols * rows; sq++)
+	    for (byte dir = FIRST_DIRECTION; dir <= LAST_DIRECTION; dir++)
+		{
+		    int col = sq % cols + DCOL[dir];
+		    int row = sq / cols + DROW[dir];
+		    boolean outside = (0 > col) || (col >= cols) || (0 > row) || (row >= rows);
+		    table[(sq << 3) | dir] = outside ? NO_SQUARE : row * cols + col;
+		}
+	return table;
+    }
+
 }
@@ -26,6 +26,17 @@ public class InvalidMoveException
     extends Exception
 {
     
+    /** Message keys of the statuses declared in Constants, indexed by status. */
+    private static final String[] MESSAGE_KEYS = {
+	null,
+	"error.move.empty",
+	"error.move.put_outside",
+	"error.move.put_not_empty",
+	"error.move.jump_nodir",
+	"error.move.jump_wrongdir",
+	"error.move.jump_outside"
+    };
+
     /** The invalid move. */
     private Move move;
 
@@ -39,9 +50,33 @@ public class InvalidMoveException
         this.move = move;
     }
 
+    /** Constructor for a status returned by Board.tryMove.
+	@param status One of the ILLEGAL_ statuses declared in Constants.
+	@param move The invalid move itself
+    */
+    public InvalidMoveException(int status, Move move)
+    { this(messageKey(status), move); }
+
+    /** Returns the message key of a status returned by Board.tryMove.
+	@return null for LEGAL or an unknown status.
+     */
+    public static String messageKey(int status)
+    { return (status > 0 && status < MESSAGE_KEYS.length) ? MESSAGE_KEYS[status] : null; }
+
     /** Returns the invalid move.
     */
     public Move getMove()
     { return move; }
+
+    /** Returns the status that belongs to the message of this exception.
+	@return One of the ILLEGAL_ statuses declared in Constants, or LEGAL if the message has no status.
+     */
+    public int getStatus()
+    {
+	for (int status=1; status < MESSAGE_KEYS.length; status++)
+	    if (MESSAGE_KEYS[status].equals(getMessage()))
+		return status;
+	return Constants.LEGAL;
+    }
  
 }
@@ -17,116 +17,219 @@
 package de.tabacha.cgo;
 
 
+import java.util.Arrays;
+
+
 /** A move where the ball jumps.
+    <p>
+    A jump is immutable, so the same object may be handed to several threads,
+    listeners and caches without copying. Its leaps are read by index
+    with {@link #size} and {@link #leap}; every reader keeps its own position.
+    Jumps that grow and shrink leap by leap, like in a search or while
+    the user clicks, are built with a {@link Jump.Builder}.
+    </p>
    <br> $Id: Jump.java,v 1.7 2004/07/27 20:50:20 mk Exp $
    @author michael@tabacha.de
    @author $Author: mk $
    @version $Revision: 1.7 $
-   @threadsafe false
+   @threadsafe true Immutable
 */
 public final class Jump
     extends Move
 {
-    private static final int INITIAL_LENGTH = 5;
-    private static final int LENGTH_INCREMENT = 10;
+    /** The names of the directions, as in toString(). */
+    private static final String[] DIRECTION_NAMES = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
 
-    private byte[] leaps;
-    private int size;
-    private transient int index;
+    /** The directions of the leaps; never changed. */
+    private final byte[] leaps;
 
 
-    /** Empty Constructor.
+    /** Constructs a jump without leaps.
+	It is not a valid move.
      */
     public Jump()
-    {
-	leaps = new byte[INITIAL_LENGTH];
-	size = 0;
-    }
+    { leaps = new byte[0]; }
 
     /** Constructor.
 	@param directions The list of the directions of the subsequent jumps.
     */
     public Jump( byte [] directions )
+    { leaps = (byte[])directions.clone(); }
+
+    /** Constructor.
+	@param directions The directions of the subsequent jumps.
+	@param count The number of leaps, taken from the beginning of directions.
+    */
+    public Jump( byte [] directions, int count )
     {
-	leaps = (byte[])directions.clone(); 
-	size = leaps.length;
+	leaps = new byte[count];
+	System.arraycopy(directions, 0, leaps, 0, count);
     }
-    
+
+    /** Returns this jump; it is immutable.
+     */
     public Object clone()
-    {
-	Jump temp = new Jump(leaps);
-	temp.size = size;
-	return temp;
-    }
+    { return this; }
     
     /** Returns true if this move contains zero jumps.
      */
     public boolean isEmpty()
-    { return size == 0; }
+    { return leaps.length == 0; }
 
     /** Returns the number of leaps of this jump.
      */
     public int size()
-    { return size; }
+    { return leaps.length; }
 
-    /** Minimize memory usage.
+    /** Returns the directions of the leaps as a new array.
      */
-    public void trimToSize()
-    {
-	byte[] temp = new byte[size];
-	System.arraycopy(leaps, 0, temp, 0, size);
-	leaps = temp;
-    }
+    public byte[] toArray()
+    { return (byte[])leaps.clone(); }
 
     public Move upsideDown()
     {
-	Jump temp = new Jump();
-	temp.leaps = new byte[size];
-	for (int i=0; i<size; i++)
-	    temp.leaps[i] = UPSIDEDOWN[leaps[i]];
-	temp.size = size;
-	return temp;
+	byte[] temp = new byte[leaps.length];
+	for (int i=0; i<temp.length; i++)
+	    temp[i] = UPSIDEDOWN[leaps[i]];
+	return new Jump(temp);
     }
 
-    public void startIteration()
-    { index = 0; }
-
-    public boolean hasNextLeap()
-    { return index < size; }
-
-    public byte nextLeap()
-    { return leaps[index++]; }
-
+    /** The directions of the leaps don't depend on the size of the board.
+     */
+    public Move upsideDown(BoardGeometry geometry)
+    { return upsideDown(); }
 
-    /** Removes and returns the last jump from this move.
-	@return -1 if stack is empty.
+    /** The directions of the leaps don't depend on the size of the board.
      */
-    public byte pop()
-    { return (size==0) ? -1 : leaps[--size]; }
+    public Move mirrored(BoardGeometry geometry)
+    {
+	byte[] temp = new byte[leaps.length];
+	for (int i=0; i<temp.length; i++)
+	    temp[i] = MIRRORED[leaps[i]];
+	return new Jump(temp);
+    }
 
-    /** Adds a jump to the end of this move.
-	@param direction Where to jump in the end
+    /** Returns one leap of this jump.
+	@param i The number of the leap, starting with 0.
+	@throws IndexOutOfBoundsException If there is no such leap.
     */
-    public void push(byte direction)
+    public byte leap(int i)
     {
-	if (size == leaps.length)
-	    {
-		byte[] temp = new byte[size + LENGTH_INCREMENT];
-		System.arraycopy(leaps, 0, temp, 0, size);
-		leaps = temp;
-	    }
-	leaps[size] = direction;
-	size++;
+	if (i < 0 || i >= leaps.length)
+	    throw new IndexOutOfBoundsException("leap " + i + ", size " + leaps.length);
+	return leaps[i];
     }
+
+    /** Parses the name of a direction, as in toString().
+	@param name The name, in upper or lower case.
+	@return The direction, from FIRST_DIRECTION to LAST_DIRECTION.
+	@throws IllegalArgumentException If there is no direction of that name.
+    */
+    public static byte direction(String name)
+    {
+	for (byte dir = FIRST_DIRECTION; dir <= LAST_DIRECTION; dir++)
+	    if (DIRECTION_NAMES[dir].equalsIgnoreCase(name))
+		return dir;
+	throw new IllegalArgumentException("No direction: " + name);
+    }
+
+    /** Returns true if the other object is also a Jump with the same leaps.
+     */
+    public boolean equals(Object obj)
+    { return (obj instanceof Jump) && Arrays.equals(leaps, ((Jump)obj).leaps); }
+
+    public int hashCode()
+    { return Arrays.hashCode(leaps); }
     
     public String toString()
     {
-	if (size == 0)
+	if (leaps.length == 0)
 	    return "Zero Jumps";
 	StringBuffer a = new StringBuffer("Jumps:");
-	for (int i=0; i<size; i++)
-	    a.append(" ").append(new String[]{"N", "NE", "E", "SE", "S", "SW", "W", "NW"}[leaps[i]]);
+	for (int i=0; i<leaps.length; i++)
+	    a.append(" ").append(DIRECTION_NAMES[leaps[i]]);
 	return a.toString();
     }
-    
+
+
+    /** Builds a jump leap by leap.
+	The builder may be reused: after {@link #toJump} it still holds the leaps,
+	and they can be changed further.
+       @threadsafe false
+    */
+    public static final class Builder
+    {
+	private static final int INITIAL_LENGTH = 5;
+	private static final int LENGTH_INCREMENT = 10;
+
+	private byte[] leaps;
+	private int size;
+
+	/** Constructs a builder without leaps.
+	 */
+	public Builder()
+	{ leaps = new byte[INITIAL_LENGTH]; }
+
+	/** Constructs a builder with the leaps of the specified jump.
+	 */
+	public Builder(Jump jump)
+	{
+	    leaps = new byte[jump.size() + INITIAL_LENGTH];
+	    System.arraycopy(jump.leaps, 0, leaps, 0, jump.size());
+	    size = jump.size();
+	}
+
+	/** Returns true if there are no leaps yet.
+	 */
+	public boolean isEmpty()
+	{ return size == 0; }
+
+	/** Returns the number of leaps so far.
+	 */
+	public int size()
+	{ return size; }
+
+	/** Returns one leap.
+	    @param i The number of the leap, starting with 0.
+	    @throws IndexOutOfBoundsException If there is no such leap.
+	*/
+	public byte leap(int i)
+	{
+	    if (i < 0 || i >= size)
+		throw new IndexOutOfBoundsException("leap " + i + ", size " + size);
+	    return leaps[i];
+	}
+
+	/** Adds a jump to the end of this move.
+	    @param direction Where to jump in the end
+	*/
+	public void push(byte direction)
+	{
+	    if (size == leaps.length)
+		{
+		    byte[] temp = new byte[size + LENGTH_INCREMENT];
+		    System.arraycopy(leaps, 0, temp, 0, size);
+		    leaps = temp;
+		}
+	    leaps[size] = direction;
+	    size++;
+	}
+
+	/** Removes and returns the last jump from this move.
+	    @return -1 if stack is empty.
+	*/
+	public byte pop()
+	{ return (size==0) ? -1 : leaps[--size]; }
+
+	/** Removes all leaps.
+	 */
+	public void clear()
+	{ size = 0; }
+
+	/** Returns an immutable jump with the leaps so far.
+	 */
+	public Jump toJump()
+	{ return new Jump(leaps, size); }
+    }
+
 }
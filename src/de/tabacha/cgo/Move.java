@@ -16,6 +16,7 @@
 */
 package de.tabacha.cgo;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 
 
@@ -35,6 +36,24 @@ public abstract class Move
     /** The move returned is exactly this move mirrored along the central row.
      */
     public abstract Move upsideDown();
+
+    /** The move returned is exactly this move mirrored along the central row
+	of a board with the specified geometry.
+     */
+    public abstract Move upsideDown(BoardGeometry geometry);
+
+    /** The move returned is exactly this move mirrored along the central column
+	of a board with the specified geometry.
+	The rules don't distinguish left and right, so the mirrored move
+	is as good on the mirrored position as this one on the original.
+     */
+    public abstract Move mirrored(BoardGeometry geometry);
+
+    /** Serializes this move in the compact format of BinaryCodec.
+     */
+    protected Object writeReplace()
+	throws ObjectStreamException
+    { return new BinaryCodec.Externalized(this); }
     
     public abstract String toString();
 
@@ -0,0 +1,879 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.util.Arrays;
+
+
+/** Generates the legal moves of a position: all jumps with any number of leaps, and the puts.
+    <p>
+    The generator works on its own copy of the position, set with {@link #setPosition}.
+    The jumps are searched depth first, directions in the order of Constants;
+    a jump is reported after all jumps that continue it, together with the lowest and highest row
+    the ball reaches in them. Then the puts are reported column by column.
+    While a move is reported, the position of the generator is the one after the move,
+    so a {@link Listener} can look at it with on(), ballRow() etc.
+    </p><p>
+    The moves can also be collected into a {@link MoveList}, which is reused for the next position.
+    </p><p>
+    The jump search marks the relevant puts, so generating the jumps first and then the relevant puts
+    of the same position walks the jumps only once. The marked fields are kept in a list, too,
+    so the relevant puts cost time in proportion to their number, not to the size of the board.
+    </p>
+    Filters:
+    <ul>
+      <li>JUMPS: the jumps.</li>
+      <li>PUTS: the puts on all empty fields.</li>
+      <li>RELEVANT_PUTS: only the puts next to a field the ball reaches with a jump,
+	or on a field where a leap lands (or would land if it were on the board).
+	Other puts don't change what the opponent can do with the ball.</li>
+      <li>OTHER_PUTS: the puts that are not relevant.</li>
+      <li>SINGLE_LEAPS: only the jumps with one leap.</li>
+      <li>DISTINCT_JUMPS: every position that can be reached with a jump only once,
+	with one of the shortest jumps to it. On crowded boards many leap orders
+	end in the same position; this mode searches each position only once.
+	The positions are reported in the order their search was finished, the start position excluded.</li>
+    </ul>
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class MoveGenerator
+    implements Constants
+{
+    /** Filter: generate the jumps. */
+    public static final int JUMPS = 1;
+    /** Filter: generate the puts on all empty fields. */
+    public static final int PUTS = 2;
+    /** Filter: generate the puts on the relevant fields only. */
+    public static final int RELEVANT_PUTS = 4 | PUTS;
+    /** Filter: generate the puts on the fields that are not relevant. */
+    public static final int OTHER_PUTS = 32 | PUTS;
+    /** Filter: generate the jumps with one leap only. */
+    public static final int SINGLE_LEAPS = 8 | JUMPS;
+    /** Filter: generate one shortest jump for every position jumps can lead to. */
+    public static final int DISTINCT_JUMPS = 16 | JUMPS;
+    /** Filter: generate all legal moves. */
+    public static final int ALL = JUMPS | PUTS;
+
+    /** The modes of search(). */
+    private static final int ALL_PATHS = 0;
+    private static final int DISTINCT = 1;
+
+    /** Initial capacity of the index of the position table; a power of two. */
+    private static final int INITIAL_TABLE_LENGTH = 256;
+    /** Initial capacity of the entries and leaps of the position table. */
+    private static final int INITIAL_ENTRIES = 64;
+
+
+    /** Receives the moves of {@link MoveGenerator#generate(int, Listener)}.
+       @threadsafe false
+     */
+    public interface Listener
+    {
+	/** Called for every jump. The generator is in the position after the jump;
+	    its leaps are returned by leap() and toJump().
+	    @param minRow The lowest row the ball reaches from here on, with further leaps or not.
+	    @param maxRow The highest row the ball reaches from here on.
+	    @return true to stop the generation.
+	 */
+	public boolean jumpFound(MoveGenerator generator, int minRow, int maxRow);
+
+	/** Called for every put. The generator is in the position after the put.
+	    @param square The square index of the field where the piece is put.
+	    @return true to stop the generation.
+	 */
+	public boolean putFound(MoveGenerator generator, int square);
+    }
+
+
+    private BoardGeometry geometry;
+    /** Contents of the fields, indexed by square. */
+    private byte[] squares;
+    private int ballCol, ballRow, ballSquare;
+
+    /** The leaps of the jump being searched. */
+    private byte[] path;
+    private int pathLength;
+    /** The squares of the pieces removed by the leaps being searched, to put them back. */
+    private int[] removed;
+    private int removedSize;
+    /** Exclusive-or of the Zobrist keys of the removed pieces. */
+    private long removedKey;
+    /** The stack of search(), one level per leap of the jump being searched:
+	the ball field before the leap, the next direction to try, the marks to take the leap back,
+	the rows reached from the field and its entry in the position table. */
+    private int[] levelSquares;
+    private byte[] levelDirs;
+    private int[] levelMarks;
+    private long[] levelKeys;
+    private int[] levelMins, levelMaxs;
+    private int[] levelEntries;
+
+    /** Index of the position table: the number of the entry of a key, open addressing;
+	a slot is used if its stamp is the actual one. */
+    private long[] tableKeys = new long[INITIAL_TABLE_LENGTH];
+    private int[] tableEntries = new int[INITIAL_TABLE_LENGTH];
+    private int[] tableStamps = new int[INITIAL_TABLE_LENGTH];
+    private int stamp;
+    /** The positions reached by DISTINCT_JUMPS, numbered in the order they are found; 0 is the start. */
+    private int entryCount;
+    /** True if the jumps from the position were searched. */
+    private boolean[] entrySearched = new boolean[INITIAL_ENTRIES];
+    /** The rows reached from the position. */
+    private int[] entryMins = new int[INITIAL_ENTRIES];
+    private int[] entryMaxs = new int[INITIAL_ENTRIES];
+    /** Length of the shortest jump to the position, and the position and leap before its end. */
+    private int[] entryLengths = new int[INITIAL_ENTRIES];
+    private int[] entryParents = new int[INITIAL_ENTRIES];
+    private byte[] entryLeaps = new byte[INITIAL_ENTRIES];
+    /** The first leap from the position, or -1. */
+    private int[] entryEdges = new int[INITIAL_ENTRIES];
+    /** The positions in the order their search was finished. */
+    private int[] finished = new int[INITIAL_ENTRIES];
+    private int finishedSize;
+    /** The leaps between the positions, as one linked list per position:
+	the position reached, the direction and the next leap from the same position. */
+    private int[] edgeTargets = new int[INITIAL_ENTRIES];
+    private byte[] edgeLeaps = new byte[INITIAL_ENTRIES];
+    private int[] edgeNexts = new int[INITIAL_ENTRIES];
+    private int edgeCount;
+    /** Fields where a put is relevant, marked during the jump search. */
+    private boolean[] relevant;
+    /** The marked fields, in the order they were marked. */
+    private int[] relevantSquares;
+    private int relevantSize;
+    /** True if relevant has the marks of a complete search of the current position. */
+    private boolean relevantValid;
+
+    private int filter;
+    private Listener listener;
+    /** The rows reached by the last search level; the result of search(). */
+    private int rangeMin, rangeMax;
+    /** The rows reached by all jumps of the last generation. */
+    private int minReachedRow, maxReachedRow;
+
+    /** Finds the rows for rowRange(). */
+    private final Reachability reachability = new Reachability();
+    /** True if reachability analysed the current position, without the put being reported. */
+    private boolean reachabilityValid;
+    /** The square of the put being reported, NO_SQUARE if none. */
+    private int putSquare = NO_SQUARE;
+
+    /** Collects the moves into a MoveList. */
+    private final Listener collector = new Listener()
+	{
+	    public boolean jumpFound(MoveGenerator generator, int minRow, int maxRow)
+	    {
+		target.addJump(path, pathLength);
+		return false;
+	    }
+	    public boolean putFound(MoveGenerator generator, int square)
+	    {
+		target.addPut(square);
+		return false;
+	    }
+	};
+    private MoveList target;
+
+
+    /** Constructs a generator; set a position before generating moves.
+     */
+    public MoveGenerator()
+    {}
+
+
+    // ------------------------ position -------------------------------------
+
+    /** Copies a position. The board itself is not used by the generator.
+     */
+    public void setPosition(Board board)
+    {
+	if (board.geometry() != geometry)
+	    {
+		geometry = board.geometry();
+		int count = geometry.squareCount();
+		squares = new byte[count];
+		path = new byte[count];
+		removed = new int[count];
+		levelSquares = new int[count + 1];
+		levelDirs = new byte[count + 1];
+		levelMarks = new int[count + 1];
+		levelKeys = new long[count + 1];
+		levelMins = new int[count + 1];
+		levelMaxs = new int[count + 1];
+		levelEntries = new int[count + 1];
+		relevant = new boolean[count];
+		relevantSquares = new int[count];
+		relevantSize = 0;
+	    }
+	for (int sq=0; sq < squares.length; sq++)
+	    squares[sq] = board.onSquare(sq);
+	Field ball = board.getBall();
+	ballCol = ball.col();
+	ballRow = ball.row();
+	ballSquare = board.ballSquare();
+	relevantValid = false;
+	reachabilityValid = false;
+    }
+
+    public BoardGeometry geometry()
+    { return geometry; }
+
+    /** Returns the contents of a field; EMPTY outside the board.
+     */
+    public byte on(int col, int row)
+    { return onSquare(geometry.square(col, row)); }
+
+    /** Returns the contents of a field; EMPTY for NO_SQUARE.
+     */
+    public byte onSquare(int square)
+    { return (square == NO_SQUARE) ? EMPTY : squares[square]; }
+
+    public int ballCol()
+    { return ballCol; }
+
+    public int ballRow()
+    { return ballRow; }
+
+    /** Returns the square index of the ball, NO_SQUARE if it is in a goal outside the board.
+     */
+    public int ballSquare()
+    { return ballSquare; }
+
+    /** Returns the field of the ball, as a new object.
+     */
+    public Field getBall()
+    { return new Field(ballCol, ballRow); }
+
+    /** Returns a copy of the fields, like Board.toArray().
+     */
+    public byte[][] toArray()
+    {
+	int cols = geometry.cols();
+	byte[][] fields = new byte[geometry.rows()][cols];
+	for (int r=0; r < fields.length; r++)
+	    System.arraycopy(squares, r * cols, fields[r], 0, cols);
+	return fields;
+    }
+
+    /** Returns true if the move is legal on the fields of the generator,
+	like Board.isLegal(); during a call of the listener, after the reported move.
+	A jump is made on the fields and taken back.
+     */
+    public boolean isLegal(Move move)
+    {
+	if (move instanceof Put)
+	    {
+		Field field = ((Put)move).getField();
+		int square = geometry.square(field.col(), field.row());
+		return square != NO_SQUARE && squares[square] == EMPTY;
+	    }
+	Jump jump = (Jump)move;
+	int count = (jump == null) ? 0 : jump.size();
+	if (count == 0 || ballSquare == NO_SQUARE)
+	    return false;
+	final int fromCol = ballCol, fromRow = ballRow, from = ballSquare, mark = removedSize;
+	boolean legal;
+	int i = 0;
+	do
+	    {
+		byte dir = jump.leap(i);
+		legal = FIRST_DIRECTION <= dir && dir <= LAST_DIRECTION
+		    && onSquare(geometry.neighbor(ballSquare, dir)) == PIECE;
+		if (legal)
+		    leap(dir);
+	    }
+	while ( legal && ++i < count && ballSquare != NO_SQUARE && !geometry.isInGoal(ballCol, ballRow) );
+	legal = legal && (ballSquare != NO_SQUARE || geometry.isInGoal(ballCol, ballRow));
+
+	// take back the jump
+	if (ballSquare != NO_SQUARE)
+	    squares[ballSquare] = EMPTY;
+	while (removedSize > mark)
+	    squares[removed[--removedSize]] = PIECE;
+	squares[from] = BALL;
+	ballCol = fromCol;
+	ballRow = fromRow;
+	ballSquare = from;
+	return legal;
+    }
+
+
+    // ------------------------ the jump being reported ----------------------
+
+    /** Returns the number of leaps of the jump being reported.
+     */
+    public int leapCount()
+    { return pathLength; }
+
+    /** Returns a leap of the jump being reported.
+	@param i The number of the leap, starting with 0.
+     */
+    public byte leap(int i)
+    {
+	if (i >= pathLength)
+	    throw new IndexOutOfBoundsException("leap " + i + ", size " + pathLength);
+	return path[i];
+    }
+
+    /** Returns the jump being reported as a new Jump.
+     */
+    public Jump toJump()
+    { return new Jump(path, pathLength); }
+
+    /** Returns the lowest row the ball reached with the jumps of the last generation,
+	or its row if there were none.
+     */
+    public int minReachedRow()
+    { return minReachedRow; }
+
+    /** Returns the highest row the ball reached with the jumps of the last generation,
+	or its row if there were none.
+     */
+    public int maxReachedRow()
+    { return maxReachedRow; }
+
+
+    // ------------------------ generation -----------------------------------
+
+    /** Reports the moves of the position to a listener.
+	@param filter The moves to generate: JUMPS, PUTS, RELEVANT_PUTS, OTHER_PUTS, SINGLE_LEAPS or a combination.
+	@return true if the listener stopped the generation.
+     */
+    public boolean generate(int filter, Listener listener)
+    {
+	this.filter = filter;
+	this.listener = listener;
+	pathLength = 0;
+	removedSize = 0;
+	removedKey = 0L;
+	boolean relevantOnly = (filter & RELEVANT_PUTS) == RELEVANT_PUTS;
+	boolean othersOnly = (filter & OTHER_PUTS) == OTHER_PUTS;
+
+	// the jumps; needed to tell the relevant puts, too, unless the last generation searched them
+	boolean stopped = false;
+	if ((filter & JUMPS) != 0 || ((relevantOnly || othersOnly) && !relevantValid))
+	    {
+		while (relevantSize > 0)
+		    relevant[relevantSquares[--relevantSize]] = false;
+		minReachedRow = maxReachedRow = ballRow;
+		if (ballSquare != NO_SQUARE)
+		    {
+			if ((filter & DISTINCT_JUMPS) == DISTINCT_JUMPS)
+			    {
+				newTable();
+				search(DISTINCT, findEntry(ballKey()));
+				minReachedRow = rangeMin;
+				maxReachedRow = rangeMax;
+				stopped = reportShortest();
+			    }
+			else
+			    {
+				stopped = search(ALL_PATHS, 0);
+				minReachedRow = rangeMin;
+				maxReachedRow = rangeMax;
+			    }
+		    }
+		relevantValid = !stopped && (filter & SINGLE_LEAPS) != SINGLE_LEAPS;
+	    }
+	if (stopped || (filter & PUTS) == 0)
+	    return stopped;
+
+	// the puts
+	if (relevantOnly)
+	    {
+		sortRelevant();
+		for (int i=0; i < relevantSize; i++)
+		    if (reportPut(relevantSquares[i]))
+			return true;
+		return false;
+	    }
+	int cols = geometry.cols();
+	for (int col=0; col < cols; col++)
+	    for (int sq=col; sq < squares.length; sq += cols)
+		if (!(othersOnly && relevant[sq]) && reportPut(sq))
+		    return true;
+	return false;
+    }
+
+    /** Reports a put if the field is empty.
+	@return true if the listener stopped the generation.
+     */
+    private boolean reportPut(int square)
+    {
+	if (squares[square] != EMPTY)
+	    return false;
+	squares[square] = PIECE;
+	putSquare = square;
+	boolean stopped = listener.putFound(this, square);
+	putSquare = NO_SQUARE;
+	squares[square] = EMPTY;
+	return stopped;
+    }
+
+    /** Sorts the marked fields column by column, like the other puts.
+     */
+    private void sortRelevant()
+    {
+	int cols = geometry.cols(), rows = geometry.rows();
+	for (int i=0; i < relevantSize; i++)
+	    {
+		int sq = relevantSquares[i];
+		relevantSquares[i] = (sq % cols) * rows + sq / cols;
+	    }
+	Arrays.sort(relevantSquares, 0, relevantSize);
+	for (int i=0; i < relevantSize; i++)
+	    {
+		int key = relevantSquares[i];
+		relevantSquares[i] = (key % rows) * cols + key / rows;
+	    }
+    }
+
+    /** Marks a field where a put is relevant.
+     */
+    private void markRelevant(int square)
+    {
+	if (!relevant[square])
+	    {
+		relevant[square] = true;
+		relevantSquares[relevantSize++] = square;
+	    }
+    }
+
+    /** Collects the moves of the position.
+	@param filter The moves to generate: JUMPS, PUTS, RELEVANT_PUTS, OTHER_PUTS, SINGLE_LEAPS or a combination.
+	@param moves Gets the moves; its old contents are removed.
+     */
+    public void generate(int filter, MoveList moves)
+    {
+	moves.clear();
+	target = moves;
+	try {
+	    generate(filter, collector);
+	} finally {
+	    target = null;
+	}
+    }
+
+    /** Searches the jumps from the ball field, which must be on the board.
+	Leaves the rows reached in rangeMin and rangeMax.
+	<p>
+	ALL_PATHS reports every jump. DISTINCT reports nothing; it searches the jumps from a position
+	only the first time it is reached, and records the positions with their rows
+	and the leaps between them for reportShortest().
+	Every leap removes a piece, so a position can't be reached again from itself,
+	and its search is finished when it is reached the next time.
+	</p><p>
+	The search is one loop over an explicit stack, one level per leap of the jump being searched;
+	a jump can't have more leaps than there are pieces, so the stack has a level for each field.
+	Jumps are reported after the jumps that continue them, as by a recursive search.
+	</p>
+	@param mode ALL_PATHS or DISTINCT.
+	@param entry DISTINCT: the entry of the current position in the position table.
+	@return true if the listener stopped the generation; the position is restored anyway.
+     */
+    private boolean search(final int mode, final int entry)
+    {
+	final boolean report = (filter & JUMPS) != 0 && mode == ALL_PATHS;
+	final boolean single = (filter & SINGLE_LEAPS) == SINGLE_LEAPS;
+	final int bottom = pathLength;
+	int level = bottom;
+	enterLevel(level, entry);
+	boolean stopped = false;
+
+	for (;;)
+	    {
+		int subMin, subMax;
+		byte dir = levelDirs[level];
+		if (dir > LAST_DIRECTION || stopped)
+		    {
+			// all leaps from the position are searched
+			subMin = levelMins[level];
+			subMax = levelMaxs[level];
+			if (level == bottom)
+			    break;
+			if (mode == DISTINCT)
+			    {
+				int next = levelEntries[level];
+				entryMins[next] = subMin;
+				entryMaxs[next] = subMax;
+				finished[finishedSize++] = next;
+			    }
+			level--;
+		    }
+		else
+		    {
+			levelDirs[level]++;
+			final int from = ballSquare;
+			int sq = geometry.neighbor(from, dir);
+			if (sq == NO_SQUARE || squares[sq] != PIECE)
+			    {
+				if (sq != NO_SQUARE && squares[sq] == EMPTY)
+				    markRelevant(sq);
+				continue;
+			    }
+
+			// remove the pieces
+			squares[from] = EMPTY;
+			levelMarks[level] = removedSize;
+			levelKeys[level] = removedKey;
+			int col = ballCol, row = ballRow;
+			do
+			    {
+				squares[sq] = EMPTY;
+				removed[removedSize++] = sq;
+				removedKey ^= Zobrist.piece(sq);
+				col += DCOL[dir];
+				row += DROW[dir];
+				sq = geometry.neighbor(sq, dir);
+			    }
+			while (sq != NO_SQUARE && squares[sq] == PIECE);
+			col += DCOL[dir];
+			row += DROW[dir];
+			if (sq != NO_SQUARE)
+			    markRelevant(sq);
+
+			if (sq == NO_SQUARE && !geometry.isInGoal(col, row))
+			    {
+				takeBackPieces(level);
+				continue;
+			    }
+
+			// move the ball
+			path[pathLength++] = dir;
+			if (sq != NO_SQUARE)
+			    squares[sq] = BALL;
+			ballCol = col;
+			ballRow = row;
+			ballSquare = sq;
+
+			boolean expand = sq != NO_SQUARE && !geometry.isInGoal(col, row) && !single;
+			subMin = subMax = row;
+			if (mode == ALL_PATHS)
+			    {
+				if (expand)
+				    {
+					enterLevel(++level, 0);
+					continue;
+				    }
+			    }
+			else
+			    {
+				int next = findEntry(removedKey ^ ballKey());
+				addEdge(levelEntries[level], next, dir);
+				if (!entrySearched[next])
+				    {
+					entrySearched[next] = true;
+					if (expand)
+					    {
+						enterLevel(++level, next);
+						continue;
+					    }
+					entryMins[next] = subMin;
+					entryMaxs[next] = subMax;
+					finished[finishedSize++] = next;
+				    }
+				subMin = entryMins[next];
+				subMax = entryMaxs[next];
+			    }
+		    }
+
+		// the leap of the level and the jumps after it are searched
+		if (!stopped && report)
+		    stopped = listener.jumpFound(this, subMin, subMax);
+		if (subMin < levelMins[level]) levelMins[level] = subMin;
+		if (subMax > levelMaxs[level]) levelMaxs[level] = subMax;
+
+		// take back the leap
+		if (ballSquare != NO_SQUARE)
+		    squares[ballSquare] = EMPTY;
+		ballSquare = levelSquares[level];
+		ballCol = geometry.col(ballSquare);
+		ballRow = geometry.row(ballSquare);
+		pathLength--;
+		takeBackPieces(level);
+	    }
+	rangeMin = levelMins[bottom];
+	rangeMax = levelMaxs[bottom];
+	return stopped;
+    }
+
+    /** Starts a level of the search at the ball field.
+     */
+    private void enterLevel(int level, int entry)
+    {
+	levelSquares[level] = ballSquare;
+	levelDirs[level] = FIRST_DIRECTION;
+	levelMins[level] = levelMaxs[level] = ballRow;
+	levelEntries[level] = entry;
+    }
+
+    /** Puts back the pieces removed by the leap of a level, and the ball on its field.
+     */
+    private void takeBackPieces(int level)
+    {
+	while (removedSize > levelMarks[level])
+	    squares[removed[--removedSize]] = PIECE;
+	removedKey = levelKeys[level];
+	squares[levelSquares[level]] = BALL;
+    }
+
+    /** Returns a key for the ball field; for fields outside the board, too.
+     */
+    private long ballKey()
+    {
+	if (ballSquare != NO_SQUARE)
+	    return Zobrist.ball(ballSquare);
+	return (((long)(ballCol + 64) << 8) | (ballRow + 64)) * 0x9e3779b97f4a7c15L;
+    }
+
+
+    // ------------------------ position table -------------------------------
+
+    /** Reports the positions found by search(DISTINCT), each with one of its shortest jumps.
+	<p>
+	The leaps go from fewer removed pieces to more, so in the reverse order of finishing
+	every position comes after all positions that lead to it,
+	and one walk along the leaps in that order finds the shortest jumps.
+	Every jump is made again on the fields for the listener, and taken back.
+	</p>
+	@return true if the listener stopped the generation; the position is restored anyway.
+     */
+    private boolean reportShortest()
+    {
+	for (int i=1; i < entryCount; i++)
+	    entryLengths[i] = Integer.MAX_VALUE;
+	entryLengths[0] = 0;
+	for (int i=finishedSize; i >= 0; i--)
+	    {
+		int entry = (i == finishedSize) ? 0 : finished[i];
+		int length = entryLengths[entry] + 1;
+		for (int e=entryEdges[entry]; e != -1; e = edgeNexts[e])
+		    {
+			int next = edgeTargets[e];
+			if (length < entryLengths[next])
+			    {
+				entryLengths[next] = length;
+				entryParents[next] = entry;
+				entryLeaps[next] = edgeLeaps[e];
+			    }
+		    }
+	    }
+
+	final int fromCol = ballCol, fromRow = ballRow, from = ballSquare;
+	for (int i=0; i < finishedSize; i++)
+	    {
+		int entry = finished[i];
+		pathLength = entryLengths[entry];
+		int j = pathLength;
+		for (int e=entry; e != 0; e = entryParents[e])
+		    path[--j] = entryLeaps[e];
+		for (j=0; j < pathLength; j++)
+		    leap(path[j]);
+		boolean stopped = listener.jumpFound(this, entryMins[entry], entryMaxs[entry]);
+
+		// take back the jump
+		if (ballSquare != NO_SQUARE)
+		    squares[ballSquare] = EMPTY;
+		while (removedSize > 0)
+		    squares[removed[--removedSize]] = PIECE;
+		squares[from] = BALL;
+		ballCol = fromCol;
+		ballRow = fromRow;
+		ballSquare = from;
+		pathLength = 0;
+		if (stopped)
+		    return true;
+	    }
+	return false;
+    }
+
+    /** Makes a leap that is known to be legal; records the removed pieces.
+     */
+    private void leap(byte dir)
+    {
+	squares[ballSquare] = EMPTY;
+	int sq = geometry.neighbor(ballSquare, dir);
+	do
+	    {
+		squares[sq] = EMPTY;
+		removed[removedSize++] = sq;
+		ballCol += DCOL[dir];
+		ballRow += DROW[dir];
+		sq = geometry.neighbor(sq, dir);
+	    }
+	while (sq != NO_SQUARE && squares[sq] == PIECE);
+	ballCol += DCOL[dir];
+	ballRow += DROW[dir];
+	if (sq != NO_SQUARE)
+	    squares[sq] = BALL;
+	ballSquare = sq;
+    }
+
+    /** Empties the position table.
+     */
+    private void newTable()
+    {
+	if (++stamp == 0)
+	    {
+		Arrays.fill(tableStamps, 0);
+		stamp = 1;
+	    }
+	entryCount = 0;
+	finishedSize = 0;
+	edgeCount = 0;
+    }
+
+    /** Returns the number of the entry of a position, and creates it if it doesn't exist.
+     */
+    private int findEntry(long key)
+    {
+	int mask = tableKeys.length - 1;
+	int i = (int)(key ^ (key >>> 32)) & mask;
+	while (tableStamps[i] == stamp)
+	    {
+		if (tableKeys[i] == key)
+		    return tableEntries[i];
+		i = (i + 1) & mask;
+	    }
+	if ((entryCount + 1) * 4 > tableKeys.length * 3)
+	    {
+		growTable();
+		return findEntry(key);
+	    }
+	if (entryCount == entryMins.length)
+	    growEntries();
+	int entry = entryCount++;
+	tableStamps[i] = stamp;
+	tableKeys[i] = key;
+	tableEntries[i] = entry;
+	entrySearched[entry] = false;
+	entryEdges[entry] = -1;
+	return entry;
+    }
+
+    /** Records a leap from one position to another.
+     */
+    private void addEdge(int entry, int next, byte dir)
+    {
+	if (edgeCount == edgeTargets.length)
+	    {
+		edgeTargets = grow(edgeTargets);
+		edgeLeaps = grow(edgeLeaps);
+		edgeNexts = grow(edgeNexts);
+	    }
+	edgeTargets[edgeCount] = next;
+	edgeLeaps[edgeCount] = dir;
+	edgeNexts[edgeCount] = entryEdges[entry];
+	entryEdges[entry] = edgeCount++;
+    }
+
+    /** Doubles the capacity of the index of the position table; the entries keep their numbers.
+     */
+    private void growTable()
+    {
+	long[] keys = tableKeys;
+	int[] entries = tableEntries;
+	int[] stamps = tableStamps;
+	int length = keys.length * 2;
+	tableKeys = new long[length];
+	tableEntries = new int[length];
+	tableStamps = new int[length];
+	int mask = length - 1;
+	for (int j=0; j < keys.length; j++)
+	    if (stamps[j] == stamp)
+		{
+		    int i = (int)(keys[j] ^ (keys[j] >>> 32)) & mask;
+		    while (tableStamps[i] == stamp)
+			i = (i + 1) & mask;
+		    tableStamps[i] = stamp;
+		    tableKeys[i] = keys[j];
+		    tableEntries[i] = entries[j];
+		}
+    }
+
+    /** Doubles the capacity of the entries of the position table.
+     */
+    private void growEntries()
+    {
+	boolean[] searched = new boolean[entrySearched.length * 2];
+	System.arraycopy(entrySearched, 0, searched, 0, entrySearched.length);
+	entrySearched = searched;
+	entryMins = grow(entryMins);
+	entryMaxs = grow(entryMaxs);
+	entryLengths = grow(entryLengths);
+	entryParents = grow(entryParents);
+	entryLeaps = grow(entryLeaps);
+	entryEdges = grow(entryEdges);
+	finished = grow(finished);
+    }
+
+    private static int[] grow(int[] a)
+    {
+	int[] temp = new int[a.length * 2];
+	System.arraycopy(a, 0, temp, 0, a.length);
+	return temp;
+    }
+
+    private static byte[] grow(byte[] a)
+    {
+	byte[] temp = new byte[a.length * 2];
+	System.arraycopy(a, 0, temp, 0, a.length);
+	return temp;
+    }
+
+
+    // ------------------------ evaluation helpers ---------------------------
+
+    /** Returns the lowest and highest rows the ball can reach with a jump from the current position,
+	or its row if it can't jump. A leap that lands on or beyond the first or last row
+	counts as reaching that row and is not continued.
+	Every position after a leap is searched only once; see {@link Reachability}.
+	While a put is reported, the position before the put is analysed once for all puts,
+	and only the part of the search the new piece changes is done again for each.
+	@param minMax Gets the lowest row at index 0 and the highest at index 1.
+	@return minMax
+     */
+    public int[] rowRange(int[] minMax)
+    {
+	if (putSquare == NO_SQUARE)
+	    {
+		reachability.setIncremental(false);
+		reachability.analyse(geometry, squares, ballCol, ballRow);
+		reachabilityValid = false;
+	    }
+	else
+	    {
+		if (!reachabilityValid)
+		    {
+			squares[putSquare] = EMPTY;
+			reachability.setIncremental(true);
+			reachability.analyse(geometry, squares, ballCol, ballRow);
+			squares[putSquare] = PIECE;
+			reachabilityValid = true;
+		    }
+		reachability.addPiece(putSquare);
+	    }
+	minMax[0] = reachability.minRow();
+	minMax[1] = reachability.maxRow();
+	reachability.rollback();
+	return minMax;
+    }
+
+}
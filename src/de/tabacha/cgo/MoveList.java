@@ -0,0 +1,292 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+
+/** A reusable list of moves packed into longs.
+    <p>
+    Put and Jump objects cost two or more objects per move;
+    engines that look at thousands of moves can collect them here instead
+    and convert only the chosen one with {@link #toMove}.
+    The arrays only grow, so after clear() the list is filled again without creating garbage.
+    </p><p>
+    Encoding of a move in a long:
+    </p>
+    <ul>
+      <li>put: bit 63 is set, bits 5 and more contain the square index.</li>
+      <li>jump: bits 0-4 contain the number of leaps.</li>
+      <li>jump with up to MAX_PACKED_LEAPS leaps: three bits per leap, starting with bit 5.</li>
+      <li>longer jump: the number of leaps is OVERFLOW, bits 5-36 are the offset of the leaps
+	in the overflow array of this list, bits 37-62 the number of leaps.
+	Such a move can only be read with the methods of the list that contains it.</li>
+    </ul>
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class MoveList
+    implements Constants
+{
+    /** Maximum number of leaps stored in the move itself. */
+    public static final int MAX_PACKED_LEAPS = 19;
+
+    /** A packed jump without leaps; start for {@link #pushLeap}. */
+    public static final long EMPTY_JUMP = 0L;
+
+    private static final int COUNT_BITS = 5;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int OVERFLOW = (int)COUNT_MASK;
+    private static final int OFFSET_BITS = 32;
+    private static final long PUT_FLAG = 1L << 63;
+
+    private static final int INITIAL_LENGTH = 64;
+
+    private long[] moves;
+    private int size;
+
+    /** Leaps of the jumps that are longer than MAX_PACKED_LEAPS. */
+    private byte[] overflow;
+    private int overflowSize;
+
+
+    // ------------------------ static methods -------------------------------
+
+    /** Returns a packed put.
+	@param square The square index of the field where the piece is put.
+     */
+    public static long put(int square)
+    { return PUT_FLAG | ((long)square << COUNT_BITS); }
+
+    /** Returns true if the packed move is a put.
+     */
+    public static boolean isPut(long move)
+    { return move < 0; }
+
+    /** Returns the square index of a packed put.
+     */
+    public static int square(long move)
+    { return (int)((move & ~PUT_FLAG) >>> COUNT_BITS); }
+
+    /** Returns the packed jump with one more leap at the end.
+	@param jump A packed jump with less than MAX_PACKED_LEAPS leaps.
+	@param dir The direction of the new leap.
+     */
+    public static long pushLeap(long jump, byte dir)
+    {
+	int count = (int)(jump & COUNT_MASK);
+	return (jump + 1) | ((long)dir << (COUNT_BITS + 3 * count));
+    }
+
+    /** Returns the packed jump without its last leap.
+	@param jump A packed jump with at least one leap, not an overflow jump.
+     */
+    public static long popLeap(long jump)
+    {
+	int count = (int)(jump & COUNT_MASK) - 1;
+	return (jump - 1) & ~(7L << (COUNT_BITS + 3 * count));
+    }
+
+    /** Returns the number of leaps of a packed jump that is not longer than MAX_PACKED_LEAPS.
+     */
+    public static int leapCount(long jump)
+    { return (int)(jump & COUNT_MASK); }
+
+    /** Returns one leap of a packed jump that is not longer than MAX_PACKED_LEAPS.
+	@param i The number of the leap, starting with 0.
+     */
+    public static byte leap(long jump, int i)
+    { return (byte)((jump >>> (COUNT_BITS + 3 * i)) & 7); }
+
+
+    // ------------------------ constructor ----------------------------------
+
+    /** Constructs an empty list.
+     */
+    public MoveList()
+    {
+	moves = new long[INITIAL_LENGTH];
+	overflow = new byte[0];
+    }
+
+
+    // ------------------------ list methods ---------------------------------
+
+    /** Removes all moves. The memory is kept for reuse.
+     */
+    public void clear()
+    {
+	size = 0;
+	overflowSize = 0;
+    }
+
+    public int size()
+    { return size; }
+
+    public boolean isEmpty()
+    { return size == 0; }
+
+    /** Returns the packed move with the specified index.
+     */
+    public long get(int index)
+    {
+	if (index >= size)
+	    throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+	return moves[index];
+    }
+
+    /** Removes the moves from the specified index on.
+     */
+    public void truncate(int newSize)
+    {
+	if (newSize < size)
+	    size = newSize;
+    }
+
+    /** Adds a packed move.
+	Overflow jumps must come from this list.
+     */
+    public void add(long move)
+    {
+	if (size == moves.length)
+	    {
+		long[] temp = new long[size * 2];
+		System.arraycopy(moves, 0, temp, 0, size);
+		moves = temp;
+	    }
+	moves[size++] = move;
+    }
+
+    /** Adds a put.
+	@param square The square index of the field where the piece is put.
+     */
+    public void addPut(int square)
+    { add(put(square)); }
+
+    /** Adds a jump given as an array of directions.
+	Jumps longer than MAX_PACKED_LEAPS go to the overflow array.
+	@param leaps The directions; only the first length elements are used.
+     */
+    public void addJump(byte[] leaps, int length)
+    {
+	if (length <= MAX_PACKED_LEAPS)
+	    {
+		long jump = EMPTY_JUMP;
+		for (int i=0; i < length; i++)
+		    jump = pushLeap(jump, leaps[i]);
+		add(jump);
+		return;
+	    }
+	if (overflowSize + length > overflow.length)
+	    {
+		byte[] temp = new byte[Math.max(overflow.length * 2, overflowSize + length)];
+		System.arraycopy(overflow, 0, temp, 0, overflowSize);
+		overflow = temp;
+	    }
+	System.arraycopy(leaps, 0, overflow, overflowSize, length);
+	add(OVERFLOW | ((long)overflowSize << COUNT_BITS) | ((long)length << (COUNT_BITS + OFFSET_BITS)));
+	overflowSize += length;
+    }
+
+    /** Returns true if the move with the specified index is a put.
+     */
+    public boolean isPutAt(int index)
+    { return isPut(get(index)); }
+
+    /** Returns the number of leaps of the jump with the specified index.
+     */
+    public int leapCountAt(int index)
+    {
+	long move = get(index);
+	int count = leapCount(move);
+	return (count == OVERFLOW) ? (int)(move >>> (COUNT_BITS + OFFSET_BITS)) : count;
+    }
+
+    /** Returns one leap of the jump with the specified index.
+	@param i The number of the leap, starting with 0.
+     */
+    public byte leapAt(int index, int i)
+    {
+	long move = get(index);
+	if (leapCount(move) == OVERFLOW)
+	    return overflow[(int)((move >>> COUNT_BITS) & 0xffffffffL) + i];
+	return leap(move, i);
+    }
+
+
+    // ------------------------ conversion -----------------------------------
+
+    /** Adds a Put or a Jump.
+	@param geometry The board the squares of the puts are numbered on.
+	@throws IllegalArgumentException If the move is a put outside the board or a jump without leaps.
+     */
+    public void add(Move move, BoardGeometry geometry)
+	throws IllegalArgumentException
+    {
+	if (move instanceof Put)
+	    {
+		Field field = ((Put)move).getField();
+		int square = geometry.square(field.col(), field.row());
+		if (square == NO_SQUARE)
+		    throw new IllegalArgumentException("Put outside the board: " + move);
+		addPut(square);
+	    }
+	else
+	    {
+		Jump jump = (Jump)move;
+		if (jump.isEmpty())
+		    throw new IllegalArgumentException("Jump without leaps");
+		byte[] leaps = new byte[jump.size()];
+		for (int i=0; i < leaps.length; i++)
+		    leaps[i] = jump.leap(i);
+		addJump(leaps, leaps.length);
+	    }
+    }
+
+    /** Returns the move with the specified index as a Put or a Jump.
+	@param geometry The board the squares of the puts are numbered on.
+     */
+    public Move toMove(int index, BoardGeometry geometry)
+    {
+	if (isPutAt(index))
+	    {
+		int square = square(get(index));
+		return new Put(geometry.col(square), geometry.row(square));
+	    }
+	byte[] leaps = new byte[leapCountAt(index)];
+	for (int i=0; i < leaps.length; i++)
+	    leaps[i] = leapAt(index, i);
+	return new Jump(leaps);
+    }
+
+    /** Shows the puts by their squares, as the list doesn't know the board.
+     */
+    public String toString()
+    {
+	StringBuffer buf = new StringBuffer("MoveList(");
+	for (int i=0; i < size; i++)
+	    {
+		buf.append(i == 0 ? "" : ", ");
+		if (isPutAt(i))
+		    buf.append("Put(square ").append(square(get(i))).append(')');
+		else
+		    buf.append(toMove(i, BoardGeometry.DEFAULT));
+	    }
+	return buf.append(")").toString();
+    }
+
+}
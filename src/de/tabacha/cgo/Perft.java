@@ -0,0 +1,475 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+
+/** Counts the move sequences of a given length from a position, to test and measure the move generation.
+    <p>
+    The moves of every position are generated with {@link MoveGenerator} and made with
+    DefaultBoard.makeMove(), which checks them against the rules; a generated move that is not legal
+    stops the count with an IllegalStateException. A jump is one move, however many leaps it has;
+    jumps with different leaps are different moves, even if they end in the same position.
+    A position with the ball in a goal ends the game, so it has no moves.
+    Like perft in chess, the count of depth n is the number of sequences of n moves.
+    </p><p>
+    divide() counts below every move of the position separately,
+    optionally with several threads that take the moves one after the other.
+    With a hash table, the count of a position is kept with its Zobrist key and the depth,
+    so a position reached again with other moves is counted only once.
+    The player to move is not part of the key, as both players have the same moves.
+    Every thread has its own table.
+    </p>
+    From the command line:
+    <pre>
+    java de.tabacha.cgo.Perft [-size COLSxROWS | -board FILE] [-threads N] [-hash BITS] DEPTH [MOVE ...]
+    </pre>
+    counts the start position, or a board written with BinaryCodec.writeBoard(), after the given moves.
+    A board file has its own size, so -size and -board can't be given together.
+    A put is written as COL,ROW, a jump as its directions separated by '-', e.g. S-SW.
+    0 threads means one per processor. It prints the count of every move, the total,
+    and the number of moves made per second.
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class Perft
+    implements Constants
+{
+    /** Largest number of bits of the index of the hash table. */
+    public static final int MAX_HASH_BITS = 28;
+
+    private static final String USAGE =
+	"usage: java de.tabacha.cgo.Perft [-size COLSxROWS | -board FILE] [-threads N] [-hash BITS] DEPTH [MOVE ...]\n"
+	+ "  MOVE: a put as COL,ROW or a jump as its directions, e.g. S-SW";
+
+    private final DefaultBoard board;
+    private final BoardGeometry geometry;
+    /** A generator and a list for the moves of every remaining depth; index 0 is not used. */
+    private MoveGenerator[] generators = new MoveGenerator[1];
+    private MoveList[] lists = new MoveList[1];
+
+    /** The hash table: key, depth and count of a position, null without a table. */
+    private long[] hashKeys;
+    private int[] hashDepths;
+    private long[] hashCounts;
+    private int hashBits;
+
+    /** The number of moves made. */
+    private long nodes;
+    /** The next move of divide() that no thread has taken. */
+    private int nextMove;
+
+
+    /** Constructs a counter for a position, without a hash table.
+	The position is copied.
+     */
+    public Perft(Board position)
+    {
+	board = new DefaultBoard(position.toArray(), position.getBall(), position.whoseTurn());
+	geometry = board.geometry();
+    }
+
+    /** Sets the size of the hash table.
+	@param bits The table has 2^bits entries; 0 for no table. Default is 0.
+	@throws IllegalArgumentException If bits is negative or larger than MAX_HASH_BITS.
+     */
+    public void setHashBits(int bits)
+    {
+	if (bits < 0 || bits > MAX_HASH_BITS)
+	    throw new IllegalArgumentException("hash bits " + bits);
+	hashBits = bits;
+	if (bits == 0)
+	    {
+		hashKeys = null;
+		hashDepths = null;
+		hashCounts = null;
+	    }
+	else
+	    {
+		hashKeys = new long[1 << bits];
+		hashDepths = new int[1 << bits];
+		hashCounts = new long[1 << bits];
+	    }
+    }
+
+    /** Returns the number of moves made by all counts so far, by all threads.
+     */
+    public long nodes()
+    { return nodes; }
+
+    /** Returns the moves of the position, as Put and Jump objects, in the order of the generator.
+     */
+    public List moves()
+    {
+	MoveGenerator generator = new MoveGenerator();
+	MoveList list = new MoveList();
+	generator.setPosition(board);
+	List moves = new ArrayList();
+	if (geometry.isInGoal(generator.ballCol(), generator.ballRow()))
+	    return moves;
+	generator.generate(MoveGenerator.ALL, list);
+	for (int i=0; i < list.size(); i++)
+	    moves.add(list.toMove(i, geometry));
+	return moves;
+    }
+
+    /** Returns the number of sequences of depth moves from the position.
+	@throws IllegalArgumentException If depth is negative.
+	@throws IllegalStateException If the generator finds an illegal move.
+     */
+    public long count(int depth)
+    {
+	if (depth < 0)
+	    throw new IllegalArgumentException("depth " + depth);
+	prepare(depth);
+	return perft(depth);
+    }
+
+    /** Returns the number of sequences of depth moves from the position that start with a move.
+	@throws IllegalArgumentException If depth is less than 1.
+	@throws IllegalStateException If the move is illegal, or the generator finds an illegal move.
+     */
+    public long count(Move move, int depth)
+    {
+	if (depth < 1)
+	    throw new IllegalArgumentException("depth " + depth);
+	prepare(depth - 1);
+	make(move);
+	try {
+	    return perft(depth - 1);
+	} finally {
+	    board.unmakeMove();
+	}
+    }
+
+    /** Counts the sequences of depth moves that start with each move of the position.
+	@param threads The number of threads that share the moves; 1 to count in the calling thread.
+	Each other thread has its own copy of the position and its own hash table of the same size.
+	@return The counts, in the order of moves().
+	@throws IllegalArgumentException If depth or threads is less than 1.
+	@throws IllegalStateException If the generator finds an illegal move.
+	@throws InterruptedException If the calling thread is interrupted while waiting for the others.
+	Any other exception or error of a thread is thrown again after all threads have ended.
+     */
+    public long[] divide(int depth, int threads)
+	throws InterruptedException
+    {
+	if (depth < 1)
+	    throw new IllegalArgumentException("depth " + depth);
+	if (threads < 1)
+	    throw new IllegalArgumentException("threads " + threads);
+	List moves = moves();
+	long[] counts = new long[moves.size()];
+	if (threads == 1)
+	    {
+		for (int i=0; i < counts.length; i++)
+		    counts[i] = count((Move)moves.get(i), depth);
+		return counts;
+	    }
+
+	nextMove = 0;
+	Worker[] workers = new Worker[threads];
+	for (int t=0; t < workers.length; t++)
+	    {
+		workers[t] = new Worker(moves, counts, depth);
+		workers[t].start();
+	    }
+	try {
+	    for (int t=0; t < workers.length; t++)
+		workers[t].join();
+	} catch (InterruptedException exc) {
+	    for (int t=0; t < workers.length; t++)
+		workers[t].interrupt();
+	    throw exc;
+	}
+	for (int t=0; t < workers.length; t++)
+	    {
+		nodes += workers[t].perft.nodes;
+		Throwable error = workers[t].error;
+		if (error instanceof RuntimeException)
+		    throw (RuntimeException)error;
+		if (error instanceof Error)
+		    throw (Error)error;
+		if (error != null)
+		    throw new RuntimeException(error);
+	    }
+	return counts;
+    }
+
+    /** Returns the index of the next move of divide() for a thread, or -1 if there is none left.
+     */
+    private synchronized int takeMove(int size)
+    { return (nextMove < size) ? nextMove++ : -1; }
+
+
+    // ------------------------ counting -------------------------------------
+
+    /** Creates the generators and lists for a depth.
+     */
+    private void prepare(int depth)
+    {
+	if (depth < generators.length)
+	    return;
+	MoveGenerator[] g = new MoveGenerator[depth + 1];
+	MoveList[] l = new MoveList[depth + 1];
+	System.arraycopy(generators, 0, g, 0, generators.length);
+	System.arraycopy(lists, 0, l, 0, lists.length);
+	for (int d=generators.length; d <= depth; d++)
+	    {
+		g[d] = new MoveGenerator();
+		l[d] = new MoveList();
+	    }
+	generators = g;
+	lists = l;
+    }
+
+    /** Returns the number of sequences of depth moves from the position of the board.
+     */
+    private long perft(int depth)
+    {
+	if (depth == 0)
+	    return 1;
+	long key = 0L;
+	int slot = 0;
+	if (hashKeys != null)
+	    {
+		key = board.zobrist() ^ Zobrist.turn(board.whoseTurn());
+		long mixed = key ^ (depth * 0x9E3779B97F4A7C15L);
+		slot = (int)(mixed ^ (mixed >>> 32)) & ((1 << hashBits) - 1);
+		if (hashKeys[slot] == key && hashDepths[slot] == depth)
+		    return hashCounts[slot];
+	    }
+
+	MoveGenerator generator = generators[depth];
+	MoveList list = lists[depth];
+	generator.setPosition(board);
+	if (geometry.isInGoal(generator.ballCol(), generator.ballRow()))
+	    return 0;
+	generator.generate(MoveGenerator.ALL, list);
+	long count = 0;
+	for (int i=0; i < list.size(); i++)
+	    {
+		make(list.toMove(i, geometry));
+		count += perft(depth - 1);
+		board.unmakeMove();
+	    }
+
+	if (hashKeys != null)
+	    {
+		hashKeys[slot] = key;
+		hashDepths[slot] = depth;
+		hashCounts[slot] = count;
+	    }
+	return count;
+    }
+
+    /** Makes a move on the board.
+	@throws IllegalStateException If the move is illegal.
+     */
+    private void make(Move move)
+    {
+	try {
+	    board.makeMove(move);
+	} catch (InvalidMoveException exc) {
+	    throw new IllegalStateException("Illegal move " + move + ": " + exc.getMessage() + " in " + board);
+	}
+	nodes++;
+    }
+
+
+    // ------------------------ command line ---------------------------------
+
+    /** Parses a move of the command line: a put as COL,ROW or a jump as directions like S-SW.
+	@throws IllegalArgumentException If it is neither.
+     */
+    static Move parseMove(String text)
+    {
+	int comma = text.indexOf(',');
+	if (comma >= 0)
+	    return new Put(Integer.parseInt(text.substring(0, comma).trim()),
+			   Integer.parseInt(text.substring(comma + 1).trim()));
+	Jump.Builder jump = new Jump.Builder();
+	StringTokenizer st = new StringTokenizer(text, "-");
+	if (!st.hasMoreTokens())
+	    throw new IllegalArgumentException("No move: " + text);
+	while (st.hasMoreTokens())
+	    {
+		jump.push(Jump.direction(st.nextToken().trim()));
+	    }
+	return jump.toJump();
+    }
+
+    /** Reads a board written with BinaryCodec.writeBoard().
+     */
+    private static DefaultBoard readBoard(File file)
+	throws IOException
+    {
+	RandomAccessFile raf = new RandomAccessFile(file, "r");
+	byte[] data;
+	try {
+	    data = new byte[(int)raf.length()];
+	    raf.readFully(data);
+	} finally {
+	    raf.close();
+	}
+	try {
+	    return BinaryCodec.readBoard(ByteBuffer.wrap(data));
+	} catch (RuntimeException exc) {
+	    throw new IOException("Not a board: " + file);
+	}
+    }
+
+    /** Prints usage and leaves.
+     */
+    private static void usage(String message)
+    {
+	if (message != null)
+	    System.err.println(message);
+	System.err.println(USAGE);
+	System.exit(2);
+    }
+
+    /** Main method; see the description of the class.
+     */
+    public static void main(String[] args)
+	throws Exception
+    {
+	BoardGeometry geometry = null;
+	File file = null;
+	int threads = 1;
+	int hashBits = 0;
+	int i = 0;
+	try {
+	    for (; i < args.length && args[i].startsWith("-"); i++)
+		{
+		    if (i + 1 == args.length)
+			usage("Missing value of " + args[i]);
+		    String option = args[i++];
+		    if (option.equals("-size"))
+			{
+			    int x = args[i].toLowerCase().indexOf('x');
+			    if (x < 0)
+				usage("Size is COLSxROWS: " + args[i]);
+			    geometry = BoardGeometry.of(Integer.parseInt(args[i].substring(0, x)),
+							Integer.parseInt(args[i].substring(x + 1)));
+			}
+		    else if (option.equals("-board"))
+			file = new File(args[i]);
+		    else if (option.equals("-threads"))
+			threads = Integer.parseInt(args[i]);
+		    else if (option.equals("-hash"))
+			hashBits = Integer.parseInt(args[i]);
+		    else
+			usage("Unknown option " + option);
+		}
+	} catch (IllegalArgumentException exc) {
+	    usage(exc.getMessage());
+	}
+	if (geometry != null && file != null)
+	    usage("-size and -board can't be given together");
+	if (i == args.length)
+	    usage(null);
+	if (threads == 0)
+	    threads = Runtime.getRuntime().availableProcessors();
+
+	DefaultBoard position;
+	if (file != null)
+	    position = readBoard(file);
+	else
+	    position = new DefaultBoard((geometry == null) ? BoardGeometry.DEFAULT : geometry);
+	int depth = 0;
+	try {
+	    depth = Integer.parseInt(args[i++]);
+	    for (; i < args.length; i++)
+		position.move(parseMove(args[i]));
+	    if (depth < 1 || threads < 1)
+		usage("Depth and threads must be positive");
+	} catch (IllegalArgumentException exc) {
+	    usage(exc.getMessage());
+	}
+
+	Perft perft = new Perft(position);
+	perft.setHashBits(hashBits);
+	List moves = perft.moves();
+	long time = System.currentTimeMillis();
+	long[] counts = perft.divide(depth, threads);
+	time = System.currentTimeMillis() - time;
+
+	long total = 0;
+	for (int m=0; m < counts.length; m++)
+	    {
+		System.out.println(moves.get(m) + ": " + counts[m]);
+		total += counts[m];
+	    }
+	System.out.println();
+	System.out.println("Moves: " + counts.length);
+	System.out.println("Count: " + total);
+	System.out.println("Moves made: " + perft.nodes() + " in " + time + " ms, "
+			   + (perft.nodes() * 1000 / Math.max(1, time)) + " per second");
+    }
+
+
+    // ----------------------- inner classes ---------------------------------
+
+    /** Counts the moves of divide() that no other thread has taken yet,
+	with its own copy of the position and its own hash table.
+	@threadsafe false
+    */
+    private class Worker
+	extends Thread
+    {
+	final Perft perft;
+	private final List moves;
+	private final long[] counts;
+	private final int depth;
+	/** The exception or error that stopped the thread, or null; divide() throws it again. */
+	Throwable error;
+
+	/** Constructor.
+	 */
+	Worker(List moves, long[] counts, int depth)
+	{
+	    perft = new Perft(board);
+	    perft.setHashBits(hashBits);
+	    this.moves = moves;
+	    this.counts = counts;
+	    this.depth = depth;
+	    setDaemon(true);
+	}
+
+	public void run()
+	{
+	    try {
+		int m;
+		while ((m = takeMove(counts.length)) >= 0 && !isInterrupted())
+		    counts[m] = perft.count((Move)moves.get(m), depth);
+	    } catch (Throwable exc) {
+		error = exc;
+	    }
+	}
+    }
+
+}
@@ -0,0 +1,337 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/** A large list of positions outside the Java heap.
+    <p>
+    Every position is packed into a record of fixed width:
+    one bit per square for the pieces, then one bit for the player to move
+    and 8 bits each for the column and row of the ball. The record is rounded up
+    to whole longs; on the 19x19 board it has 48 bytes.
+    </p><p>
+    The records are kept in segments of direct byte buffers, so the garbage collector
+    never sees them: the heap use doesn't grow with the number of positions.
+    If the store is created with a file, the segments are mapped into it,
+    and the operating system moves them between memory and disk as needed.
+    Such a store can be {@link #open opened} again later.
+    </p>
+    Positions are appended with {@link #add}, read with {@link #get} or {@link #iterator}.
+    All positions of a store have the same geometry.
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class PositionStore
+    implements Constants
+{
+    /** Maximum size of a segment in bytes. */
+    public static final int SEGMENT_BYTES = 1 << 24;
+
+    /** Size of the file header: magic, columns, rows, number of positions. */
+    private static final int HEADER_BYTES = 16;
+    private static final int MAGIC = 0x43475053; // "CGPS"
+
+    private final BoardGeometry geometry;
+    /** Number of longs and bytes of a record. */
+    private final int recordLongs, recordBytes;
+    private final int recordsPerSegment;
+    /** The segments, ByteBuffers; big-endian if mapped into a file, like the header,
+	so the file can be read on any machine, else with native byte order. */
+    private final ArrayList segments = new ArrayList();
+    private long size;
+
+    /** The file channel and the mapped header; null if the store is in memory only. */
+    private FileChannel channel;
+    private MappedByteBuffer header;
+
+    /** One record while it is packed or unpacked. */
+    private final long[] record;
+
+
+    /** Constructs an empty store in memory.
+     */
+    public PositionStore(BoardGeometry geometry)
+    { this(geometry, SEGMENT_BYTES); }
+
+    /** Constructs an empty store in a memory-mapped file.
+	The file is overwritten.
+	@throws IOException If the file cannot be created.
+     */
+    public PositionStore(BoardGeometry geometry, File file)
+	throws IOException
+    {
+	this(geometry, SEGMENT_BYTES);
+	openFile(file, true);
+    }
+
+    /** Constructor with a segment size, for tests.
+     */
+    PositionStore(BoardGeometry geometry, int segmentBytes)
+    {
+	this.geometry = geometry;
+	recordLongs = (geometry.squareCount() + 17 + 63) >>> 6;
+	recordBytes = recordLongs << 3;
+	recordsPerSegment = Math.max(1, segmentBytes / recordBytes);
+	record = new long[recordLongs];
+    }
+
+    /** Opens a store that was created with a file.
+	@throws IOException If the file cannot be read, is not a position store
+	or is shorter than its positions need.
+     */
+    public static PositionStore open(File file)
+	throws IOException
+    {
+	RandomAccessFile raf = new RandomAccessFile(file, "r");
+	int magic, cols, rows;
+	try {
+	    magic = raf.readInt();
+	    cols = raf.readByte();
+	    rows = raf.readByte();
+	} finally {
+	    raf.close();
+	}
+	if (magic != MAGIC)
+	    throw new IOException("Not a position store: " + file);
+	PositionStore store = new PositionStore(BoardGeometry.of(cols, rows), SEGMENT_BYTES);
+	store.openFile(file, false);
+	return store;
+    }
+
+    /** Maps the header and, for an existing file, the segments.
+     */
+    private void openFile(File file, boolean create)
+	throws IOException
+    {
+	RandomAccessFile raf = new RandomAccessFile(file, "rw");
+	// a mapping beyond the end of the file would extend it with zeros
+	if (create)
+	    raf.setLength(0);
+	else if (raf.length() < HEADER_BYTES)
+	    {
+		raf.close();
+		throw new IOException("Truncated position store: " + file);
+	    }
+	channel = raf.getChannel();
+	header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+	header.order(ByteOrder.BIG_ENDIAN);
+	if (create)
+	    {
+		header.putInt(0, MAGIC);
+		header.put(4, (byte)geometry.cols());
+		header.put(5, (byte)geometry.rows());
+		header.putLong(8, 0L);
+	    }
+	else
+	    {
+		size = header.getLong(8);
+		long needed = (size + recordsPerSegment - 1) / recordsPerSegment;
+		if (size < 0 || raf.length() < HEADER_BYTES + needed * recordsPerSegment * recordBytes)
+		    {
+			channel.close();
+			channel = null;
+			header = null;
+			throw new IOException("Truncated position store: " + file);
+		    }
+		while (segments.size() < needed)
+		    addSegment();
+	    }
+    }
+
+    /** Appends a new segment, mapped into the file if there is one.
+     */
+    private ByteBuffer addSegment()
+    {
+	int bytes = recordsPerSegment * recordBytes;
+	ByteBuffer segment;
+	if (channel == null)
+	    segment = ByteBuffer.allocateDirect(bytes);
+	else
+	    try {
+		segment = channel.map(FileChannel.MapMode.READ_WRITE,
+				      HEADER_BYTES + (long)segments.size() * bytes, bytes);
+	    } catch (IOException exc) {
+		throw new IllegalStateException("Cannot map segment: " + exc.getMessage());
+	    }
+	segment.order((channel == null) ? ByteOrder.nativeOrder() : ByteOrder.BIG_ENDIAN);
+	segments.add(segment);
+	return segment;
+    }
+
+
+    /** Returns the size of the boards in this store.
+     */
+    public BoardGeometry geometry()
+    { return geometry; }
+
+    /** Returns the number of positions in this store.
+     */
+    public long size()
+    { return size; }
+
+    /** Returns the number of bytes a position needs in this store.
+     */
+    public int recordBytes()
+    { return recordBytes; }
+
+    /** Appends a position.
+	@return The index of the position.
+	@throws IllegalArgumentException If the board has another geometry.
+     */
+    public long add(Board board)
+    {
+	if (board.geometry() != geometry)
+	    throw new IllegalArgumentException("Board is " + board.geometry() + ", store is " + geometry);
+	int count = geometry.squareCount();
+	for (int i=0; i < recordLongs; i++)
+	    record[i] = 0L;
+	for (int sq=0; sq < count; sq++)
+	    if (board.onSquare(sq) == PIECE)
+		record[sq >>> 6] |= 1L << sq;
+	Field ball = board.getBall();
+	long extra = ((board.whoseTurn() == DOWN) ? 1L : 0L)
+	    | ((ball.col() & 0xffL) << 1)
+	    | ((ball.row() & 0xffL) << 9);
+	putBits(count, extra);
+
+	int segment = (int)(size / recordsPerSegment);
+	ByteBuffer buffer = (segment < segments.size()) ? (ByteBuffer)segments.get(segment) : addSegment();
+	int offset = (int)(size % recordsPerSegment) * recordBytes;
+	for (int i=0; i < recordLongs; i++)
+	    buffer.putLong(offset + (i << 3), record[i]);
+	size++;
+	if (header != null)
+	    header.putLong(8, size);
+	return size - 1;
+    }
+
+    /** Returns the position with the specified index, as a changeable board.
+	@throws IndexOutOfBoundsException If there is no such position.
+     */
+    public Board get(long index)
+    {
+	read(index);
+	int cols = geometry.cols();
+	byte[][] fields = new byte[geometry.rows()][cols];
+	int count = geometry.squareCount();
+	for (int sq=0; sq < count; sq++)
+	    if ((record[sq >>> 6] & (1L << sq)) != 0)
+		fields[sq / cols][sq % cols] = PIECE;
+	long extra = getBits(count);
+	Field ball = new Field((byte)(extra >>> 1), (byte)(extra >>> 9));
+	int ballSquare = ball.square(geometry);
+	if (ballSquare != NO_SQUARE)
+	    fields[ballSquare / cols][ballSquare % cols] = BALL;
+	return new DefaultBoard(fields, ball, ((extra & 1L) != 0) ? DOWN : UP);
+    }
+
+    /** Returns an iterator over all positions, in the order they were added.
+	The iterator returns changeable boards and does not support remove().
+     */
+    public Iterator iterator()
+    {
+	return new Iterator()
+	    {
+		private long next = 0;
+		public boolean hasNext()
+		{ return next < size; }
+		public Object next()
+		{
+		    if (next >= size)
+			throw new NoSuchElementException();
+		    return get(next++);
+		}
+		public void remove()
+		{ throw new UnsupportedOperationException(); }
+	    };
+    }
+
+    /** Writes all changes of a mapped store to the file.
+	Does nothing for a store in memory.
+     */
+    public void flush()
+    {
+	if (header == null)
+	    return;
+	header.force();
+	for (int i=0; i < segments.size(); i++)
+	    ((MappedByteBuffer)segments.get(i)).force();
+    }
+
+    /** Writes all changes to the file and closes it.
+	The store must not be used afterwards.
+	@throws IOException If the file cannot be closed.
+     */
+    public void close()
+	throws IOException
+    {
+	flush();
+	segments.clear();
+	header = null;
+	if (channel != null)
+	    {
+		channel.close();
+		channel = null;
+	    }
+    }
+
+
+    /** Copies the record with the specified index into the array record.
+     */
+    private void read(long index)
+    {
+	if (index < 0 || index >= size)
+	    throw new IndexOutOfBoundsException("Position " + index + ", size " + size);
+	ByteBuffer buffer = (ByteBuffer)segments.get((int)(index / recordsPerSegment));
+	int offset = (int)(index % recordsPerSegment) * recordBytes;
+	for (int i=0; i < recordLongs; i++)
+	    record[i] = buffer.getLong(offset + (i << 3));
+    }
+
+    /** Stores 17 bits in record, starting at the specified bit.
+     */
+    private void putBits(int bit, long value)
+    {
+	record[bit >>> 6] |= value << bit;
+	if ((bit & 63) + 17 > 64)
+	    record[(bit >>> 6) + 1] |= value >>> (64 - (bit & 63));
+    }
+
+    /** Reads 17 bits from record, starting at the specified bit.
+     */
+    private long getBits(int bit)
+    {
+	long value = record[bit >>> 6] >>> bit;
+	if ((bit & 63) + 17 > 64)
+	    value |= record[(bit >>> 6) + 1] << (64 - (bit & 63));
+	return value & 0x1ffffL;
+    }
+
+}
@@ -38,9 +38,11 @@ public final class Put
     { where = (Field)field.clone(); }
 
     /** Constructor.
+	@param col The column of the field where the figure is put.
+	@param row The row of the field where the figure is put.
      */
-    public Put(int row, int col)
-    { this(new Field(row, col)); }
+    public Put(int col, int row)
+    { where = new Field(col, row); }
 
 
     public Object clone()
@@ -52,6 +54,12 @@ public final class Put
     public Move upsideDown()
     { return new Put(where.upsideDown()); }
 
+    public Move upsideDown(BoardGeometry geometry)
+    { return new Put(where.upsideDown(geometry)); }
+
+    public Move mirrored(BoardGeometry geometry)
+    { return new Put(where.mirrored(geometry)); }
+
     /** Returns the field where the figure is set.
      */
     public Field getField()
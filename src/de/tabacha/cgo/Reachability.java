@@ -0,0 +1,668 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.util.Arrays;
+
+
+/** Finds the lowest and highest rows the ball can reach with a jump, and the goals it can reach.
+    <p>
+    Rows are counted like the engines always did: a leap that lands on or beyond the first
+    or the last row reaches that row and is not continued; a leap that lands beside the board
+    reaches nothing. The row of the ball itself counts, too.
+    </p><p>
+    Walking every jump is exponential on crowded boards, as many leap orders end in the same position.
+    The analyser searches every position only once: a position is the ball field
+    and the pieces removed so far, with their Zobrist keys as the key of a memo table.
+    That is exact, but the number of positions can still grow fast when the runs of many leaps cross.
+    So the search is bounded: after maxStates positions, the rest is estimated with the graph
+    of the fields of the board, where a field leads to every field a leap could land on
+    if any of the pieces of its run were removed before. Pieces are never added during a jump,
+    so this graph contains every leap of every position, and the estimate is never narrower
+    than the truth: the lowest row may be lower, the highest higher, a goal may be reachable
+    that actually isn't. {@link #isExact} tells whether the estimate was needed.
+    </p><p>
+    An engine that scores its puts asks for the rows of many positions that differ from the analysed one
+    by a single piece. The search records the empty fields it looked at from every position,
+    together with those looked at from the positions after it. A new piece can only change the leaps
+    that looked at its field, so {@link #addPiece} searches again only the positions that did,
+    and takes the results of all others from the analysis. If the ball never looked at the field,
+    nothing is searched at all. And after a leap over the new piece, the fields are those
+    of a position without it again, whose result is known from the analysis if it was reached there.
+    {@link #rollback} returns to the analysed position.
+    Recording the fields makes the analysis slower, so it is only done after setIncremental(true).
+    </p>
+    The analyser is reused for many positions; it creates no objects once its tables are large enough.
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class Reachability
+    implements Constants
+{
+    /** Number of positions searched exactly, unless given in the constructor. */
+    public static final int DEFAULT_MAX_STATES = 1 << 18;
+    /** Number of positions whose fields an incremental analysis records;
+	addPiece() searches the whole position again after an analysis with more. */
+    public static final int MAX_RECORDED_STATES = 1 << 14;
+
+    /** Bits of a packed result: lowest row, highest row, goals. */
+    private static final int MAX_SHIFT = 8;
+    private static final int GOAL_UP = 1 << 16;
+    private static final int GOAL_DOWN = 1 << 17;
+    /** A result without any row reached: the lowest row is above every row, the highest below. */
+    private static final int NOTHING = 0xff;
+
+    private final int maxStates;
+
+    private BoardGeometry geometry;
+    private int lastRow;
+    /** The analysed position, an own copy; changed during the search and restored. */
+    private byte[] squares;
+    private int ballCol, ballRow;
+    /** The squares of the removed pieces, to put them back. */
+    private int[] removed;
+    private int removedSize;
+    private long removedKey;
+    private int ballSquare;
+    /** The stack of search(), one level per leap of the jump being searched:
+	the ball field, the next direction to try, the marks to take the leap back,
+	the number of the position and the result found so far. */
+    private int[] levelSquares;
+    private byte[] levelDirs;
+    private int[] levelMarks;
+    private long[] levelKeys;
+    private int[] levelStates;
+    private int[] levelFound;
+
+    /** Record the fields looked at? */
+    private boolean incremental;
+    /** True if the last analysis recorded the fields looked at, and is exact. */
+    private boolean recorded;
+    /** True if the analysis has more positions than it can record. */
+    private boolean overflow;
+    /** The positions of an incremental analysis, with their numbers; 0 is the analysed position itself. */
+    private final Memo numbers = new Memo();
+    /** The results of the positions, by number. */
+    private int[] stateResults = new int[256];
+    /** The empty fields looked at from a position and from the positions after it:
+	a bit set of words longs per number. */
+    private long[] stateReads;
+    private int words;
+    private int stateCount;
+    private boolean exact;
+    private int result;
+
+    /** The result of the analysis, while a piece is added. */
+    private int baseResult;
+    private boolean baseExact;
+    private int baseStateCount;
+    /** The square of the added piece, NO_SQUARE if there is none. */
+    private int added = NO_SQUARE;
+    /** The results of the positions of an analysis that is not incremental,
+	or of the positions searched again with the added piece. */
+    private final Memo results = new Memo();
+
+    /** The estimates of the fields, valid if their stamp is the actual one, and the queue to compute them. */
+    private int[] estimates;
+    private int[] estimateStamps;
+    private int estimateStamp;
+    private int[] queue;
+    private boolean[] queued;
+    /** The pieces of the position, for the estimate; valid if pieceStamp is the actual one. */
+    private boolean[] pieces;
+    private int pieceStamp;
+
+
+    /** Constructs an analyser that searches up to DEFAULT_MAX_STATES positions exactly.
+     */
+    public Reachability()
+    { this(DEFAULT_MAX_STATES); }
+
+    /** Constructs an analyser.
+	@param maxStates The number of positions searched exactly; 0 to use the estimate only.
+     */
+    public Reachability(int maxStates)
+    {
+	if (maxStates < 0)
+	    throw new IllegalArgumentException("maxStates " + maxStates);
+	this.maxStates = maxStates;
+    }
+
+
+    /** Sets whether the analysis records the fields looked at from every position,
+	so addPiece() needs to search only the positions the new piece changes.
+	That makes the analysis itself slower; without it, addPiece() searches the whole position again.
+	The fields take (squareCount + 63) / 64 longs per position, for up to MAX_RECORDED_STATES positions:
+	at most 768 KB on the 19x19 board, 3 MB on the largest one. They are kept for the next analysis.
+	A position with more positions after it is analysed without recording the rest.
+	Default is false.
+     */
+    public void setIncremental(boolean incremental)
+    { this.incremental = incremental; }
+
+    /** Analyses a position. The board itself is not used by the analyser.
+     */
+    public void analyse(Board board)
+    {
+	setGeometry(board.geometry());
+	for (int sq=0; sq < squares.length; sq++)
+	    squares[sq] = board.onSquare(sq);
+	Field ball = board.getBall();
+	analyse(ball.col(), ball.row());
+    }
+
+    /** Analyses a position given as an array of fields.
+	@param squares The contents of the fields, indexed by square; it is copied.
+     */
+    public void analyse(BoardGeometry geometry, byte[] squares, int ballCol, int ballRow)
+    {
+	setGeometry(geometry);
+	System.arraycopy(squares, 0, this.squares, 0, this.squares.length);
+	analyse(ballCol, ballRow);
+    }
+
+    /** Adds a piece to the analysed position and updates the results.
+	If the analysis was incremental and exact, only the positions that looked at its field are searched again.
+	@param square The square index of an empty field.
+	@throws IllegalStateException if a piece is already added, or nothing was analysed.
+	@throws IllegalArgumentException if the field is not empty.
+     */
+    public void addPiece(int square)
+    {
+	if (squares == null)
+	    throw new IllegalStateException("nothing analysed");
+	if (added != NO_SQUARE)
+	    throw new IllegalStateException("piece added at " + added);
+	if (squares[square] != EMPTY)
+	    throw new IllegalArgumentException("square " + square + " not empty");
+	added = square;
+	stateCount = 0;
+	if (ballSquare == NO_SQUARE || (recorded && !looksAt(0, square)))
+	    return;
+
+	squares[square] = PIECE;
+	results.clear();
+	nextEstimate();
+	exact = true;
+	removedSize = 0;
+	removedKey = 0L;
+	result = search(-1);
+    }
+
+    /** Removes the piece added with addPiece and returns to the results of the analysis.
+	Does nothing if no piece is added.
+     */
+    public void rollback()
+    {
+	if (added == NO_SQUARE)
+	    return;
+	squares[added] = EMPTY;
+	added = NO_SQUARE;
+	result = baseResult;
+	exact = baseExact;
+	stateCount = baseStateCount;
+    }
+
+    /** Returns the lowest row the ball can reach, or its row.
+     */
+    public int minRow()
+    { return Math.min(ballRow, result & 0xff); }
+
+    /** Returns the highest row the ball can reach, or its row.
+     */
+    public int maxRow()
+    { return Math.max(ballRow, (result >>> MAX_SHIFT) & 0xff); }
+
+    /** Returns true if a jump can end in the goal of a player.
+	@param player UP or DOWN, declared in Constants.
+     */
+    public boolean canReachGoalOf(boolean player)
+    { return (result & ((player == UP) ? GOAL_UP : GOAL_DOWN)) != 0; }
+
+    /** Returns true if the result is exact, false if it is the estimate of a position
+	with more than maxStates positions after it.
+     */
+    public boolean isExact()
+    { return exact; }
+
+    /** Returns the number of positions searched exactly; after addPiece, the number searched again.
+     */
+    public int stateCount()
+    { return stateCount; }
+
+
+    /** Prepares the tables for a geometry.
+     */
+    private void setGeometry(BoardGeometry geometry)
+    {
+	rollback();
+	if (geometry == this.geometry)
+	    return;
+	this.geometry = geometry;
+	this.lastRow = geometry.rows() - 1;
+	int count = geometry.squareCount();
+	squares = new byte[count];
+	removed = new int[count];
+	levelSquares = new int[count + 1];
+	levelDirs = new byte[count + 1];
+	levelMarks = new int[count + 1];
+	levelKeys = new long[count + 1];
+	levelStates = new int[count + 1];
+	levelFound = new int[count + 1];
+	words = (count + 63) >>> 6;
+	stateReads = new long[stateResults.length * words];
+	estimates = new int[count];
+	estimateStamps = new int[count];
+	queue = new int[count];
+	queued = new boolean[count];
+	pieces = new boolean[count];
+	estimateStamp = pieceStamp = 0;
+    }
+
+    /** Analyses the position in squares.
+     */
+    private void analyse(int ballCol, int ballRow)
+    {
+	this.ballCol = ballCol;
+	this.ballRow = ballRow;
+	numbers.clear();
+	results.clear();
+	nextEstimate();
+	stateCount = 0;
+	exact = true;
+	overflow = false;
+	removedSize = 0;
+	removedKey = 0L;
+	Arrays.fill(stateReads, 0, words, 0L);
+
+	ballSquare = geometry.square(ballCol, ballRow);
+	if (ballSquare == NO_SQUARE)
+	    result = NOTHING;
+	else
+	    result = search(incremental ? 0 : -1);
+	recorded = incremental && exact && !overflow;
+	baseResult = result;
+	baseExact = exact;
+	baseStateCount = stateCount;
+    }
+
+
+    // ------------------------ exact search ---------------------------------
+
+    /** Returns the packed result of the leaps from the ball field, which is on the board.
+	<p>
+	The search is one loop over an explicit stack, one level per leap of the jump being searched,
+	like MoveGenerator.search(); a jump can't have more leaps than there are pieces,
+	so the stack has a level for each field.
+	</p>
+	@param state The number of the position, to record the fields it looks at;
+	-1 if they are not recorded.
+     */
+    private int search(final int state)
+    {
+	int level = 0;
+	enterLevel(level, ballSquare, state);
+	for (;;)
+	    {
+		int landing;
+		byte dir = levelDirs[level];
+		if (dir > LAST_DIRECTION)
+		    {
+			// all leaps from the position are searched
+			if (level == 0)
+			    break;
+			landing = levelFound[level];
+			int sq = levelSquares[level];
+			int next = levelStates[level];
+			level--;
+			long key = removedKey ^ Zobrist.ball(sq);
+			if (next >= 0)
+			    {
+				stateResults[next] = landing;
+				numbers.put(key, next);
+				addLooks(levelStates[level], next);
+			    }
+			else
+			    results.put(key, landing);
+			landing = withRow(landing, geometry.row(sq));
+		    }
+		else
+		    {
+			levelDirs[level]++;
+			final int from = levelSquares[level];
+			final int fromState = levelStates[level];
+			int sq = geometry.neighbor(from, dir);
+			if (sq == NO_SQUARE)
+			    continue;
+			if (squares[sq] != PIECE)
+			    {
+				// a piece here would make a leap
+				if (fromState >= 0)
+				    look(fromState, sq);
+				continue;
+			    }
+			levelMarks[level] = removedSize;
+			levelKeys[level] = removedKey;
+			int col = geometry.col(from), row = geometry.row(from);
+			do
+			    {
+				squares[sq] = EMPTY;
+				removed[removedSize++] = sq;
+				removedKey ^= Zobrist.piece(sq);
+				col += DCOL[dir];
+				row += DROW[dir];
+				sq = geometry.neighbor(sq, dir);
+			    }
+			while (sq != NO_SQUARE && squares[sq] == PIECE);
+			col += DCOL[dir];
+			row += DROW[dir];
+			// a piece on the landing field would make the run longer
+			if (sq != NO_SQUARE && fromState >= 0)
+			    look(fromState, sq);
+
+			landing = landing(col, row);
+			if (landing == -1)
+			    {
+				// on the board: continue from there
+				landing = known(removedKey ^ Zobrist.ball(sq), fromState);
+				if (landing == -1 && stateCount >= maxStates)
+				    {
+					exact = false;
+					landing = estimate(sq);
+				    }
+				else if (landing == -1)
+				    {
+					stateCount++;
+					enterLevel(++level, sq, (fromState >= 0) ? newState() : -1);
+					continue;
+				    }
+				landing = withRow(landing, row);
+			    }
+		    }
+
+		// the leap of the level and the jumps after it are searched
+		levelFound[level] = union(levelFound[level], landing);
+		while (removedSize > levelMarks[level])
+		    squares[removed[--removedSize]] = PIECE;
+		removedKey = levelKeys[level];
+	    }
+	return levelFound[0];
+    }
+
+    /** Starts a level of the search at a ball field.
+     */
+    private void enterLevel(int level, int square, int state)
+    {
+	levelSquares[level] = square;
+	levelDirs[level] = FIRST_DIRECTION;
+	levelStates[level] = state;
+	levelFound[level] = NOTHING;
+    }
+
+    /** Returns the packed result of a position that was searched before, or -1.
+	@param state The number of the position before it, which also looks at its fields;
+	-1 if they are not recorded.
+     */
+    private int known(long key, int state)
+    {
+	if (added == NO_SQUARE)
+	    {
+		// analysing: positions are recorded until there are too many, then kept in results
+		int next = numbers.get(key);
+		if (next != -1)
+		    {
+			if (state >= 0)
+			    addLooks(state, next);
+			return stateResults[next];
+		    }
+		return results.get(key);
+	    }
+	if (recorded)
+	    {
+		// searching again: the result of the analysis is still valid if the position never looked at the added piece;
+		// once it is removed, the fields are those of a position of the analysis again
+		boolean removedAdded = squares[added] != PIECE;
+		int next = numbers.get(removedAdded ? key ^ Zobrist.piece(added) : key);
+		if (next != -1 && (removedAdded || !looksAt(next, added)))
+		    return stateResults[next];
+	    }
+	return results.get(key);
+    }
+
+    /** Returns the packed result of a leap landing on a field, -1 if it is on the board
+	and the jump can go on from there.
+     */
+    private int landing(int col, int row)
+    {
+	// row 0, as lowest and highest row
+	if (row <= 0)
+	    return geometry.isInGoalOf(UP, col, row) ? GOAL_UP : 0;
+	if (row >= lastRow)
+	    return lastRow | (lastRow << MAX_SHIFT) | GOAL_DOWN;
+	if (col < 0 || col >= geometry.cols())
+	    return NOTHING;
+	return -1;
+    }
+
+    /** Returns a packed result that also reaches a row.
+     */
+    private static int withRow(int result, int row)
+    { return union(result, row | (row << MAX_SHIFT)); }
+
+    /** Returns the union of two packed results.
+     */
+    private static int union(int a, int b)
+    {
+	int min = Math.min(a & 0xff, b & 0xff);
+	int max = Math.max((a >>> MAX_SHIFT) & 0xff, (b >>> MAX_SHIFT) & 0xff);
+	return min | (max << MAX_SHIFT) | ((a | b) & (GOAL_UP | GOAL_DOWN));
+    }
+
+
+    // ------------------------ fields looked at -----------------------------
+
+    /** Returns the number of a new position, stateCount, with no fields looked at;
+	-1 if there are too many positions to record.
+     */
+    private int newState()
+    {
+	int state = stateCount;
+	if (state >= MAX_RECORDED_STATES)
+	    {
+		overflow = true;
+		return -1;
+	    }
+	if (state >= stateResults.length)
+	    {
+		int[] temp = new int[stateResults.length * 2];
+		System.arraycopy(stateResults, 0, temp, 0, stateResults.length);
+		stateResults = temp;
+		long[] reads = new long[temp.length * words];
+		System.arraycopy(stateReads, 0, reads, 0, stateReads.length);
+		stateReads = reads;
+	    }
+	Arrays.fill(stateReads, state * words, (state + 1) * words, 0L);
+	return state;
+    }
+
+    /** Records that a position looks at a field.
+     */
+    private void look(int state, int square)
+    { stateReads[state * words + (square >>> 6)] |= 1L << square; }
+
+    /** Records that a position looks at all fields another one looks at.
+     */
+    private void addLooks(int state, int other)
+    {
+	int to = state * words, from = other * words;
+	for (int i=0; i < words; i++)
+	    stateReads[to + i] |= stateReads[from + i];
+    }
+
+    /** Returns true if a position or one after it looks at a field.
+     */
+    private boolean looksAt(int state, int square)
+    { return (stateReads[state * words + (square >>> 6)] & (1L << square)) != 0; }
+
+
+    // ------------------------ estimate -------------------------------------
+
+    /** Makes the estimates of the last position invalid.
+     */
+    private void nextEstimate()
+    {
+	if (++estimateStamp == 0)
+	    {
+		Arrays.fill(estimateStamps, 0);
+		pieceStamp = 0;
+		estimateStamp = 1;
+	    }
+    }
+
+    /** Returns the packed result of the fields reachable from a field in the graph of the fields,
+	without the row of the field itself. Computed with a breadth first walk, once per field and position.
+	The graph is that of the position being searched, so the estimate is valid for every position after it.
+     */
+    private int estimate(int start)
+    {
+	if (estimateStamps[start] == estimateStamp)
+	    return estimates[start];
+	if (pieceStamp != estimateStamp)
+	    {
+		for (int sq=0; sq < squares.length; sq++)
+		    pieces[sq] = squares[sq] == PIECE;
+		for (int i=0; i < removedSize; i++)
+		    pieces[removed[i]] = true;
+		pieceStamp = estimateStamp;
+	    }
+	int found = NOTHING;
+	int head = 0, tail = 0;
+	queue[tail++] = start;
+	queued[start] = true;
+	while (head < tail)
+	    {
+		int from = queue[head++];
+		for (byte dir=FIRST_DIRECTION; dir <= LAST_DIRECTION; dir++)
+		    {
+			int sq = geometry.neighbor(from, dir);
+			int col = geometry.col(from), row = geometry.row(from);
+			// every field after a piece of the run may be a landing field
+			while (sq != NO_SQUARE && pieces[sq])
+			    {
+				col += DCOL[dir];
+				row += DROW[dir];
+				sq = geometry.neighbor(sq, dir);
+				int landing = landing(col + DCOL[dir], row + DROW[dir]);
+				if (landing != -1)
+				    found = union(found, landing);
+				else if (!queued[sq])
+				    {
+					found = withRow(found, row + DROW[dir]);
+					queued[sq] = true;
+					queue[tail++] = sq;
+				    }
+			    }
+		    }
+	    }
+	for (int i=0; i < tail; i++)
+	    queued[queue[i]] = false;
+	estimates[start] = found;
+	estimateStamps[start] = estimateStamp;
+	return found;
+    }
+
+
+    // ------------------------ memo -----------------------------------------
+
+    /** A table from Zobrist keys to non-negative values, with open addressing;
+	a slot is used if its stamp is the actual one, so clearing it is cheap.
+     */
+    private static final class Memo
+    {
+	private long[] keys = new long[256];
+	private int[] values = new int[256];
+	private int[] stamps = new int[256];
+	private int stamp = 1;
+	private int size;
+
+	/** Removes all entries.
+	 */
+	void clear()
+	{
+	    size = 0;
+	    if (++stamp == 0)
+		{
+		    Arrays.fill(stamps, 0);
+		    stamp = 1;
+		}
+	}
+
+	/** Returns the value of a key, -1 if it has none.
+	 */
+	int get(long key)
+	{
+	    int i = find(key);
+	    return (stamps[i] == stamp) ? values[i] : -1;
+	}
+
+	/** Adds a key that has no value yet.
+	 */
+	void put(long key, int value)
+	{
+	    if (++size * 4 > keys.length * 3)
+		grow();
+	    int i = find(key);
+	    stamps[i] = stamp;
+	    keys[i] = key;
+	    values[i] = value;
+	}
+
+	/** Returns the slot of a key, or the free slot where it would be added.
+	 */
+	private int find(long key)
+	{
+	    int mask = keys.length - 1;
+	    int i = (int)(key ^ (key >>> 32)) & mask;
+	    while (stamps[i] == stamp && keys[i] != key)
+		i = (i + 1) & mask;
+	    return i;
+	}
+
+	/** Doubles the capacity and keeps the entries.
+	 */
+	private void grow()
+	{
+	    long[] oldKeys = keys;
+	    int[] oldValues = values;
+	    int[] oldStamps = stamps;
+	    keys = new long[oldKeys.length * 2];
+	    values = new int[keys.length];
+	    stamps = new int[keys.length];
+	    for (int j=0; j < oldKeys.length; j++)
+		if (oldStamps[j] == stamp)
+		    {
+			int i = find(oldKeys[j]);
+			stamps[i] = stamp;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		    }
+	}
+    }
+
+}
@@ -0,0 +1,203 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+
+/** The pieces of a board, as one bit mask and one count per row.
+    <p>
+    Bit c of the mask of a row is set if there is a piece in column c.
+    The owner keeps it up to date with add() and remove() whenever a piece is put or taken away,
+    and then counts the pieces in a region, like a range of columns or the cone in front of the ball,
+    with a few masks and bit counts instead of looking at every field.
+    </p>
+    Boards up to BoardGeometry.MAX_SIZE columns fit, as a row is one long.
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class RowOccupancy
+    implements Cloneable, Constants
+{
+    private final long[] masks;
+    private final int[] counts;
+    private int total;
+
+
+    /** Constructs the occupancy of an empty board.
+	@param rows The number of rows.
+     */
+    public RowOccupancy(int rows)
+    {
+	masks = new long[rows];
+	counts = new int[rows];
+    }
+
+    /** Constructs the occupancy of the pieces in an array like Board.toArray() returns.
+     */
+    public RowOccupancy(byte[][] fields)
+    {
+	this(fields.length);
+	for (int r=0; r < fields.length; r++)
+	    for (int c=0; c < fields[r].length; c++)
+		if (fields[r][c] == PIECE)
+		    add(c, r);
+    }
+
+    public Object clone()
+    {
+	RowOccupancy copy = new RowOccupancy(masks.length);
+	System.arraycopy(masks, 0, copy.masks, 0, masks.length);
+	System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+	copy.total = total;
+	return copy;
+    }
+
+    /** Returns a copy with the order of the rows reversed, for the board turned upside down.
+     */
+    public RowOccupancy upsideDown()
+    {
+	RowOccupancy copy = new RowOccupancy(masks.length);
+	for (int r=0; r < masks.length; r++)
+	    {
+		copy.masks[masks.length-1 - r] = masks[r];
+		copy.counts[masks.length-1 - r] = counts[r];
+	    }
+	copy.total = total;
+	return copy;
+    }
+
+
+    // ------------------------ changes --------------------------------------
+
+    /** Records a piece put on an empty field.
+	Will not check whether there was a piece already.
+     */
+    public void add(int col, int row)
+    {
+	masks[row] |= 1L << col;
+	counts[row]++;
+	total++;
+    }
+
+    /** Records a piece taken away.
+	Will not check whether there was a piece.
+     */
+    public void remove(int col, int row)
+    {
+	masks[row] &= ~(1L << col);
+	counts[row]--;
+	total--;
+    }
+
+    /** Removes all pieces.
+     */
+    public void clear()
+    {
+	java.util.Arrays.fill(masks, 0L);
+	java.util.Arrays.fill(counts, 0);
+	total = 0;
+    }
+
+
+    // ------------------------ queries --------------------------------------
+
+    /** Returns the number of rows.
+     */
+    public int rows()
+    { return masks.length; }
+
+    /** Returns the pieces of a row as a bit mask, bit c for column c.
+     */
+    public long mask(int row)
+    { return masks[row]; }
+
+    /** Returns the number of pieces in a row.
+     */
+    public int count(int row)
+    { return counts[row]; }
+
+    /** Returns the number of pieces on the board.
+     */
+    public int total()
+    { return total; }
+
+    /** Returns true if there is a piece on the field.
+	Fields outside the board are empty.
+     */
+    public boolean isPiece(int col, int row)
+    { return row >= 0 && row < masks.length && col >= 0 && col < 64 && (masks[row] & (1L << col)) != 0; }
+
+    /** Returns the number of pieces in a row between two columns, inclusive.
+	The columns may be outside the board; rows outside the board have no pieces.
+     */
+    public int count(int row, int fromCol, int toCol)
+    {
+	if (row < 0 || row >= masks.length)
+	    return 0;
+	if (fromCol < 0) fromCol = 0;
+	if (toCol > 63) toCol = 63;
+	if (fromCol > toCol)
+	    return 0;
+	return Long.bitCount(masks[row] & (-1L << fromCol) & (-1L >>> (63 - toCol)));
+    }
+
+    /** Returns the number of pieces in a range of rows, inclusive.
+	Rows outside the board have no pieces.
+     */
+    public int countRows(int fromRow, int toRow)
+    {
+	if (fromRow < 0) fromRow = 0;
+	if (toRow >= masks.length) toRow = masks.length - 1;
+	int sum = 0;
+	for (int r=fromRow; r <= toRow; r++)
+	    sum += counts[r];
+	return sum;
+    }
+
+    /** Returns the number of pieces in the cone that opens from a field up or down the board:
+	the fields in the rows fromRow to toRow that are not farther away from the apex column
+	than from the apex row, i.e. that can be reached from the apex with straight or diagonal steps.
+	@param col The column of the apex.
+	@param row The row of the apex.
+     */
+    public int countCone(int col, int row, int fromRow, int toRow)
+    {
+	if (fromRow < 0) fromRow = 0;
+	if (toRow >= masks.length) toRow = masks.length - 1;
+	int sum = 0;
+	for (int r=fromRow; r <= toRow; r++)
+	    {
+		int width = Math.abs(r - row);
+		sum += count(r, col - width, col + width);
+	    }
+	return sum;
+    }
+
+    public String toString()
+    {
+	StringBuffer buf = new StringBuffer("RowOccupancy=(");
+	for (int r=0; r < masks.length; r++)
+	    {
+		if (r > 0)
+		    buf.append(',');
+		buf.append(counts[r]);
+	    }
+	return buf.append(')').toString();
+    }
+
+}
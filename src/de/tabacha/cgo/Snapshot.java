@@ -0,0 +1,405 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+
+/** An immutable position that shares its rows with the positions it was made from.
+    <p>
+    {@link #after} returns the position after a move without changing this one.
+    The new position copies only the rows the move changes and shares all other
+    rows with this one: a put copies one row, a jump the rows of the pieces it removes
+    and of the ball fields. So the positions of a whole game cost little more memory
+    than the moves, and may be handed to other threads without copying.
+    </p>
+    Methods that would change the board throw an UnsupportedOperationException.
+    To get a changeable board, use the clone() method.
+   <br> $Id$
+   @threadsafe true Immutable
+   @author $Author$
+   @version $Revision$
+*/
+public final class Snapshot
+    implements Serializable, Constants, Board
+{
+    /** The start position on the default board. */
+    public static final Snapshot START = new Snapshot(new DefaultBoard());
+
+    /** The size of the board. */
+    private BoardGeometry geometry;
+    /** The contents of the fields, one array per row. Never changed once shared. */
+    private byte[][] rows;
+    /** The ball field; may be outside the board. */
+    private int ballCol, ballRow;
+    private boolean whoseTurn;
+    private long zobrist;
+
+    /** Bit r is set while after() builds this position and rows[r] is its own copy. */
+    private transient long ownRows;
+
+
+    /** Constructs a snapshot of the position on the specified board.
+     */
+    public Snapshot(Board board)
+    {
+	geometry = board.geometry();
+	rows = board.toArray();
+	Field ball = board.getBall();
+	ballCol = ball.col();
+	ballRow = ball.row();
+	whoseTurn = board.whoseTurn();
+	zobrist = board.zobrist();
+    }
+
+    /** Constructs a position that shares all rows with the predecessor.
+     */
+    private Snapshot(Snapshot predecessor)
+    {
+	geometry = predecessor.geometry;
+	rows = (byte[][])predecessor.rows.clone();
+	ballCol = predecessor.ballCol;
+	ballRow = predecessor.ballRow;
+	whoseTurn = predecessor.whoseTurn;
+	zobrist = predecessor.zobrist;
+    }
+
+
+    /** Serializes this board in the compact format of BinaryCodec.
+     */
+    private Object writeReplace()
+	throws ObjectStreamException
+    { return new BinaryCodec.Externalized(this); }
+
+    /** Returns the start position on a board of the specified size.
+     */
+    public static Snapshot start(BoardGeometry geometry)
+    { return geometry.isDefault() ? START : new Snapshot(new DefaultBoard(geometry)); }
+
+    /** Returns the position after the specified move.
+	This position is not changed.
+	@exception InvalidMoveException If the move is not correct; the messages are the same as in DefaultBoard.
+     */
+    public Snapshot after(Move move)
+	throws InvalidMoveException
+    {
+	Snapshot next = new Snapshot(this);
+	int status = next.apply(move);
+	if (status != LEGAL)
+	    throw new InvalidMoveException(status, move);
+	return next;
+    }
+
+    /** Makes the move on a position that is being built by after().
+	@return The status, as for Board.tryMove.
+     */
+    private int apply(Move move)
+    {
+	int status = (move instanceof Put) ? put((Put)move) : jump((Jump)move);
+	if (status != LEGAL)
+	    return status;
+	whoseTurn = !whoseTurn;
+	zobrist ^= Zobrist.DOWN_TO_MOVE;
+	ownRows = 0;
+	return LEGAL;
+    }
+
+    /** Puts a piece; only called by apply() on the new position.
+     */
+    private int put(Put move)
+    {
+	int square = move.getField().square(geometry);
+	if ( square == NO_SQUARE )
+		return ILLEGAL_PUT_OUTSIDE;
+	if ( onSquare(square) != EMPTY )
+		return ILLEGAL_PUT_NOT_EMPTY;
+	set(square, PIECE);
+	return LEGAL;
+    }
+
+    /** Moves the ball; only called by apply() on the new position.
+	@param move The jump; null counts as an empty move.
+     */
+    private int jump(Jump move)
+    {
+	if (move == null)
+	    return ILLEGAL_EMPTY;
+	int count = move.size();
+	if (count == 0)
+	    return ILLEGAL_EMPTY;
+	int status;
+	int i = 0;
+	do
+	    status = jumpOnce(move.leap(i++));
+	while ( status == LEGAL && i < count && ballSquare() != NO_SQUARE && !geometry.isInGoal(ballCol, ballRow) );
+	if ( status == LEGAL && ballSquare() == NO_SQUARE && !geometry.isInGoal(ballCol, ballRow) )
+	    return ILLEGAL_JUMP_OUTSIDE;
+	return status;
+    }
+
+    private int jumpOnce(byte dir)
+    {
+	if ((FIRST_DIRECTION > dir) || (dir > LAST_DIRECTION))
+	    return ILLEGAL_JUMP_NODIR;
+	int square = neighbor(ballSquare(), dir);
+	if (onSquare(square) != PIECE)
+	    return ILLEGAL_JUMP_WRONGDIR;
+
+	int last;
+	do
+	    {
+		set(square, EMPTY);
+		last = square;
+		square = geometry.neighbor(square, dir);
+	    }
+	while (onSquare(square) == PIECE);
+
+	set(ballSquare(), EMPTY);
+	ballCol = geometry.col(last) + DCOL[dir];
+	ballRow = geometry.row(last) + DROW[dir];
+	if (square != NO_SQUARE)
+	    set(square, BALL);
+	return LEGAL;
+    }
+
+    /** Changes a field of a position that is being built by after().
+	The row is copied before its first change.
+     */
+    private void set(int square, byte what)
+    {
+	int row = geometry.row(square);
+	int col = geometry.col(square);
+	if ((ownRows & (1L << row)) == 0)
+	    {
+		rows[row] = (byte[])rows[row].clone();
+		ownRows |= 1L << row;
+	    }
+	zobrist ^= Zobrist.of(rows[row][col], square) ^ Zobrist.of(what, square);
+	rows[row][col] = what;
+    }
+
+    /** Returns true if this position and the other one share the array of the specified row.
+	For tests.
+     */
+    boolean sharesRow(Snapshot other, int row)
+    { return rows[row] == other.rows[row]; }
+
+
+    // ------------------------ Board methods --------------------------------
+
+    /** Returns a changeable copy of this position.
+     */
+    public Object clone()
+    { return new DefaultBoard(rows, getBall(), whoseTurn); }
+
+    public byte[][] toArray()
+    {
+	byte[][] copy = new byte[rows.length][];
+	for (int r=0; r < rows.length; r++)
+	    copy[r] = (byte[])rows[r].clone();
+	return copy;
+    }
+
+    /** Returns this position mirrored along the central row, as a Snapshot.
+	The mirrored position shares all rows with this one.
+     */
+    public Board upsideDown()
+    {
+	Snapshot mirrored = new Snapshot(this);
+	for (int r=0; r < rows.length; r++)
+	    mirrored.rows[r] = rows[geometry.upsideDownRow(r)];
+	mirrored.ballRow = geometry.upsideDownRow(ballRow);
+	mirrored.whoseTurn = !whoseTurn;
+	mirrored.zobrist = Zobrist.of(mirrored);
+	return mirrored;
+    }
+
+    public long zobrist()
+    { return zobrist; }
+
+    public BoardGeometry geometry()
+    { return geometry; }
+
+    public boolean whoseTurn()
+    { return whoseTurn; }
+
+    public byte on(int col, int row)
+    { return geometry.isOutside(col, row) ? EMPTY : rows[row][col]; }
+
+    public byte on(Field field)
+    { return on(field.col(), field.row()); }
+
+    public byte onSquare(int square)
+    { return (square == NO_SQUARE) ? EMPTY : rows[geometry.row(square)][geometry.col(square)]; }
+
+    public int ballSquare()
+    { return geometry.square(ballCol, ballRow); }
+
+    public int neighbor(int square, byte dir)
+    { return geometry.neighbor(square, dir); }
+
+    /** Returns the field of the ball. The returned object is a copy.
+     */
+    public Field getBall()
+    { return new Field(ballCol, ballRow); }
+
+    public void reset()
+    { throw new UnsupportedOperationException(); }
+    public void setBall(Field f)
+    { throw new UnsupportedOperationException(); }
+    public void setBall(int col, int row)
+    { throw new UnsupportedOperationException(); }
+    public void addPiece(Field f)
+    { throw new UnsupportedOperationException(); }
+    public void addPiece(int col, int row)
+    { throw new UnsupportedOperationException(); }
+    public void removePiece(Field f)
+    { throw new UnsupportedOperationException(); }
+    public void removePiece(int col, int row)
+    { throw new UnsupportedOperationException(); }
+    public void move(Move m)
+    { throw new UnsupportedOperationException(); }
+    public void makeMove(Move m)
+    { throw new UnsupportedOperationException(); }
+    public void unmakeMove()
+    { throw new UnsupportedOperationException(); }
+    public int tryMove(Move m)
+    { throw new UnsupportedOperationException(); }
+
+    /** Checks the move on the shared rows, without copying them.
+	A jump of more than one leap marks the pieces it removes
+	in a table of the calling thread, as a Snapshot may be shared between threads.
+     */
+    public boolean isLegal(Move move)
+    {
+	if (move instanceof Put)
+	    {
+		Field field = ((Put)move).getField();
+		int square = geometry.square(field.col(), field.row());
+		return square != NO_SQUARE && onSquare(square) == EMPTY;
+	    }
+	Jump jump = (Jump)move;
+	int count = (jump == null) ? 0 : jump.size();
+	if (count == 0)
+	    return false;
+	RemovedPieces removed = (count > 1) ? (RemovedPieces)REMOVED.get() : null;
+	int stamp = (removed == null) ? 0 : removed.nextStamp();
+	int ball = ballSquare();
+	int col = ballCol, row = ballRow;
+	int i = 0;
+	do
+	    {
+		byte dir = jump.leap(i);
+		if ((FIRST_DIRECTION > dir) || (dir > LAST_DIRECTION))
+		    return false;
+		int square = neighbor(ball, dir);
+		if (!isPieceLeft(square, removed, stamp))
+		    return false;
+		int last;
+		do
+		    {
+			if (removed != null)
+			    removed.stamps[square] = stamp;
+			last = square;
+			square = geometry.neighbor(square, dir);
+		    }
+		while (isPieceLeft(square, removed, stamp));
+		col = geometry.col(last) + DCOL[dir];
+		row = geometry.row(last) + DROW[dir];
+		ball = square;
+	    }
+	while ( ++i < count && ball != NO_SQUARE && !geometry.isInGoal(col, row) );
+	return ball != NO_SQUARE || geometry.isInGoal(col, row);
+    }
+
+    /** Returns true if a piece is on the square and the jump being checked hasn't removed it.
+	@param removed The pieces removed by the jump; null for a jump of one leap.
+     */
+    private boolean isPieceLeft(int square, RemovedPieces removed, int stamp)
+    { return onSquare(square) == PIECE && (removed == null || removed.stamps[square] != stamp); }
+
+
+    /** Returns true if the other object is also a Snapshot and represents the same position.
+     */
+    public boolean equals(Object o)
+    {
+	if (!(o instanceof Snapshot))
+	    return false;
+	Snapshot s = (Snapshot)o;
+	if (s.whoseTurn != whoseTurn || s.zobrist != zobrist || s.geometry != geometry)
+	    return false;
+	for (int r=0; r < rows.length; r++)
+	    if (s.rows[r] != rows[r] && !Arrays.equals(s.rows[r], rows[r]))
+		return false;
+	return true;
+    }
+
+    /** Returns the folded Zobrist key.
+     */
+    public int hashCode()
+    { return (int)(zobrist ^ (zobrist >>> 32)); }
+
+    /** Returns a string representation of the position, for debugging.
+	Not localized.
+    */
+    public String toString()
+    {
+	StringBuffer erg = new StringBuffer("Snapshot=(ball=")
+	    .append(getBall().toString())
+	    .append(";  pieces=");
+	for (int x=0; x<geometry.cols(); x++)
+	    for (int y=0; y<geometry.rows(); y++)
+		if (on(x,y) == PIECE)
+		    erg.append((new Field(x,y)).toString()).append(' ');
+	return erg.append(")").toString();
+    }
+
+
+    // ----------------------- inner classes ---------------------------------
+
+    /** The pieces removed by the jump that isLegal() checks, one table per thread. */
+    private static final ThreadLocal REMOVED = new ThreadLocal()
+	{
+	    protected Object initialValue()
+	    { return new RemovedPieces(); }
+	};
+
+    /** Marks the squares of removed pieces with the stamp of the check;
+	a new check only needs a new stamp.
+	@threadsafe false
+     */
+    private static final class RemovedPieces
+    {
+	final int[] stamps = new int[BoardGeometry.MAX_SQUARE_COUNT];
+	private int stamp;
+
+	/** Returns a stamp that no square has yet.
+	 */
+	int nextStamp()
+	{
+	    if (++stamp == 0)
+		{
+		    Arrays.fill(stamps, 0);
+		    stamp = 1;
+		}
+	    return stamp;
+	}
+    }
+
+}
@@ -0,0 +1,192 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/** Iterates over the legal moves of a position, the most promising first.
+    <p>
+    The moves come in stages:
+    </p>
+    <ol>
+      <li>GOAL_JUMPS: the jumps that end in the goal of the player to move, i.e. win.</li>
+      <li>JUMPS: the other jumps.</li>
+      <li>NEAR_PUTS: the puts next to the ball and to the fields it reaches with a jump,
+	and on the fields where a leap lands; see MoveGenerator.RELEVANT_PUTS.</li>
+      <li>OTHER_PUTS: the remaining puts.</li>
+    </ol>
+    <p>
+    A stage is generated only when the caller asks for its first move,
+    so a search that stops after a winning jump or a good put never generates the rest.
+    Both jump stages come from the same walk over the jumps, which also marks the near puts.
+    Within a stage the moves are in the order of {@link MoveGenerator}.
+    </p>
+    The iterator can be reused for the next position with setPosition(); it does not support remove().
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+public final class StagedMoves
+    implements Iterator, Constants
+{
+    /** Stage: the jumps into the goal of the player to move. */
+    public static final int GOAL_JUMPS = 0;
+    /** Stage: the other jumps. */
+    public static final int JUMPS = 1;
+    /** Stage: the puts next to the fields the ball can reach. */
+    public static final int NEAR_PUTS = 2;
+    /** Stage: the remaining puts. */
+    public static final int OTHER_PUTS = 3;
+    /** Stage: all moves returned. */
+    public static final int DONE = 4;
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private BoardGeometry geometry;
+    private boolean player;
+
+    private final MoveList goalJumps = new MoveList();
+    private final MoveList otherJumps = new MoveList();
+    private final MoveList puts = new MoveList();
+    /** The moves of the actual stage, one of the lists above. */
+    private MoveList moves;
+    /** The actual stage, -1 before the first. */
+    private int stage;
+    /** Index of the next move in moves. */
+    private int next;
+    /** The stage of the move returned last, -1 if none. */
+    private int returnedStage;
+
+    /** Sorts the jumps into goalJumps and otherJumps. */
+    private final MoveGenerator.Listener sorter = new MoveGenerator.Listener()
+	{
+	    public boolean jumpFound(MoveGenerator g, int minRow, int maxRow)
+	    {
+		MoveList list = geometry.isInGoalOf(player, g.ballCol(), g.ballRow()) ? goalJumps : otherJumps;
+		list.add(g.toJump(), geometry);
+		return false;
+	    }
+	    public boolean putFound(MoveGenerator g, int square)
+	    { return false; }
+	};
+
+
+    /** Constructs an iterator without moves; set a position before using it.
+     */
+    public StagedMoves()
+    {
+	moves = puts;
+	stage = DONE;
+	returnedStage = -1;
+    }
+
+    /** Constructs an iterator over the moves of a position.
+     */
+    public StagedMoves(Board position)
+    { setPosition(position); }
+
+    /** Starts over with the moves of a position. The board itself is not used by the iterator.
+     */
+    public void setPosition(Board position)
+    {
+	generator.setPosition(position);
+	geometry = position.geometry();
+	player = position.whoseTurn();
+	goalJumps.clear();
+	otherJumps.clear();
+	puts.clear();
+	moves = puts;
+	stage = -1;
+	next = 0;
+	returnedStage = -1;
+    }
+
+    /** Returns the stage of the move returned by the last call of next(), -1 if there was none.
+     */
+    public int stage()
+    { return returnedStage; }
+
+    public boolean hasNext()
+    {
+	while (next == moves.size() && stage < DONE)
+	    nextStage();
+	return next < moves.size();
+    }
+
+    /** Returns the next move as a Put or a Jump.
+	@throws NoSuchElementException if there are no more moves.
+     */
+    public Object next()
+    { return nextMove(); }
+
+    /** Returns the next move as a Put or a Jump.
+	@throws NoSuchElementException if there are no more moves.
+     */
+    public Move nextMove()
+    {
+	if (!hasNext())
+	    throw new NoSuchElementException();
+	int i = next++;
+	returnedStage = stage;
+	return moves.toMove(i, geometry);
+    }
+
+    public void remove()
+    { throw new UnsupportedOperationException(); }
+
+    /** Skips the remaining moves of the stage of the move returned last;
+	the next move is the first of a following stage.
+     */
+    public void skipStage()
+    {
+	if (stage == returnedStage)
+	    next = moves.size();
+    }
+
+    /** Generates the moves of the next stage.
+     */
+    private void nextStage()
+    {
+	stage++;
+	next = 0;
+	switch (stage)
+	    {
+	    case GOAL_JUMPS:
+		generator.generate(MoveGenerator.JUMPS, sorter);
+		moves = goalJumps;
+		break;
+	    case JUMPS:
+		moves = otherJumps;
+		break;
+	    case NEAR_PUTS:
+		generator.generate(MoveGenerator.RELEVANT_PUTS, puts);
+		moves = puts;
+		break;
+	    case OTHER_PUTS:
+		generator.generate(MoveGenerator.OTHER_PUTS, puts);
+		moves = puts;
+		break;
+	    default:
+		puts.clear();
+		moves = puts;
+		break;
+	    }
+    }
+
+}
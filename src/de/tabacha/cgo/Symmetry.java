@@ -0,0 +1,117 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+
+/** Canonical forms of positions under the left-right mirror.
+    <p>
+    The rules don't distinguish left and right: a position and the position
+    mirrored along the central column are equally good, and a good move
+    in one of them, mirrored, is a good move in the other.
+    So tables of positions (caches, opening books, archives) need to store only one of them,
+    the canonical form. It is the one with the smaller Zobrist key;
+    {@link #zobrist} returns this key for both positions.
+    </p><p>
+    To use a table, look up the canonical key and, if the position {@link #isMirrored mirrored}
+    to its canonical form, mirror the moves with {@link Move#mirrored}
+    when they go in ({@link #toCanonical}) or come out ({@link #fromCanonical}).
+    </p>
+    The upside-down mirror is not a symmetry of this kind, because it swaps the players;
+    see {@link Board#upsideDown}.
+   <br> $Id$
+   @threadsafe true
+   @author $Author$
+   @version $Revision$
+*/
+public final class Symmetry
+    implements Constants
+{
+    /** No instances.
+     */
+    private Symmetry()
+    {}
+
+    /** Returns the Zobrist key of the position mirrored along the central column.
+	The board is not changed.
+     */
+    public static long mirroredZobrist(Board board)
+    {
+	BoardGeometry geometry = board.geometry();
+	int cols = geometry.cols();
+	long key = Zobrist.turn(board.whoseTurn());
+	int count = geometry.squareCount();
+	for (int sq=0; sq < count; sq++)
+	    {
+		byte what = board.onSquare(sq);
+		if (what != EMPTY)
+		    key ^= Zobrist.of(what, sq - 2*geometry.col(sq) + cols-1);
+	    }
+	return key;
+    }
+
+    /** Returns the key of the canonical form of the position;
+	the same for the position and its mirror.
+     */
+    public static long zobrist(Board board)
+    { return Math.min(board.zobrist(), mirroredZobrist(board)); }
+
+    /** Returns true if the canonical form is the mirrored position.
+	False for a symmetric position, which is its own canonical form.
+     */
+    public static boolean isMirrored(Board board)
+    { return mirroredZobrist(board) < board.zobrist(); }
+
+    /** Returns the position mirrored along the central column.
+	The board is not changed.
+	@return A Snapshot if the board is one, else a DefaultBoard.
+     */
+    public static Board mirrored(Board board)
+    {
+	BoardGeometry geometry = board.geometry();
+	byte[][] fields = board.toArray();
+	for (int r=0; r < fields.length; r++)
+	    {
+		byte[] row = fields[r];
+		for (int left=0, right=row.length-1; left < right; left++, right--)
+		    {
+			byte temp = row[left];
+			row[left] = row[right];
+			row[right] = temp;
+		    }
+	    }
+	Board result = new DefaultBoard(fields, board.getBall().mirrored(geometry), board.whoseTurn());
+	return (board instanceof Snapshot) ? new Snapshot(result) : result;
+    }
+
+    /** Returns the canonical form of the position.
+	@return The board itself if it is the canonical form, else a mirrored copy.
+     */
+    public static Board canonical(Board board)
+    { return isMirrored(board) ? mirrored(board) : board; }
+
+    /** Returns the move of the position in the coordinates of the canonical form.
+     */
+    public static Move toCanonical(Move move, Board position)
+    { return isMirrored(position) ? move.mirrored(position.geometry()) : move; }
+
+    /** Returns the move of the canonical form in the coordinates of the position.
+	Mirroring twice gives the original move, so this does the same as {@link #toCanonical}.
+     */
+    public static Move fromCanonical(Move move, Board position)
+    { return toCanonical(move, position); }
+
+}
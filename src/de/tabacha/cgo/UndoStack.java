@@ -0,0 +1,102 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+
+/** A stack of ints that records what is needed to take back moves.
+    <p>
+    The boards push one record per move, from bottom to top:
+    </p>
+    <ul>
+      <li>for a put: the column and the row of the piece,</li>
+      <li>for a jump: one entry per leap, see {@link #leap},</li>
+      <li>the column and the row of the ball before the move,</li>
+      <li>1 if it was DOWN's turn before the move, 0 otherwise,</li>
+      <li>the number of leaps, or {@link #PUT} for a put.</li>
+    </ul>
+    The array only grows, so walking through a game tree doesn't create any garbage.
+   <br> $Id$
+   @threadsafe false
+   @author $Author$
+   @version $Revision$
+*/
+final class UndoStack
+    implements Constants
+{
+    /** Number of leaps in the record of a put. */
+    static final int PUT = -1;
+
+    private static final int INITIAL_LENGTH = 64;
+
+    private int[] entries = new int[INITIAL_LENGTH];
+    private int size = 0;
+
+
+    /** Packs one leap into a stack entry.
+	@param dir The direction of the leap.
+	@param run The number of pieces removed by the leap.
+     */
+    static int leap(byte dir, int run)
+    { return dir | (run << 3); }
+
+    /** Returns the direction of a packed leap. */
+    static byte leapDirection(int leap)
+    { return (byte)(leap & 7); }
+
+    /** Returns the number of removed pieces of a packed leap. */
+    static int leapRun(int leap)
+    { return leap >>> 3; }
+
+
+    /** Returns true if there is no entry on the stack. */
+    boolean isEmpty()
+    { return size == 0; }
+
+    /** Returns the number of entries. */
+    int size()
+    { return size; }
+
+    /** Removes all entries above the specified size. */
+    void truncate(int newSize)
+    { size = newSize; }
+
+    void push(int entry)
+    {
+	if (size == entries.length)
+	    {
+		int[] temp = new int[size * 2];
+		System.arraycopy(entries, 0, temp, 0, size);
+		entries = temp;
+	    }
+	entries[size++] = entry;
+    }
+
+    /** Pushes the common end of a record.
+	@param leaps Number of leaps, or PUT.
+     */
+    void pushHeader(int ballCol, int ballRow, boolean whoseTurn, int leaps)
+    {
+	push(ballCol);
+	push(ballRow);
+	push(whoseTurn == DOWN ? 1 : 0);
+	push(leaps);
+    }
+
+    int pop()
+    { return entries[--size]; }
+
+}
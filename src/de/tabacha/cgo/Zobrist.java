@@ -0,0 +1,131 @@
+/*  ConwayGo: also called philosophers' football, a game on a go board
+    Copyright (C) 2004  Michael Keuchen
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package de.tabacha.cgo;
+
+import java.util.Random;
+
+
+/** The random keys for Zobrist hashing of positions.
+    <p>
+    The key of a position is the exclusive or of the keys of all its pieces,
+    the key of the ball field, and {@link #DOWN_TO_MOVE} if it's DOWN's turn.
+    A ball outside the board (in a goal) has no key.
+    Boards can update the key incrementally: every change of a field
+    xors out the key of the old contents and xors in the key of the new one.
+    </p>
+    The keys are created from a fixed seed, so they are the same
+    in every run of the program and may be stored in files.
+    There are keys for the square indices of the largest board geometry;
+    the methods with column and row work on the default 19x19 board.
+   <br> $Id$
+   @threadsafe true Immutable
+   @author $Author$
+   @version $Revision$
+*/
+public final class Zobrist
+    implements Constants
+{
+    private static final long SEED = 0x436f6e776179476fL;
+
+    private static final long[] PIECE_KEYS = new long[BoardGeometry.MAX_SQUARE_COUNT];
+    private static final long[] BALL_KEYS = new long[BoardGeometry.MAX_SQUARE_COUNT];
+
+    /** Key for the player to move; contained in the position key if it's DOWN's turn. */
+    public static final long DOWN_TO_MOVE;
+
+    static
+    {
+	Random random = new Random(SEED);
+	for (int i=0; i < SQUARE_COUNT; i++)
+	    {
+		PIECE_KEYS[i] = random.nextLong();
+		BALL_KEYS[i] = random.nextLong();
+	    }
+	DOWN_TO_MOVE = random.nextLong();
+	// the keys of the larger boards come later, so those of 19x19 stay the same
+	for (int i=SQUARE_COUNT; i < PIECE_KEYS.length; i++)
+	    {
+		PIECE_KEYS[i] = random.nextLong();
+		BALL_KEYS[i] = random.nextLong();
+	    }
+    }
+
+    /** No instances.
+     */
+    private Zobrist()
+    {}
+
+    /** Returns the key of a piece on the specified field of the default board.
+	The field must be on the board.
+     */
+    public static long piece(int col, int row)
+    { return PIECE_KEYS[row * COL_COUNT + col]; }
+
+    /** Returns the key of a piece on the specified square.
+	@param square A square index, not NO_SQUARE.
+     */
+    public static long piece(int square)
+    { return PIECE_KEYS[square]; }
+
+    /** Returns the key of the ball on the specified square.
+	Returns 0 for NO_SQUARE.
+     */
+    public static long ball(int square)
+    { return (square == NO_SQUARE) ? 0L : BALL_KEYS[square]; }
+
+    /** Returns the key of the ball on the specified field of the default board.
+	Returns 0 if the field is outside the board.
+     */
+    public static long ball(int col, int row)
+    { return ball(Field.square(col, row)); }
+
+    /** Returns the key of the specified contents of a field of the default board.
+	@param what EMPTY, PIECE or BALL; declared in Constants.
+	@return 0 for EMPTY or if the field is outside the board.
+     */
+    public static long of(byte what, int col, int row)
+    { return of(what, Field.square(col, row)); }
+
+    /** Returns the key of the specified contents of a square.
+	@param what EMPTY, PIECE or BALL; declared in Constants.
+	@return 0 for EMPTY or NO_SQUARE.
+     */
+    public static long of(byte what, int square)
+    {
+	if (what == EMPTY || square == NO_SQUARE)
+	    return 0L;
+	return (what == PIECE) ? PIECE_KEYS[square] : BALL_KEYS[square];
+    }
+
+    /** Returns the key of the player to move.
+     */
+    public static long turn(boolean whoseTurn)
+    { return (whoseTurn == DOWN) ? DOWN_TO_MOVE : 0L; }
+
+    /** Computes the key of a position from scratch.
+	For boards that do not maintain their key incrementally.
+     */
+    public static long of(Board board)
+    {
+	long key = turn(board.whoseTurn());
+	int count = board.geometry().squareCount();
+	for (int sq=0; sq < count; sq++)
+	    key ^= of(board.onSquare(sq), sq);
+	return key;
+    }
+
+}
@@ -72,18 +72,6 @@ public class BoardComponent
 
     // ------------------------ static methods -------------------------------
 
-    /** Returns 0 if number is zero,
-	-1 if number is negative,
-	+1 if number is positive.
-     */
-    private static final int sgn(int number)
-    {
-	if (number > 0) return +1;
-	else if (number < 0) return -1;
-	else return 0;
-    }
-
-
     /** Returns the time to wait between two moves, in sec/1000.
      */
     public static int getWaitMove()
@@ -114,7 +102,9 @@ public class BoardComponent
     private int ringWidth;
     private int ringHeight;
 
-    private Board board;
+    private DefaultBoard board;
+    /** The changes of the last leap, reused for every leap. */
+    private final BoardDelta delta = new BoardDelta();
 
     private boolean editing;
     private boolean ignoreNextMove;
@@ -151,14 +141,17 @@ public class BoardComponent
      */
     protected void computeSizes(int width, int height)
     {
+	int cols = board.geometry().cols();
+	int rows = board.geometry().rows();
+
 	// fields have a center, so dimension must be odd.
-	fieldWidth = width / COL_COUNT;
+	fieldWidth = width / cols;
 	if ((fieldWidth & 1) == 0) fieldWidth--;
-	fieldHeight = height / ROW_COUNT;
+	fieldHeight = height / rows;
 	if ((fieldHeight & 1) == 0) fieldHeight--;
 
-	leftSpace = (width - fieldWidth * COL_COUNT) / 2;
-	topSpace = (height - fieldHeight * ROW_COUNT) / 2;
+	leftSpace = (width - fieldWidth * cols) / 2;
+	topSpace = (height - fieldHeight * rows) / 2;
 
 	circleWidth = fieldWidth / 3 * 2; // must be even
 	circleHeight = fieldHeight / 3 * 2; // must be even
@@ -216,21 +209,27 @@ public class BoardComponent
     /** Sets a new board.
      *  Changes on this board will not automatically seen on the screen,
      * use the method "performMove" instead.
+     * The fields are resized if the new board has another size.
      * @param board the new board. If it is null, an empty board will be created and shown.
      */
     public void setBoard(Board board)
     {
+        BoardGeometry oldGeometry = (this.board == null) ? null : this.board.geometry();
         if (board == null)
         {
-            board = new DefaultBoard();
-            ((DefaultBoard)board).clear();
+            DefaultBoard empty = new DefaultBoard();
+            empty.clear();
+            this.board = empty;
         }
         else
         {
             // All moves must be performed on this clone in this class, to track all movements of one move.
             // DefaultBoard is not synchronized, so this class needs its own board.
-            this.board = (Board)board.clone();
+            // It must be a DefaultBoard, as the leaps are shown with its deltas.
+            this.board = new DefaultBoard(board.toArray(), board.getBall(), board.whoseTurn());
         }
+        if (oldGeometry != null && oldGeometry != this.board.geometry() && getWidth() > 0)
+            computeSizes(getWidth(), getHeight());
 	repaint();
     }
 
@@ -310,55 +309,40 @@ public class BoardComponent
     protected void performJump(Jump jump)
     {
 	Field ball = board.getBall();
-	jump.startIteration();
-	while (jump.hasNextLeap())
+	int count = jump.size();
+	for (int i=0; i < count; i++)
 	    {
-		ball = performLeap(ball, jump.nextLeap());
-		if (jump.hasNextLeap() && !isEditing()) waitAtomic();
+		ball = performLeap(ball, jump.leap(i));
+		if (i+1 < count && !isEditing()) waitAtomic();
 	    }
     }
 
     /** Performs a leap.
-	@return The new ball field.
+	@return The new ball field; the old one if the leap is not valid.
     */
     protected Field performLeap(Field from, byte direction)
     {
-	// Find field to move the ball to.
-	Field to = from.fieldIn(direction);
-	while (board.on(to) == PIECE)
-	    to.moveIn(direction);
-
-	int dx = sgn(to.col()-from.col());
-	int dy = sgn(to.row()-from.row());
+	if (board.tryMove(new Jump(new byte[]{direction}), delta) != LEGAL)
+	    return from;
+	Field to = delta.getNewBall();
+	BoardGeometry geometry = board.geometry();
 	Graphics g = getGraphics();
 	
 	// pieces fading
-	int x = from.col() + dx;
-	int y = from.row() + dy;
-	do
-	    {
-		drawCircle(g, x, y, PIECE_FADING_COLOR);
-		x += dx; y += dy;
-	    }
-	while (x != to.col() || y != to.row());
+	for (int i=0; i < delta.size(); i++)
+	    if (delta.oldContent(i) == PIECE)
+		drawCircle(g, geometry.col(delta.square(i)), geometry.row(delta.square(i)), PIECE_FADING_COLOR);
 	
 	// moving ball
 	waitAtomic();
 	clearField(g, from.col(), from.row());
 	drawCircle(g, to.col(), to.row(), BALL_COLOR);
-	board.setBall(to);
 	
 	// removing pieces
 	waitAtomic();
-	x = from.col() + dx;
-	y = from.row() + dy;
-	do
-	    {
-		clearField(g, x, y);
-		board.removePiece(x, y);
-		x += dx; y += dy;
-	    }
-	while (x != to.col() || y != to.row());
+	for (int i=0; i < delta.size(); i++)
+	    if (delta.oldContent(i) == PIECE)
+		clearField(g, geometry.col(delta.square(i)), geometry.row(delta.square(i)));
 
 	return to;
     }
@@ -407,8 +391,8 @@ public class BoardComponent
 	drawLines(g);
 
 	byte what;
-	for (int x=0; x<COL_COUNT; x++)
-	    for (int y=0; y<ROW_COUNT; y++)
+	for (int x=0; x<board.geometry().cols(); x++)
+	    for (int y=0; y<board.geometry().rows(); y++)
 		{
 		    what = board.on(x,y);
 		    if (what == PIECE)
@@ -427,7 +411,7 @@ public class BoardComponent
      */
     private void repaintField(Graphics g, Field field)
     {
-	if (field.isOutside())
+	if (field.isOutside(board.geometry()))
 	    return;
 	clearField(g, field.col(), field.row());
 	byte what = board.on(field.col(),field.row());
@@ -444,20 +428,22 @@ public class BoardComponent
     private void drawLines(Graphics g)
     {
 	int i;
+	int cols = board.geometry().cols();
+	int rows = board.geometry().rows();
 	g.setColor(LINE_COLOR);
 	
 	// horizontal
 	int hori = fieldHeight/2;
 	int firstCol = fieldWidth/2;
-	int lastCol = fieldWidth * COL_COUNT - fieldWidth/2 - 1;
-	for (i=0; i<ROW_COUNT; i++, hori += fieldHeight)
+	int lastCol = fieldWidth * cols - fieldWidth/2 - 1;
+	for (i=0; i<rows; i++, hori += fieldHeight)
 	    g.drawLine(leftSpace + firstCol, topSpace + hori, leftSpace + lastCol, topSpace + hori);
 
 	// vertical
 	int vert = fieldWidth/2;
 	int firstRow = fieldHeight/2;
-	int lastRow = fieldHeight*ROW_COUNT - fieldHeight/2 - 1;
-	for (i=0; i<COL_COUNT; i++, vert += fieldWidth)
+	int lastRow = fieldHeight*rows - fieldHeight/2 - 1;
+	for (i=0; i<cols; i++, vert += fieldWidth)
 	    g.drawLine(leftSpace + vert, topSpace + firstRow, leftSpace + vert, topSpace + lastRow);
     }
 
@@ -465,7 +451,7 @@ public class BoardComponent
      */
     private void clearField(Graphics g, int col, int row)
     {	
-	if (Field.isOutside(col, row))
+	if (board.geometry().isOutside(col, row))
 	    return;
 	g.setColor(BG_COLOR);
 	g.fillRect(leftSpace + col * fieldWidth, topSpace + row * fieldHeight,
@@ -476,16 +462,16 @@ public class BoardComponent
 	int middleY = row*fieldHeight + fieldHeight/2;
 	g.setColor(LINE_COLOR);
 	g.drawLine(leftSpace + middleX, topSpace + (row==0 ? middleY : middleY-fieldHeight/2),
-		   leftSpace + middleX, topSpace + (row==ROW_COUNT-1 ? middleY : middleY+fieldHeight/2));
+		   leftSpace + middleX, topSpace + (row==board.geometry().rows()-1 ? middleY : middleY+fieldHeight/2));
 	g.drawLine(leftSpace + (col==0 ? middleX : middleX-fieldWidth/2), topSpace + middleY,
-		   leftSpace + (col==COL_COUNT-1 ? middleX : middleX+fieldWidth/2), topSpace + middleY);
+		   leftSpace + (col==board.geometry().cols()-1 ? middleX : middleX+fieldWidth/2), topSpace + middleY);
     }
 
     /** Paints a circle on a field.
     */
     private void drawCircle(Graphics g, int col, int row, Color color)
     {
-	if (Field.isOutside(col, row))
+	if (board.geometry().isOutside(col, row))
 	    return;
 	g.setColor(color);
 	g.fillOval(leftSpace + col*fieldWidth + circleSpaceX,
@@ -498,7 +484,7 @@ public class BoardComponent
      */
     private void drawRing(Graphics g, int col, int row, Color color)
     {
-	if (Field.isOutside(col, row))
+	if (board.geometry().isOutside(col, row))
 	    return;
 	g.setColor(color);
 	g.drawOval(leftSpace + col*fieldWidth + ringSpaceX,
@@ -425,6 +425,16 @@ public class CgoRootPane
     public BackgroundGame getGame()
     { return game; }
 
+    /** Changes the size of the board.
+	@throws IllegalStateException If a game is running.
+     */
+    public void setGeometry(BoardGeometry geometry)
+	throws IllegalStateException
+    {
+	((DefaultGame)game).setGeometry(geometry);
+	boardView.setBoard(game.getBoard());
+    }
+
     /** Sets the text to show in the status line.
      */
     public void setStatusText(String text)
@@ -21,6 +21,8 @@ import java.awt.Toolkit;
 import javax.swing.JFrame;
 import javax.swing.JRootPane;
 
+import de.tabacha.cgo.BoardGeometry;
+
 
 /** Class with main method for starting ConwayGo GUI.
    <br> $Id: ConwayGo.java,v 1.10 2004/07/30 22:14:53 mk Exp $
@@ -34,11 +36,17 @@ public class ConwayGo
 {
 
     /** Main method.
-	Parameters are ignored.
+	The only optional parameter is the size of the board,
+	e.g. 9 for a 9x9 board. The default is 19.
      */
     public static void main(String[] args)
     {
 	JFrame frame = new ConwayGo();
+	if (args.length > 0)
+	    {
+		int size = Integer.parseInt(args[0]);
+		((CgoRootPane)frame.getRootPane()).setGeometry(BoardGeometry.of(size, size));
+	    }
 	((CgoRootPane)frame.getRootPane()).startGame();
 	frame.show();
     }
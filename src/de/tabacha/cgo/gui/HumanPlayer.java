@@ -37,12 +37,33 @@ final class HumanPlayer
     implements MouseInputListener
 {
 
-    private Board board;    
+    private DefaultBoard board;    
     private Move move;
+    /** The leaps of the jump the user is making. */
+    private final Jump.Builder jump = new Jump.Builder();
 
     private BoardComponent editor;
 
-    private Field[] jumpTargets = new Field[1 + Constants.LAST_DIRECTION-Constants.FIRST_DIRECTION];
+    /** Square indices of the fields the ball can leap to, NO_SQUARE if not possible. */
+    private int[] jumpTargets = new int[1 + Constants.LAST_DIRECTION-Constants.FIRST_DIRECTION];
+    /** Finds the leaps for jumpTargets. */
+    private final MoveGenerator generator = new MoveGenerator();
+    /** Fills jumpTargets with the leaps of the generator. */
+    private final MoveGenerator.Listener leapListener = new MoveGenerator.Listener()
+	{
+	    public boolean jumpFound(MoveGenerator g, int minRow, int maxRow)
+	    {
+		byte dir = g.leap(0);
+		int target = g.ballSquare();
+		// into the goal: the user clicks on the last piece
+		if (target == Constants.NO_SQUARE)
+		    target = g.geometry().square(g.ballCol() - Constants.DCOL[dir], g.ballRow() - Constants.DROW[dir]);
+		jumpTargets[dir - Constants.FIRST_DIRECTION] = target;
+		return false;
+	    }
+	    public boolean putFound(MoveGenerator g, int square)
+	    { return false; }
+	};
     private Field from;
 
     /**
@@ -99,7 +120,7 @@ final class HumanPlayer
      */
     public synchronized Move think(Board position)
     { 
-	board = position;
+	board = new DefaultBoard(position.toArray(), position.getBall(), position.whoseTurn());
 	move = null;
 	jumpState = buildJumpTargets() ? 0 : -1;
 
@@ -179,8 +200,9 @@ final class HumanPlayer
 
     private boolean leapAllowed(Field f)
     {
+	int square = f.square(board.geometry());
 	for (int i=0; i<jumpTargets.length; i++)
-	    if (jumpTargets[i] != null && jumpTargets[i].equals(f))
+	    if (square != Constants.NO_SQUARE && jumpTargets[i] == square)
 		return true;
 	return false;
     }
@@ -207,17 +229,18 @@ final class HumanPlayer
     {
 	jumpState = 1;
 	buildJumpTargets();
-	move = new Jump();
+	jump.clear();
     }
 
     /** One single leap.
      */
     private void leap(Field leapTarget)
     {
+	int square = leapTarget.square(board.geometry());
 	for (byte i=0; i<jumpTargets.length; i++)
-	    if (leapTarget.equals(jumpTargets[i]))
+	    if (square != Constants.NO_SQUARE && jumpTargets[i] == square)
 		{
-		    ((Jump)move).push((byte)(i+Constants.FIRST_DIRECTION));
+		    jump.push((byte)(i+Constants.FIRST_DIRECTION));
 		    Jump thisLeap = new Jump(new byte[]{(byte)(i+Constants.FIRST_DIRECTION)});
 		    try {
 			board.move(thisLeap);
@@ -239,6 +262,7 @@ final class HumanPlayer
     private void completeJump()
     {
 	jumpState = 3;
+	move = jump.toJump();
 	moveCompleted();
     }
 
@@ -253,45 +277,20 @@ final class HumanPlayer
     /** Cleans the array with the jump targets.
      */
     private void cleanJumpTargets()
-    { Arrays.fill(jumpTargets, null); }
+    { Arrays.fill(jumpTargets, Constants.NO_SQUARE); }
 
     /** Fills the array jumpTargets with the possible target fields of single jumps.
 	@return false if no jumps are possible
      */
     private boolean buildJumpTargets()
     {
-	Field ballField = board.getBall();
-	Field act;
-	byte dir;
-	boolean possible = false;
-
-	for (byte i = 0; i < jumpTargets.length; i++)
-	    {
-		dir = (byte)(i + Constants.FIRST_DIRECTION);
-		act = ballField.fieldIn(dir);
-		if (board.on(act) == Field.PIECE)
-		    {
-			do { act.moveIn(dir); }
-			while (board.on(act) == Field.PIECE);
-			if (!act.isOutside())
-			    {
-				possible = true;
-				jumpTargets[i] = act;
-			    }
-			else if (act.isInGoal())
-			    {
-				do { act.moveIn(Constants.OPPOSITE[dir]); }
-				while (act.isOutside());
-				possible = true;
-				jumpTargets[i] = act;
-			    }
-			else
-			    jumpTargets[i] = null;
-		    }
-		else
-		    jumpTargets[i] = null;
-	    }
-	return possible;
+	cleanJumpTargets();
+	generator.setPosition(board);
+	generator.generate(MoveGenerator.SINGLE_LEAPS, leapListener);
+	for (int i = 0; i < jumpTargets.length; i++)
+	    if (jumpTargets[i] != Constants.NO_SQUARE)
+		return true;
+	return false;
     }
 		
 
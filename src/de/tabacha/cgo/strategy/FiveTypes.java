@@ -199,6 +199,7 @@ public class FiveTypes
     protected Move bestMove()
     {
 	int brow = board().getBall().row();
+	int lastRow = board().geometry().rows() - 1;
 	int maxMinJumpRow = defensiveJump.getBestMoveValue(0);
 	if (maxMinJumpRow == Integer.MIN_VALUE) maxMinJumpRow = brow;
 	// int maxPutRow = offensivePut.getBestMoveValue(0);
@@ -211,7 +212,7 @@ public class FiveTypes
 	    }
 
 	// good jump available?
-	if (maxJumpRow >= 18 || maxJumpRow-brow >= 4)
+	if (maxJumpRow >= lastRow || maxJumpRow-brow >= 4)
 	    return offensiveJump.getBestMove();
 
 	// need to defend?
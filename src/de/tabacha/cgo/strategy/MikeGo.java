@@ -49,8 +49,6 @@ import de.tabacha.cgo.*;
 public class MikeGo
     extends AbstractEngine
 {
-    private static final int MAXSUCHTIEFE = 49;
-
     // Koeffizienten
     //  name    A B   C  ZM
     // tinmel   1 1   0   5
@@ -72,20 +70,30 @@ public class MikeGo
     private static final int NEAR_LOSS = 5;
 
     private byte[][] board;
+    /** Die Pppel jeder Zeile, in set() nachgefhrt, fr die Trapezzhlung. */
+    private RowOccupancy pieces;
     private boolean whoseTurn;
-    private byte[] bestZug;    
-    private int bestZugLaenge;
+    /** Size of the board; lastCol and lastRow are the highest indices, midCol the middle column. */
+    private BoardGeometry geometry;
+    private int lastCol, lastRow, midCol;
+    /** Holds the position, too, and finds the moves to try. */
+    private final MoveGenerator generator = new MoveGenerator();
+    private Jump bestZug;
     private int bestPutCol, bestPutRow;
     private int bestWert, bestVsb;
     /** Anzahl der besten Mglichkeiten, fr zuflliges Auswhlen. */
     private int anzBest;
-    /** Ist es sinnvoll, auf dieses Feld einen Pppel zu setzen? */
-    private boolean[][] gutzug;
     private int min, max;
+    /** Erreichbare Zeilen, vom Generator berechnet. */
+    private final int[] minMax = new int[2];
     private int ags;
     /** Ball coordinates. */
     private int bcol, brow;
+    /** Der Stapel von vsb_springe(), eine Ebene je Sprung: Richtung, Anzahl Felder
+	und die nchste zu probierende Richtung danach. */
     private byte[] suchZug;
+    private int[] suchAnz;
+    private byte[] suchRichtung;
     private int suchZugLaenge;
 
 
@@ -101,50 +109,42 @@ public class MikeGo
     {
 	// copy position
 	this.whoseTurn = position.whoseTurn();
-	// sorge dafr, da immer nach unten, nach 18, gezogen wird.
-	if (whoseTurn == DOWN)
-	    {
-		this.board = position.toArray();
-		this.brow = position.getBall().row();
-	    }
-	else
-	    {
-		this.board = position.upsideDown().toArray();
-		this.brow = 18 - position.getBall().row();
-	    }
-	this.bcol = position.getBall().col();
-
-
-	bestZug = new byte[MAXSUCHTIEFE];
-	bestZugLaenge = 0;
-	suchZug = new byte[MAXSUCHTIEFE];
+	this.geometry = position.geometry();
+	this.lastCol = geometry.cols() - 1;
+	this.lastRow = geometry.rows() - 1;
+	this.midCol = geometry.kickOffCol();
+	// sorge dafr, da immer nach unten, nach lastRow, gezogen wird.
+	generator.setPosition((whoseTurn == DOWN) ? position : BoardView.flipped(position));
+	this.board = generator.toArray();
+	this.brow = generator.ballRow();
+	this.bcol = generator.ballCol();
+	this.pieces = new RowOccupancy(board);
+
+
+	bestZug = null;
+	// jeder Sprung entfernt einen Pppel
+	suchZug = new byte[geometry.squareCount() + 1];
+	suchAnz = new int[suchZug.length];
+	suchRichtung = new byte[suchZug.length];
 	suchZugLaenge = 0;
 	bestPutCol = bestPutRow = -50;
 	bestWert = -30000;
 	bestVsb = -30000;
 	anzBest = 0;
-	gutzug = new boolean[23][23];
-	int i,j;
-	for (i=0; i<23; i++)
-	    for (j=0; j<23; j++)
-		gutzug[i][j] = false;
 
-	int[] minmax = new int[2];
-	springe(minmax);
-	min = minmax[0];
-	max = minmax[1];
+	generator.generate(MoveGenerator.JUMPS, springe);
+	min = generator.minReachedRow();
+	max = generator.maxReachedRow();
 
 	if (bestWert != 20000)
-	    probiereBoings();
+	    generator.generate(MoveGenerator.RELEVANT_PUTS, probiereBoings);
 
 	if (bestPutCol >= 0)
-	    return (whoseTurn == DOWN) ? new Put(bestPutCol, bestPutRow) : new Put(bestPutCol, 18 - bestPutRow);
+	    return (whoseTurn == DOWN) ? new Put(bestPutCol, bestPutRow) : new Put(bestPutCol, lastRow - bestPutRow);
 	else 
 	    {
-		Jump ju = new Jump();
-		for (i=0; i<bestZugLaenge; i++)
-		    ju.push(bestZug[i]);
-		return (whoseTurn == DOWN) ? ju : ju.upsideDown();
+		Jump ju = (bestZug == null) ? new Jump() : bestZug;
+		return (whoseTurn == DOWN) ? ju : ju.upsideDown(geometry);
 	    }
     }
 
@@ -152,7 +152,7 @@ public class MikeGo
 
     private byte on(int col, int row)
     {
-	if (0<=col && col<=18 && 0<=row && row <=18)
+	if (0<=col && col<=lastCol && 0<=row && row <=lastRow)
 	    return board[row][col];
 	else
 	    return EMPTY;
@@ -160,99 +160,55 @@ public class MikeGo
 
     private void set(int col, int row, byte type)
     {
-	if (0<=col && col<=18 && 0<=row && row <=18)
-	    board[row][col] = type;
+	if (0<=col && col<=lastCol && 0<=row && row <=lastRow)
+	    {
+		if (board[row][col] == PIECE)
+		    pieces.remove(col, row);
+		if (type == PIECE)
+		    pieces.add(col, row);
+		board[row][col] = type;
+	    }
     }
 
     // _________________________________________________________________________
 
-    private void springe(int[] this_minmax)
-    {
-	this_minmax[0] = this_minmax[1] = brow; // minimale und maximale von hier aus erreichbare Zeile
-	int[] sub_minmax = new int[2]; // gleiches fr weitere Sprnge
-
-	suchZugLaenge++;
-	int testcol, testrow;
-	int anz = 0;
-	int wert;
-	for (byte r = 0; r < 8; r++)
+    /** Bewertet jeden Sprung, den der Generator findet. */
+    private final MoveGenerator.Listener springe = new MoveGenerator.Listener()
+	{
+	    public boolean jumpFound(MoveGenerator g, int sub_min, int sub_max)
 	    {
-		testcol = bcol + DCOL[r];
-		testrow = brow + DROW[r];
-		if (on(testcol,testrow) == EMPTY)
-		    gutzug[testcol+2][testrow+2] = true;
-		else
+		// bewerte Stellung
+		// Die von hier aus erreichbaren minimalen und maximalen Reihen sind bekannt.
+		int wert = bewerteStellung(sub_min, sub_max, g.ballRow()) - ZM;
+
+		// bester Zug?
+		if (wert == bestWert)
 		    {
-			set(bcol, brow, EMPTY);
-			anz = 1; bcol += DCOL[r]; brow += DROW[r];
-			do {
-			    set(bcol, brow, EMPTY);
-			    anz++; bcol += DCOL[r]; brow += DROW[r];
-			} while (on(bcol, brow) != EMPTY);
-			gutzug[bcol+2][brow+2] = true;
-			
-			if ((0 <= bcol) && (bcol <= 18) || (brow < 0) || (brow > 18)) // inside or in goal
+			wert = g.leapCount()-1;
+			if (wert > bestVsb)
 			    {
-				set(bcol, brow, BALL);
-				suchZug[suchZugLaenge-1] = r;
-
-				// weiterspringen
-				if ((suchZugLaenge < MAXSUCHTIEFE) && (0 < brow) && (brow < 18))
-				    springe(sub_minmax);
-				else
-				    sub_minmax[0] = sub_minmax[1] = brow;
-				if (sub_minmax[0] < this_minmax[0]) this_minmax[0] = sub_minmax[0];
-				if (sub_minmax[1] > this_minmax[1]) this_minmax[1] = sub_minmax[1];
-
-				// bewerte Stellung
-				// wert = bewerteStellung() - ZM;
-				// Das ist nicht mehr ntig, da von hier aus erreichbare
-				// minimale und maximale Reihen bekannt sind. Daher:
-				wert = bewerteStellung(sub_minmax[0], sub_minmax[1]) - ZM;
-
-				// bester Zug?
-				if (wert == bestWert)
-				    {
-					wert = suchZugLaenge-1;
-					if (wert > bestVsb)
-					    {
-						anzBest = 1; bestVsb = wert;
-						System.arraycopy(suchZug, 0, bestZug, 0, suchZugLaenge);
-						bestZugLaenge = suchZugLaenge;
-					    }
-					else if (wert == bestVsb)
-					    {
-						anzBest++;
-						if (random().nextInt(anzBest) == 0)
-						    {
-							System.arraycopy(suchZug, 0, bestZug, 0, suchZugLaenge);
-							bestZugLaenge = suchZugLaenge;
-						    }
-					    }
-				    }
-				else if (wert > bestWert)
-				    {
-					bestWert = wert;
-					bestVsb = suchZugLaenge-1;
-					anzBest = 1;
-					System.arraycopy(suchZug, 0, bestZug, 0, suchZugLaenge);
-					bestZugLaenge = suchZugLaenge;
-				    }
+				anzBest = 1; bestVsb = wert;
+				bestZug = g.toJump();
 			    }
-
-			// setze Zug zurck
-			set(bcol, brow, EMPTY);
-			anz--; bcol -= DCOL[r]; brow -= DROW[r];
-			while (anz > 0)
+			else if (wert == bestVsb)
 			    {
-				set(bcol, brow, PIECE);
-				anz--; bcol -= DCOL[r]; brow -= DROW[r];
+				anzBest++;
+				if (random().nextInt(anzBest) == 0)
+				    bestZug = g.toJump();
 			    }
-			set(bcol, brow, BALL);
 		    }
+		else if (wert > bestWert)
+		    {
+			bestWert = wert;
+			bestVsb = g.leapCount()-1;
+			anzBest = 1;
+			bestZug = g.toJump();
+		    }
+		return false;
 	    }
-	suchZugLaenge--;
-    }
+	    public boolean putFound(MoveGenerator g, int square)
+	    { return false; }
+	};
 
     // _________________________________________________________________________ 
 
@@ -268,75 +224,80 @@ public class MikeGo
     }
 
     private int probiereBoings_zurMitte(int x, int y, int bx, int by)
-    { return  (bx < x && x <= 9 || 9 <= x && x < bx) ? 1 : 0; }
-
-    private void probiereBoings()
-    {	    
-	int wert;
-	int x, y;
-	for (x=0; x<=18; x++)
-	    for (y=0; y<=18; y++)
-		if (gutzug[x+2][y+2] && on(x, y) == EMPTY)
+    { return  (bx < x && x <= midCol || midCol <= x && x < bx) ? 1 : 0; }
+
+    /** Bewertet jeden sinnvollen Setzen-Zug, den der Generator findet. */
+    private final MoveGenerator.Listener probiereBoings = new MoveGenerator.Listener()
+	{
+	    public boolean jumpFound(MoveGenerator g, int min, int max)
+	    { return false; }
+	    public boolean putFound(MoveGenerator g, int square)
+	    {
+		int x = geometry.col(square);
+		int y = geometry.row(square);
+		int wert;
+		set(x, y, PIECE);
+		wert = bewerteStellung();
+		if (wert > bestWert)
 		    {
-			set(x, y, PIECE);
-			wert = bewerteStellung();
-			if (wert > bestWert)
+			bestWert = wert;
+			bestVsb = vsb() - 2 + probiereBoings_schiefer(x, y, bcol, brow) + probiereBoings_zurMitte(x, y, bcol, brow); // -2 wg. Vergleich mit Ziehen
+			anzBest = 1;
+			bestPutCol = x; bestPutRow = y;
+		    }
+		else if (wert == bestWert)
+		    {
+			wert = vsb() - 2 + probiereBoings_schiefer(x, y, bcol, brow) + probiereBoings_zurMitte(x, y, bcol, brow);
+			if (wert > bestVsb)
 			    {
-				bestWert = wert;
-				bestVsb = vsb() - 2 + probiereBoings_schiefer(x, y, bcol, brow) + probiereBoings_zurMitte(x, y, bcol, brow); // -2 wg. Vergleich mit Ziehen
+				bestVsb = wert;
 				anzBest = 1;
 				bestPutCol = x; bestPutRow = y;
 			    }
-			else if (wert == bestWert)
+			else if (wert == bestVsb)
 			    {
-				wert = vsb() - 2 + probiereBoings_schiefer(x, y, bcol, brow) + probiereBoings_zurMitte(x, y, bcol, brow);
-				if (wert > bestVsb)
-				    {
-					bestVsb = wert;
-					anzBest = 1;
-					bestPutCol = x; bestPutRow = y;
-				    }
-				else if (wert == bestVsb)
-				    {
-					anzBest++;
-					if (random().nextInt(anzBest) == 0)
-					    { bestPutCol = x; bestPutRow = y; }
-				    }
+				anzBest++;
+				if (random().nextInt(anzBest) == 0)
+				    { bestPutCol = x; bestPutRow = y; }
 			    }
-			set(x,y,EMPTY);
 		    }
-    }
+		set(x,y,EMPTY);
+		return false;
+	    }
+	};
 
 
     // _________________________________________________________________________
 
-    private int bewerteStellung(int min, int max)
+    private int bewerteStellung(int min, int max, int ballRow)
     {
-	if (brow >= 18)
+	if (ballRow >= lastRow)
 	    return 20000;
-	else if (brow <= 0)
+	else if (ballRow <= 0)
 	    return -20000;
 	else
 	    {
 		if (min <= 0)
 		    return -10000;
 		else if (min <= 2)
-		    return A * min + B * max + C * brow - NEAR_LOSS;
+		    return A * min + B * max + C * ballRow - NEAR_LOSS;
 		else
-		    return A * min + B * max + C * brow;
+		    return A * min + B * max + C * ballRow;
 	    }
     }
 
+    /** Bewertet die Stellung des Generators, nach einem Setzen-Zug.
+     */
     private int bewerteStellung()
     {
-	if (brow >= 18)
+	if (brow >= lastRow)
 	    return 20000;
 	else if (brow <= 0)
 	    return -20000;
 	else
 	    {
-		min = brow; max = brow;
-		bewerteStellung_springe();
+		generator.rowRange(minMax);
+		min = minMax[0]; max = minMax[1];
 		if (min <= 0)
 		    return -10000;
 		else if (min <= 2)
@@ -346,57 +307,14 @@ public class MikeGo
 	    }
     }
 
-    private void bewerteStellung_springe()
-    {
-	int anz;
-	for (int r=0; r < 8; r++)
-	    {
-		if (on(bcol+DCOL[r], brow+DROW[r]) == PIECE)
-		    {
-			anz = 1; bcol += DCOL[r]; brow += DROW[r];
-			do {
-			    set(bcol, brow, EMPTY);
-			    anz++; bcol += DCOL[r]; brow += DROW[r];
-			} while (on(bcol, brow) == PIECE);
-
-			if  (brow <= 0)
-			    min = 0;
-			else if (brow >= 18)
-			    max = 18;
-			else if ((0 <= bcol) && (bcol <= 18))
-			    {
-				bewerteStellung_springe();
-				if (brow > max)
-				    max = brow;
-				if (brow < min)
-				    min = brow;
-			    }
-
-			bcol -= DCOL[r]; brow -= DROW[r];
-			for (int d=0; d<anz-1; d++)
-			    {
-				set(bcol, brow, PIECE);
-				bcol -= DCOL[r]; brow -= DROW[r];
-			    }
-		    }
-	    }
-    }
-
     // _________________________________________________________________________ 
 
     /** Trapezzhlung.
      */
     private int vsb_zaehlePoeppel()
     {
-	int wert = 0;
-	int z = (brow >= 13) ? 18 : (brow+5);
-	for (int y = brow+2; y <= z; y++)
-	    {
-		for (int x = (brow-y+bcol <= 0) ? 0 : (brow-y+bcol); (x <= 18) && (x <= y-brow+bcol); x++)
-		    if (on(x,y) == PIECE)
-			wert++;
-	    }
-	return wert;
+	int z = (brow >= lastRow-5) ? lastRow : (brow+5);
+	return pieces.countCone(bcol, brow, brow+2, z);
     }
 
 
@@ -405,7 +323,6 @@ public class MikeGo
     private void vsb_springe_vsbWertMax()
     {
 	int wert = 1;
-	int x, y, z;
 	
 	max = brow;
 
@@ -415,48 +332,65 @@ public class MikeGo
 	wert = wert * 4;
 
 	// Zhle Pppel
-	z = (brow >= 13) ? 18 : (brow+5);
-	for (y = brow+2; y <= z; y++)
-	    {
-		for (x = (brow-y+bcol <= 0) ? 0 : (brow-y+bcol); (x <= 18) && (x <= y-brow+bcol); x++)
-		    if (on(x, y) == PIECE)
-			wert++;
-	    }
+	wert += vsb_zaehlePoeppel();
 
 	if (wert > ags)
 	    ags = wert;
     }
 
+    /** Probiert alle Sprungfolgen ab der Ballposition, ohne Rekursion:
+	suchZugLaenge ist die Ebene des Stapels.
+     */
     private void vsb_springe()
     {
-	int d, anz;
-	for (byte r=0; r<8; r++)
-	    if (on(bcol + DCOL[r], brow + DROW[r]) == PIECE)
+	final int start = suchZugLaenge;
+	suchRichtung[start] = 0;
+	for (;;)
 	    {
-		anz = 1; bcol += DCOL[r]; brow += DROW[r];
+		byte r = suchRichtung[suchZugLaenge];
+		if (r == 8)
+		    {
+			// alle Richtungen probiert: zurck zum Sprung davor
+			if (suchZugLaenge == start)
+			    return;
+			if (brow >= max)
+			    vsb_springe_vsbWertMax();
+			suchZugLaenge--;
+			vsb_nimmZurueck(suchZug[suchZugLaenge], suchAnz[suchZugLaenge]);
+			continue;
+		    }
+		suchRichtung[suchZugLaenge]++;
+		if (on(bcol + DCOL[r], brow + DROW[r]) != PIECE)
+		    continue;
+
+		int anz = 1; bcol += DCOL[r]; brow += DROW[r];
 		do {
 		    set(bcol, brow, EMPTY);
 		    anz++; bcol += DCOL[r]; brow += DROW[r];
 		} while (on(bcol, brow) == PIECE);
-		suchZug[suchZugLaenge] = r; suchZugLaenge++;
+		suchZug[suchZugLaenge] = r; suchAnz[suchZugLaenge] = anz; suchZugLaenge++;
 
-		if (brow >= 18)
+		if (brow >= lastRow)
 		    vsb_springe_vsbWertMax();
-		else if ((0 <= bcol) && (bcol <= 18))
+		else if ((0 <= bcol) && (bcol <= lastCol))
 		    {
-			if (suchZugLaenge < MAXSUCHTIEFE)
-			    vsb_springe();
-			if (brow >= max)
-			    vsb_springe_vsbWertMax();
+			// weiter springen
+			suchRichtung[suchZugLaenge] = 0;
+			continue;
 		    }
-
 		suchZugLaenge--;
+		vsb_nimmZurueck(r, anz);
+	    }
+    }
+
+    /** Nimmt einen Sprung ber anz-1 Pppel zurck. */
+    private void vsb_nimmZurueck(byte r, int anz)
+    {
+	bcol -= DCOL[r]; brow -= DROW[r];
+	for (int d=1; d<=anz-1; d++)
+	    {
+		set(bcol, brow, PIECE);
 		bcol -= DCOL[r]; brow -= DROW[r];
-		for (d=1; d<=anz-1; d++)
-		    {
-			set(bcol, brow, PIECE);
-			bcol -= DCOL[r]; brow -= DROW[r];
-		    }
 	    }
     }
 
@@ -467,7 +401,7 @@ public class MikeGo
     private int vsb()
     {
 	suchZugLaenge = 0;
-	if ((brow <= 0) || (brow >= 18))
+	if ((brow <= 0) || (brow >= lastRow))
 	    return 0;
 	min = brow;
 	max = brow;
@@ -57,6 +57,9 @@ public class ModernMikeGo
 	this.maxrowfactor = maxrow;
 	this.ballrowfactor = ballrow;
 	this.jumpmalus = jumpmalus;
+	// the jumps are evaluated by the position after them;
+	// the choice among equally valued moves differs from the engine before distinct jumps
+	setDistinctJumps(true);
     }
 
 
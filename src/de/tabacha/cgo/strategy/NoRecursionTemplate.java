@@ -36,51 +36,59 @@ public abstract class NoRecursionTemplate
     extends AbstractEngine
 {
 
-    private static final int MAXSUCHTIEFE = 49;
-
-    private byte[][] board;
+    /** Holds the position, with the ball moving down to lastRow, and searches the moves. */
+    private final MoveGenerator generator = new MoveGenerator();
     private boolean whoseTurn;
+    /** Size of the board; lastCol and lastRow are the highest indices. */
+    private BoardGeometry geometry;
+    private int lastCol, lastRow;
 
-    /** Ist es sinnvoll, auf dieses Feld einen Pppel zu setzen? */
-    private boolean[][] gutzug;
-    private int min, max;
-
-    /** Ball coordinates. */
-    private int bcol, brow;
-
-    private byte[] suchZug;
-    private int suchZugLaenge;
-
-    private int findMin, findMax;
     private boolean moveFound;
+    /** Report each position that can be reached with a jump only once? */
+    private boolean distinctJumps;
 
-    private Board myBoard = new Board()
+    /** Passes the moves of the generator to the template methods. */
+    private final MoveGenerator.Listener listener = new MoveGenerator.Listener()
 	{
-	    public Object clone()
-	    { return new DefaultBoard(toArray(), new Field(bcol, brow), DOWN); }
-	    public byte[][] toArray()
+	    public boolean jumpFound(MoveGenerator g, int min, int max)
 	    {
-		byte[][] newFields = new byte[ROW_COUNT][COL_COUNT];
-		for (int r=0; r < ROW_COUNT; r++)
-		    System.arraycopy(board[r], 0, newFields[r], 0, COL_COUNT);
-		return newFields;
+		moveFound = NoRecursionTemplate.this.jumpFound(g.toJump(), min, max);
+		return moveFound;
 	    }
-	    public Board upsideDown()
+	    public boolean putFound(MoveGenerator g, int square)
 	    {
-		byte[][] newFields = new byte[ROW_COUNT][COL_COUNT];
-		for (int r=0; r < ROW_COUNT; r++)
-		    System.arraycopy(board[ROW_COUNT-1-r], 0, newFields[r], 0, COL_COUNT);
-		return new DefaultBoard(newFields, new Field(bcol, ROW_COUNT-1-brow), UP);
+		moveFound = NoRecursionTemplate.this.putFound(new Put(geometry.col(square), geometry.row(square)));
+		return moveFound;
 	    }
+	};
+
+    private Board myBoard = new Board()
+	{
+	    public Object clone()
+	    { return new DefaultBoard(toArray(), generator.getBall(), DOWN); }
+	    public byte[][] toArray()
+	    { return generator.toArray(); }
+	    public Board upsideDown()
+	    { return new DefaultBoard(generator.toArray(), generator.getBall(), DOWN).upsideDown(); }
+	    public BoardGeometry geometry()
+	    { return geometry; }
 
 	    public boolean whoseTurn()
 	    { return DOWN; }
+	    public long zobrist()
+	    { return Zobrist.of(this); }
 	    public byte on(int col, int row)
-	    { return NoRecursionTemplate.this.on(col, row); }
+	    { return generator.on(col, row); }
 	    public byte on(Field field)
-	    { return NoRecursionTemplate.this.on(field.col(), field.row()); }
+	    { return generator.on(field.col(), field.row()); }
+	    public byte onSquare(int square)
+	    { return generator.onSquare(square); }
+	    public int ballSquare()
+	    { return generator.ballSquare(); }
+	    public int neighbor(int square, byte dir)
+	    { return geometry.neighbor(square, dir); }
 	    public Field getBall()
-	    { return new Field(bcol, brow); }
+	    { return generator.getBall(); }
 
 	    public void reset()
 	    { throw new UnsupportedOperationException(); }
@@ -98,6 +106,14 @@ public abstract class NoRecursionTemplate
 	    { throw new UnsupportedOperationException(); }
 	    public void move(Move m)
 	    { throw new UnsupportedOperationException(); }
+	    public void makeMove(Move m)
+	    { throw new UnsupportedOperationException(); }
+	    public void unmakeMove()
+	    { throw new UnsupportedOperationException(); }
+	    public int tryMove(Move m)
+	    { throw new UnsupportedOperationException(); }
+	    public boolean isLegal(Move m)
+	    { return generator.isLegal(m); }
 	};
 
     /** Constructor.
@@ -107,6 +123,18 @@ public abstract class NoRecursionTemplate
 
     public final boolean canPlayBothSides() { return false; }
 
+    /** Sets whether jumpFound is called for every jump, or only once for every position
+	jumps can lead to, with one of the shortest jumps to it.
+	Engines whose evaluation of a jump only depends on the position after it should use the latter;
+	on crowded boards it saves most of the evaluations.
+	The values of the moves stay the same, but fewer jumps are reported, in another order;
+	so an engine that picks one of several equally valued moves at random
+	picks another one than before for the same seed.
+	Default is false.
+     */
+    protected final void setDistinctJumps(boolean distinctJumps)
+    { this.distinctJumps = distinctJumps; }
+
 
     /**
      */
@@ -151,184 +179,31 @@ public abstract class NoRecursionTemplate
     {
 	// copy position
 	this.whoseTurn = position.whoseTurn();
-	// sorge dafr, da immer nach unten, nach 18, gezogen wird.
-	if (whoseTurn == DOWN)
-	    {
-		this.board = position.toArray();
-		this.brow = position.getBall().row();
-	    }
-	else
-	    {
-		this.board = position.upsideDown().toArray();
-		this.brow = 18 - position.getBall().row();
-	    }
-	this.bcol = position.getBall().col();
+	this.geometry = position.geometry();
+	this.lastCol = geometry.cols() - 1;
+	this.lastRow = geometry.rows() - 1;
+	// sorge dafr, da immer nach unten, nach lastRow, gezogen wird.
+	generator.setPosition((whoseTurn == DOWN) ? position : BoardView.flipped(position));
 
 	moveFound = false;
-	suchZug = new byte[MAXSUCHTIEFE];
-	suchZugLaenge = 0;
-	gutzug = new boolean[23][23];
-	int i,j;
-	for (i=0; i<23; i++)
-	    for (j=0; j<23; j++)
-		gutzug[i][j] = false;
-
 	initNewMoveSearch(); 
 
-	int[] minmax = new int[2];
-	springe(minmax);
+	generator.generate(distinctJumps ? MoveGenerator.DISTINCT_JUMPS : MoveGenerator.JUMPS, listener);
 	if (!moveFound)
-	    {
-		min = minmax[0];
-		max = minmax[1];
-		moveFound = minMaxFound(min, max);
-	    }
+	    moveFound = minMaxFound(generator.minReachedRow(), generator.maxReachedRow());
 	if (!moveFound)
-	    probiereBoings();
+	    generator.generate(MoveGenerator.RELEVANT_PUTS, listener);
 	Move m = bestMove();
-	return (whoseTurn == DOWN) ? m : m.upsideDown();
+	return (whoseTurn == DOWN) ? m : m.upsideDown(geometry);
     }
 
-    // _________________________________________________________________________
-
-    private byte on(int col, int row)
-    {
-	if (0<=col && col<=18 && 0<=row && row <=18)
-	    return board[row][col];
-	else
-	    return EMPTY;
-    }
-
-    private void set(int col, int row, byte type)
-    {
-	if (0<=col && col<=18 && 0<=row && row <=18)
-	    board[row][col] = type;
-    }
 
     // _________________________________________________________________________
 
-    private void springe(int[] this_minmax)
-    {
-	this_minmax[0] = this_minmax[1] = brow; // minimale und maximale von hier aus erreichbare Zeile
-	int[] sub_minmax = new int[2]; // gleiches fr weitere Sprnge
-
-	suchZugLaenge++;
-	int testcol, testrow;
-	int anz = 0;
-	int wert;
-	for (byte r = 0; r < 8; r++)
-	    {
-		testcol = bcol + DCOL[r];
-		testrow = brow + DROW[r];
-		if (on(testcol,testrow) == EMPTY)
-		    gutzug[testcol+2][testrow+2] = true;
-		else
-		    {
-			set(bcol, brow, EMPTY);
-			anz = 1; bcol += DCOL[r]; brow += DROW[r];
-			do {
-			    set(bcol, brow, EMPTY);
-			    anz++; bcol += DCOL[r]; brow += DROW[r];
-			} while (on(bcol, brow) != EMPTY);
-			gutzug[bcol+2][brow+2] = true;
-			
-			if ((0 <= bcol) && (bcol <= 18) || (brow < 0) || (brow > 18)) // inside or in goal
-			    {
-				set(bcol, brow, BALL);
-				suchZug[suchZugLaenge-1] = r;
-
-				// weiterspringen
-				if ((suchZugLaenge < MAXSUCHTIEFE) && (0 < brow) && (brow < 18))
-				    springe(sub_minmax);
-				else
-				    sub_minmax[0] = sub_minmax[1] = brow;
-				if (sub_minmax[0] < this_minmax[0]) this_minmax[0] = sub_minmax[0];
-				if (sub_minmax[1] > this_minmax[1]) this_minmax[1] = sub_minmax[1];
-				
-				Jump ju = new Jump();
-				for (int i=0; i<suchZugLaenge; i++)
-				    ju.push(suchZug[i]);
-				moveFound = jumpFound(ju, sub_minmax[0], sub_minmax[1]);
-			    }
-
-			// setze Zug zurck
-			set(bcol, brow, EMPTY);
-			anz--; bcol -= DCOL[r]; brow -= DROW[r];
-			while (anz > 0)
-			    {
-				set(bcol, brow, PIECE);
-				anz--; bcol -= DCOL[r]; brow -= DROW[r];
-			    }
-			set(bcol, brow, BALL);
-		    }
-	    }
-	suchZugLaenge--;
-    }
-
-
-    // _________________________________________________________________________ 
-
-    private void probiereBoings()
-    {	    
-	int wert;
-	int x, y;
-	for (x=0; x<=18; x++)
-	    for (y=0; y<=18; y++)
-		if (gutzug[x+2][y+2] && on(x, y) == EMPTY)
-		    {
-			set(x, y, PIECE);
-			moveFound = putFound(new Put(x, y));
-			set(x, y, EMPTY);
-		    }
-    }
 
-
-    // _________________________________________________________________________
-
-
-    /**
+    /** Returns the lowest and highest row the ball can reach with a jump in the actual position.
      */
     protected int[] getMinMaxRow()
-    {
-	findMin = brow; findMax = brow;
-	getMinMaxRow_springe();
-	return new int[]{findMin, findMax};
-    }
-
-    private void getMinMaxRow_springe()
-    {
-	int anz;
-	for (int r=0; r < 8; r++)
-	    {
-		if (on(bcol+DCOL[r], brow+DROW[r]) == PIECE)
-		    {
-			anz = 1; bcol += DCOL[r]; brow += DROW[r];
-			do {
-			    set(bcol, brow, EMPTY);
-			    anz++; bcol += DCOL[r]; brow += DROW[r];
-			} while (on(bcol, brow) == PIECE);
-
-			if  (brow <= 0)
-			    findMin = 0;
-			else if (brow >= 18)
-			    findMax = 18;
-			else if ((0 <= bcol) && (bcol <= 18))
-			    {
-				getMinMaxRow_springe();
-				if (brow > findMax)
-				    findMax = brow;
-				if (brow < findMin)
-				    findMin = brow;
-			    }
-
-			bcol -= DCOL[r]; brow -= DROW[r];
-			for (int d=0; d<anz-1; d++)
-			    {
-				set(bcol, brow, PIECE);
-				bcol -= DCOL[r]; brow -= DROW[r];
-			    }
-		    }
-	    }
-    }
+    { return generator.rowRange(new int[2]); }
 
 }
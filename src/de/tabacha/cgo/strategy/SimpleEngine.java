@@ -55,7 +55,10 @@ public class SimpleEngine
     /** Constructor.
      */
     public SimpleEngine()
-    {}
+    {
+	// the jumps are evaluated by the position after them
+	setDistinctJumps(true);
+    }
 
 
     // ----------------------- getter & setter methods -----------------------
@@ -134,9 +137,10 @@ public class SimpleEngine
     protected Move bestMove()
     {
 	int brow = board().getBall().row();
+	int lastRow = board().geometry().rows() - 1;
 
 	// good jump available?
-	if (maxJumpRow >= 18 || maxJumpRow-brow > 4)
+	if (maxJumpRow >= lastRow || maxJumpRow-brow > 4)
 	    return bestOffensiveJump;
 
 	// need to defend?
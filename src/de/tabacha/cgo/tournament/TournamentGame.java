@@ -176,16 +176,16 @@ public class TournamentGame
 
 		time = System.currentTimeMillis();
 		if (direction == UP || player.canPlayBothSides())
-		    m = player.think((Board)board.clone());
+		    m = player.think(new BoardView(board));
 		else
-		    m = player.think(board.upsideDown()).upsideDown();
+		    m = player.think(BoardView.flipped(board)).upsideDown();
 		/*
 		for (int blub = 1; blub <100; blub++)
 		    {
 			if (direction == UP || player.canPlayBothSides())
-			    m = player.think((Board)board.clone());
+			    m = player.think(new BoardView(board));
 			else
-			    m = player.think(board.upsideDown()).upsideDown();
+			    m = player.think(BoardView.flipped(board)).upsideDown();
 		    }
 		*/
 		pushTime(System.currentTimeMillis() - time);
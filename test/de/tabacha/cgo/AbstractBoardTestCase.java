@@ -0,0 +1,649 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import junit.framework.TestCase;
+
+
+/**
+ * The cases every board must pass; the subclasses create the boards.
+ */
+public abstract class AbstractBoardTestCase extends TestCase {
+
+    protected Board board;
+    
+    /*
+     * @see TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+        board = createBoard();
+    }
+
+    public AbstractBoardTestCase(String arg0) {
+        super(arg0);
+    }
+
+    /** Creates a board at the start of a game. */
+    protected abstract Board createBoard();
+
+    /** Creates a board with the given fields. */
+    protected abstract Board createBoard(byte[][] fields, Field ballField, boolean whoseTurn);
+
+    /** The methods of the boards that are not part of the interface. */
+    protected abstract void clear(Board b);
+    protected abstract void nextTurn(Board b);
+    protected abstract void put(Board b, Put move) throws InvalidMoveException;
+    protected abstract void jump(Board b, Jump move) throws InvalidMoveException;
+    protected abstract void jumpOnce(Board b, byte dir, Move move) throws InvalidMoveException;
+
+    /*
+     * Class under test for the constructor without arguments
+     */
+    public void testNewBoard() {
+        board = createBoard();
+        for (int i=0; i < Constants.ROW_COUNT; i++)
+            for (int j=0; j < Constants.COL_COUNT; j++)
+                if (i!=Constants.KICK_OFF_FIELD.col() || j!=Constants.KICK_OFF_FIELD.row())
+                    assertTrue(board.on(i,j) == Constants.EMPTY);
+                else
+                    assertTrue(board.on(i,j) == Constants.BALL);
+        assertEquals(board.getBall(), Constants.KICK_OFF_FIELD);
+    }
+
+    /*
+     * Class under test for the constructor (byte[][], Field, boolean)
+     */
+    public void testNewBoardbyteArrayArrayFieldboolean() {
+        board.addPiece(4,7);
+        board.setBall(15,15);
+        nextTurn(board);
+        
+        Board b2 = createBoard(board.toArray(), board.getBall(), board.whoseTurn());
+        assertEquals(board, b2);
+    }
+
+    /*
+     * Class under test for Object clone()
+     */
+    public void testClone()
+    {
+        Board b2 = (Board)board.clone();
+        assertEquals(board, b2);
+        assertNotSame(board, b2);
+        
+        nextTurn(b2);
+        assertFalse(board.equals(b2));
+    }
+
+    public void testToArray()
+    {
+        clear(board);
+        board.addPiece(15,17);
+        board.setBall(12,4); // col,row
+        byte[][] fields = board.toArray();
+        assertEquals(fields[17][15], Constants.PIECE); // row,col
+        assertEquals(fields[4][12], Constants.BALL);
+        assertEquals(fields[4][1], Constants.EMPTY);
+        fields[4][1] = Constants.PIECE;
+        assertEquals(board.on(1,4), Constants.EMPTY);
+    }
+
+    public void testClear()
+    {
+        assertEquals(board.on(Constants.KICK_OFF_FIELD), Constants.BALL);
+        assertFalse(board.getBall().isOutside());
+        clear(board);
+        assertEquals(board.on(Constants.KICK_OFF_FIELD), Constants.EMPTY);
+        assertTrue(board.getBall().isOutside());
+    }
+
+    public void testReset()
+    {
+        clear(board);
+        assertEquals(board.on(Constants.KICK_OFF_FIELD), Constants.EMPTY);
+        assertTrue(board.getBall().isOutside());
+        board.reset();
+        assertEquals(board.on(Constants.KICK_OFF_FIELD), Constants.BALL);
+        assertFalse(board.getBall().isOutside());
+    }
+
+    public void testUpsideDown()
+    {
+        board.addPiece(16,4);
+        board.setBall(0,0);
+        boolean color = board.whoseTurn();
+        
+        Board b2 = board.upsideDown();
+        
+        assertEquals(b2.on(16,4), Constants.EMPTY);
+        assertEquals(b2.on(16,18-4), Constants.PIECE);
+        assertEquals(b2.on(0,0), Constants.EMPTY);
+        assertEquals(b2.on(0,18-0), Constants.BALL);
+        assertEquals(b2.getBall(), new Field(0,18-0));
+        assertTrue(b2.whoseTurn() == !color);
+    }
+
+    public void testNextTurn()
+    {
+        boolean c1 = board.whoseTurn();
+        nextTurn(board);
+        assertFalse(board.whoseTurn() == c1);
+        nextTurn(board);
+        assertTrue(board.whoseTurn() == c1);
+    }
+
+    public void testWhoseTurn()
+    {
+        assertTrue(board.whoseTurn() == board.whoseTurn());
+    }
+
+    /*
+     * Class under test for byte on(int, int)
+     */
+    public void testOnintint()
+    {
+        assertEquals(board.on(-1,-1), Constants.EMPTY);
+        assertEquals(board.on(9,9), Constants.BALL);
+        assertEquals(board.on(14,4), Constants.EMPTY);
+        board.addPiece(14,4);
+        assertEquals(board.on(14,4), Constants.PIECE);
+    }
+
+    /*
+     * Class under test for byte on(Field)
+     */
+    public void testOnField()
+    {
+        assertEquals(board.on(new Field(-1,-1)), Constants.EMPTY);
+        assertEquals(board.on(new Field(9,9)), Constants.BALL);
+        assertEquals(board.on(new Field(14,4)), Constants.EMPTY);
+        board.addPiece(14,4);
+        assertEquals(board.on(new Field(14,4)), Constants.PIECE);
+    }
+
+    public void testSquares()
+    {
+        board.addPiece(14,4);
+        for (int c=-1; c<=Constants.COL_COUNT; c++)
+            for (int r=-1; r<=Constants.ROW_COUNT; r++) {
+                int sq = Field.square(c,r);
+                assertEquals(board.on(c,r), board.onSquare(sq));
+                if (sq == Constants.NO_SQUARE)
+                    continue;
+                assertEquals(new Field(c,r), Field.ofSquare(sq));
+                for (byte d=Constants.FIRST_DIRECTION; d<=Constants.LAST_DIRECTION; d++)
+                    assertEquals(Field.square(c+Constants.DCOL[d], r+Constants.DROW[d]), board.neighbor(sq, d));
+            }
+        assertEquals(board.ballSquare(), Constants.KICK_OFF_FIELD.square());
+        assertEquals(board.neighbor(Constants.NO_SQUARE, Constants.N), Constants.NO_SQUARE);
+        board.setBall(4,-1);
+        assertEquals(board.ballSquare(), Constants.NO_SQUARE);
+    }
+
+    public void testGetBall()
+    {
+        board.setBall(4,3);
+        assertEquals(board.getBall(), new Field(4,3));
+    }
+
+    /*
+     * Class under test for void setBall(Field)
+     */
+    public void testSetBallField()
+    {
+        Field in1 = new Field(1,2);
+        Field in2 = new Field(10,11);
+        Field out1 = new Field(-1,-1);
+        Field out2 = new Field(6,19);
+        
+        // initial positioning
+        board.setBall(in1);
+        assertEquals(board.getBall(), in1);
+        assertEquals(board.on(in1), Constants.BALL);
+
+        // from inside to inside
+        board.setBall(in2);
+        assertEquals(board.getBall(), in2);
+        assertEquals(board.on(in1), Constants.EMPTY);
+        assertEquals(board.on(in2), Constants.BALL);
+        
+        // from inside to outside
+        board.setBall(out1);
+        assertEquals(board.getBall(), out1);
+        assertEquals(board.on(in2), Constants.EMPTY);
+        assertEquals(board.on(out1), Constants.EMPTY); // !
+
+        // from outside to outside
+        board.setBall(out2);
+        assertEquals(board.getBall(), out2);
+        assertEquals(board.on(out1), Constants.EMPTY);
+        assertEquals(board.on(out2), Constants.EMPTY); // !
+
+        // from outside to inside
+        board.setBall(in1);
+        assertEquals(board.getBall(), in1);
+        assertEquals(board.on(out2), Constants.EMPTY);
+        assertEquals(board.on(in1), Constants.BALL);
+    }
+
+    /*
+     * Class under test for void setBall(int, int)
+     */
+    public void testSetBallintint()
+    {
+        Field in1 = new Field(1,2);
+        Field in2 = new Field(10,11);
+        Field out1 = new Field(-1,-1);
+        Field out2 = new Field(6,19);
+        
+        // initial positioning
+        board.setBall(in1.col(), in1.row());
+        assertEquals(board.getBall(), in1);
+        assertEquals(board.on(in1), Constants.BALL);
+
+        // from inside to inside
+        board.setBall(in2.col(), in2.row());
+        assertEquals(board.getBall(), in2);
+        assertEquals(board.on(in1), Constants.EMPTY);
+        assertEquals(board.on(in2), Constants.BALL);
+        
+        // from inside to outside
+        board.setBall(out1.col(), out1.row());
+        assertEquals(board.getBall(), out1);
+        assertEquals(board.on(in2), Constants.EMPTY);
+        assertEquals(board.on(out1), Constants.EMPTY); // !
+
+        // from outside to outside
+        board.setBall(out2.col(), out2.row());
+        assertEquals(board.getBall(), out2);
+        assertEquals(board.on(out1), Constants.EMPTY);
+        assertEquals(board.on(out2), Constants.EMPTY); // !
+
+        // from outside to inside
+        board.setBall(in1.col(), in1.row());
+        assertEquals(board.getBall(), in1);
+        assertEquals(board.on(out2), Constants.EMPTY);
+        assertEquals(board.on(in1), Constants.BALL);
+    }
+    
+    /*
+     * Class under test for void setPiece(Field)
+     */
+    public void testSetPieceField()
+    {
+       assertEquals(board.on(13,7), Constants.EMPTY);
+       board.addPiece(new Field(13,7));
+       assertEquals(board.on(13,7), Constants.PIECE);
+       
+       // nothing happens if setting on an occupied field
+       board.addPiece(Constants.KICK_OFF_FIELD);
+       assertEquals(board.on(Constants.KICK_OFF_FIELD), Constants.BALL);
+    }
+
+    /*
+     * Class under test for void setPiece(int, int)
+     */
+    public void testSetPieceintint()
+    {
+        assertEquals(board.on(13,7), Constants.EMPTY);
+        board.addPiece(13,7);
+        assertEquals(board.on(13,7), Constants.PIECE);
+        
+        // nothing happens if setting on an occupied field
+        board.addPiece(9,9);
+        assertEquals(board.on(Constants.KICK_OFF_FIELD), Constants.BALL);
+    }
+
+    /*
+     * Class under test for void removePiece(Field)
+     */
+    public void testRemovePieceField()
+    {
+        board.addPiece(0,18);
+        assertEquals(board.on(0,18), Constants.PIECE);
+
+        board.removePiece(new Field(0,18));
+        assertEquals(board.on(0,18), Constants.EMPTY);
+
+        board.removePiece(new Field(0,1));
+        assertEquals(board.on(0,1), Constants.EMPTY);
+        
+        board.removePiece(new Field(9,9));
+        assertEquals(board.on(9,9), Constants.BALL);
+    }
+
+    /*
+     * Class under test for void removePiece(int, int)
+     */
+    public void testRemovePieceintint()
+    {
+        board.addPiece(0,18);
+        assertEquals(board.on(0,18), Constants.PIECE);
+
+        board.removePiece(0,18);
+        assertEquals(board.on(0,18), Constants.EMPTY);
+
+        board.removePiece(0,1);
+        assertEquals(board.on(0,1), Constants.EMPTY);
+        
+        board.removePiece(9,9);
+        assertEquals(board.on(9,9), Constants.BALL);
+    }
+
+    public void testMove()
+    {
+        boolean color;
+        
+        // empty move
+        try {
+            board.move(null);
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals(e.getMessage(), "error.move.empty");
+        }
+        
+        // simple put
+        try {
+            color = board.whoseTurn();
+            board.move(new Put(8,9));
+            assertTrue(board.whoseTurn() != color);
+            assertEquals(board.on(8,9), Constants.PIECE);
+        } catch (InvalidMoveException e) {
+            fail();
+        }
+
+        // simple jump
+        try {
+            color = board.whoseTurn();
+            board.move(new Jump(new byte[]{Constants.W}));
+            assertTrue(board.whoseTurn() != color);
+            assertEquals(board.on(9,9), Constants.EMPTY);
+            assertEquals(board.on(8,9), Constants.EMPTY);
+            assertEquals(board.on(7,9), Constants.BALL);
+        } catch (InvalidMoveException e) {
+            fail();
+        }
+    }
+
+    public void testPut()
+    {
+        // simple put
+        try {
+            put(board, new Put(8,9));
+            assertEquals(board.on(8,9), Constants.PIECE);
+        } catch (InvalidMoveException e) {
+            fail();
+        }
+        
+        // put a piece onto a piece
+        try {
+            put(board, new Put(8,9));
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals(e.getMessage(), "error.move.put_not_empty");
+        }
+        
+        // put a piece onto the ball
+        try {
+            put(board, new Put(9,9));
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals(e.getMessage(), "error.move.put_not_empty");
+        }
+
+        // put a piece outside the board
+        try {
+            put(board, new Put(75,9));
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals(e.getMessage(), "error.move.put_outside");
+        }
+    }
+
+    public void testJump()
+    {
+        // jump zero times
+        try {
+            board.reset();
+            board.addPiece(10,9);
+            jump(board, new Jump());
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals(e.getMessage(), "error.move.empty");
+        }
+
+        // jump once - a good one
+        try {
+            board.reset();
+            board.addPiece(10,9);
+            jump(board, new Jump(new byte[]{Constants.E}));
+            assertEquals(board.on(9,9), Constants.EMPTY);
+            assertEquals(board.on(10,9), Constants.EMPTY);
+            assertEquals(board.on(11,9), Constants.BALL);
+            assertEquals(board.getBall(), new Field(11,9));
+        } catch (InvalidMoveException e) {
+            fail();
+        }
+ 
+        // jump to goal
+        try {
+            board.reset();
+            int r;
+            for (r=10; r<19; r++)
+                board.addPiece(9,r);
+            jump(board, new Jump(new byte[]{Constants.S}));
+            assertTrue(board.getBall().isInGoal());
+            for (r=9; r<19; r++)
+                assertEquals(board.on(9,r), Constants.EMPTY);
+            assertTrue(board.getBall().isOutside());
+        } catch (InvalidMoveException e) {
+            fail();
+        }
+
+        // jump outside
+        try {
+            board.reset();
+            int r;
+            for (r=10; r<19; r++)
+                board.addPiece(r,9);
+            jump(board, new Jump(new byte[]{Constants.E}));
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals(e.getMessage(), "error.move.jump_outside");
+        }
+    }
+
+    public void testJumpOnce()
+    {
+        // jump over zero pieces
+        try {
+            board.reset();
+            board.addPiece(8,8);
+            jumpOnce(board, Constants.E, new Jump(new byte[]{Constants.E}));
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals(e.getMessage(), "error.move.jump_wrongdir");
+        }
+
+        // jump in nonexisting direction
+        try {
+            jumpOnce(board, (byte)60, new Jump(new byte[]{60}));
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals(e.getMessage(), "error.move.jump_nodir");
+        }
+
+        // a good jump
+        try {
+            board.reset();
+            board.addPiece(10,9);
+            jumpOnce(board, Constants.E, new Jump(new byte[]{Constants.E}));
+            assertEquals(board.on(9,9), Constants.EMPTY);
+            assertEquals(board.on(10,9), Constants.EMPTY);
+            assertEquals(board.on(11,9), Constants.BALL);
+            assertEquals(board.getBall(), new Field(11,9));
+        } catch (InvalidMoveException e) {
+            fail();
+        }
+        
+        // jump in the corner
+        try {
+            clear(board);
+            board.setBall(1,1);
+            board.addPiece(0,0);
+            jumpOnce(board, Constants.NW, new Jump(new byte[]{Constants.NW}));
+            assertEquals(board.on(1,1), Constants.EMPTY);
+            assertEquals(board.on(0,0), Constants.EMPTY);
+            assertTrue(board.getBall().isOutside());
+            assertTrue(board.getBall().isInGoal());
+        } catch (InvalidMoveException e) {
+            fail();
+        }
+    }
+
+    public void testMakeUnmakeMove() throws InvalidMoveException
+    {
+        // nothing to take back
+        try {
+            board.unmakeMove();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // a game and back
+        java.util.Random random = new java.util.Random(815);
+        java.util.List positions = new java.util.ArrayList();
+        while (!board.getBall().isInGoal()) {
+            Field ball = board.getBall();
+            byte dir = (byte)random.nextInt(8);
+            Move m;
+            if (board.on(ball.fieldIn(dir)) == Constants.PIECE && random.nextInt(3) == 0)
+                m = new Jump(new byte[]{dir, (byte)random.nextInt(8)});
+            else
+                m = new Put(ball.col() + random.nextInt(5) - 2, ball.row() + random.nextInt(5) - 2);
+            Board before = (Board)board.clone();
+            try {
+                board.makeMove(m);
+            } catch (InvalidMoveException e) {
+                // board unchanged
+                assertEquals(before, board);
+                assertEquals(before.zobrist(), board.zobrist());
+                assertEquals(before.getBall(), board.getBall());
+                continue;
+            }
+            positions.add(before);
+        }
+        for (int i=positions.size()-1; i>=0; i--) {
+            board.unmakeMove();
+            Board expected = (Board)positions.get(i);
+            assertEquals(expected, board);
+            assertEquals(expected.zobrist(), board.zobrist());
+            assertEquals(expected.getBall(), board.getBall());
+        }
+        assertEquals(createBoard(), board);
+    }
+
+    public void testTryMove() throws InvalidMoveException
+    {
+        board.move(new Put(9,10));
+        board.move(new Put(9,11));
+        long key = board.zobrist();
+        assertEquals(Constants.ILLEGAL_PUT_NOT_EMPTY, board.tryMove(new Put(9,10)));
+        assertEquals(Constants.ILLEGAL_PUT_OUTSIDE, board.tryMove(new Put(19,10)));
+        assertEquals(Constants.ILLEGAL_EMPTY, board.tryMove(null));
+        assertEquals(Constants.ILLEGAL_EMPTY, board.tryMove(new Jump()));
+        assertEquals(Constants.ILLEGAL_JUMP_NODIR, board.tryMove(new Jump(new byte[]{8})));
+        assertEquals(Constants.ILLEGAL_JUMP_WRONGDIR, board.tryMove(new Jump(new byte[]{Constants.N})));
+        // the first leap is legal, the second not: nothing is changed
+        assertEquals(Constants.ILLEGAL_JUMP_WRONGDIR, board.tryMove(new Jump(new byte[]{Constants.S, Constants.S})));
+        assertEquals(key, board.zobrist());
+        assertEquals(Constants.PIECE, board.on(9,10));
+        assertEquals(Constants.KICK_OFF_FIELD, board.getBall());
+
+        assertFalse(board.isLegal(new Put(9,11)));
+        assertTrue(board.isLegal(new Jump(new byte[]{Constants.S})));
+        assertEquals(key, board.zobrist());
+        assertEquals(Constants.UP, board.whoseTurn());
+
+        assertEquals(Constants.LEGAL, board.tryMove(new Jump(new byte[]{Constants.S})));
+        assertEquals(new Field(9,12), board.getBall());
+        assertEquals(Constants.DOWN, board.whoseTurn());
+        assertEquals(key ^ Zobrist.piece(9,10) ^ Zobrist.piece(9,11) ^ Zobrist.ball(9,9) ^ Zobrist.ball(9,12)
+                     ^ Zobrist.DOWN_TO_MOVE, board.zobrist());
+
+        InvalidMoveException e = new InvalidMoveException(Constants.ILLEGAL_JUMP_OUTSIDE, null);
+        assertEquals("error.move.jump_outside", e.getMessage());
+        assertEquals(Constants.ILLEGAL_JUMP_OUTSIDE, e.getStatus());
+    }
+
+    public void testEquals()
+    {
+        assertFalse(board.equals(new Integer(13)));
+        Board b2 = (Board)board.clone();
+        assertTrue(board.equals(b2));
+        nextTurn(b2);
+        assertFalse(board.equals(b2));
+        nextTurn(b2);
+        assertTrue(board.equals(b2));
+        b2.setBall(20,20);
+        assertFalse(board.equals(b2));
+    }
+
+    public void testHashCode()
+    {
+        // Test if clone have the same hash code
+        assertEquals(board.hashCode(), board.clone().hashCode());
+        
+        // no overflow?
+        board.setBall(18,18);
+        for (int c=0; c<18; c++)
+            for (int r=0; r<18; r++)
+                board.addPiece(c,r);
+        assertTrue(board.hashCode() < Integer.MAX_VALUE);
+    }
+
+    public void testZobrist() throws InvalidMoveException
+    {
+        assertEquals(board.zobrist(), Zobrist.of(board));
+        assertEquals(board.zobrist(), ((Board)board.clone()).zobrist());
+
+        // side to move is part of the key
+        long before = board.zobrist();
+        nextTurn(board);
+        assertFalse(before == board.zobrist());
+        nextTurn(board);
+        assertEquals(before, board.zobrist());
+
+        // row 0 and column 0 count, too
+        board.addPiece(0,5);
+        assertFalse(before == board.zobrist());
+        board.removePiece(0,5);
+        assertEquals(before, board.zobrist());
+
+        // incremental key equals the computed one after puts and jumps
+        board.move(new Put(10,9));
+        board.move(new Put(11,9));
+        board.move(new Put(13,10));
+        board.move(new Jump(new byte[]{Constants.E}));
+        assertEquals(board.zobrist(), Zobrist.of(board));
+        assertEquals(board.zobrist(), createBoard(board.toArray(), board.getBall(), board.whoseTurn()).zobrist());
+        assertEquals(board.upsideDown().zobrist(), Zobrist.of(board.upsideDown()));
+
+        board.setBall(3,-1);
+        assertEquals(board.zobrist(), Zobrist.of(board));
+        clear(board);
+        assertEquals(board.zobrist(), Zobrist.of(board));
+    }
+
+    public void testToString()
+    {
+        // not much to test here...output is meant for debugging only
+        board.addPiece(4,8); // for 100% code coverage
+        String output = board.toString();
+        assertNotNull(output);
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of BinaryCodec.
+ */
+public class BinaryCodecTest extends TestCase {
+
+    private DefaultBoard board;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        board = new DefaultBoard();
+        board.move(new Put(0, 0));
+        board.move(new Put(18, 18));
+        board.move(new Put(9, 10));
+    }
+
+    public BinaryCodecTest(String arg0) {
+        super(arg0);
+    }
+
+    private static Object serialize(Object o, int maxBytes) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(o);
+        out.close();
+        assertTrue("" + bytes.size(), bytes.size() <= maxBytes);
+        return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+
+    public void testVarint() {
+        ByteBuffer buf = ByteBuffer.allocate(32);
+        int[] values = {0, 1, 127, 128, 360, 16383, 16384, Integer.MAX_VALUE};
+        for (int i=0; i < values.length; i++)
+            BinaryCodec.writeVarint(buf, values[i]);
+        assertEquals(1+1+1+2+2+2+3+5, buf.position());
+        buf.flip();
+        for (int i=0; i < values.length; i++)
+            assertEquals(values[i], BinaryCodec.readVarint(buf));
+    }
+
+    public void testBoard() throws InvalidMoveException {
+        ByteBuffer buf = ByteBuffer.allocate(BinaryCodec.maxBoardBytes(BoardGeometry.DEFAULT));
+        BinaryCodec.writeBoard(buf, board);
+        assertEquals(51, buf.position());
+        buf.flip();
+        DefaultBoard copy = BinaryCodec.readBoard(buf);
+        assertEquals(board, copy);
+        assertEquals(board.getBall(), copy.getBall());
+        assertEquals(board.zobrist(), copy.zobrist());
+
+        // ball in the goal, other size
+        DefaultBoard small = new DefaultBoard(BoardGeometry.of(5, 5));
+        small.move(new Put(2, 3));
+        small.move(new Put(2, 4));
+        small.move(new Jump(new byte[]{Constants.S}));
+        assertEquals(new Field(2, 5), small.getBall());
+        buf.clear();
+        BinaryCodec.writeBoard(buf, small);
+        buf.flip();
+        copy = BinaryCodec.readBoard(buf);
+        assertEquals(small, copy);
+        assertEquals(small.getBall(), copy.getBall());
+        assertFalse(buf.hasRemaining());
+    }
+
+    public void testMoves() {
+        List moves = new ArrayList();
+        moves.add(new Put(3, 4));
+        moves.add(new Jump(new byte[]{Constants.S}));
+        moves.add(new Jump(new byte[]{Constants.N, Constants.NW, Constants.E}));
+        moves.add(new Put(18, 18));
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        BinaryCodec.writeMoves(buf, moves, BoardGeometry.DEFAULT);
+        assertEquals(1 + 2 + 2 + 3 + 2, buf.position());
+        buf.flip();
+        assertEquals(moves, BinaryCodec.readMoves(buf, BoardGeometry.DEFAULT));
+
+        buf.clear();
+        BinaryCodec.writeMove(buf, new Put(8, 8), BoardGeometry.of(9, 9));
+        buf.flip();
+        assertEquals(new Put(8, 8), BinaryCodec.readMove(buf, BoardGeometry.of(9, 9)));
+        try {
+            BinaryCodec.writeMove(buf, new Put(9, 9), BoardGeometry.of(9, 9));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testSerialization() throws Exception {
+        Object copy = serialize(board, 120);
+        assertTrue(copy instanceof DefaultBoard);
+        assertEquals(board, copy);
+        assertEquals(board.getBall(), ((Board)copy).getBall());
+
+        copy = serialize(new BitBoard(board), 120);
+        assertTrue(copy instanceof BitBoard);
+        assertEquals(board.zobrist(), ((Board)copy).zobrist());
+
+        copy = serialize(new Snapshot(board), 120);
+        assertEquals(new Snapshot(board), copy);
+
+        Jump jump = new Jump(new byte[]{Constants.S, Constants.E, Constants.N});
+        assertEquals(jump, serialize(jump, 80));
+        assertEquals(new Put(5, 6), serialize(new Put(5, 6), 80));
+        assertEquals(new Put(-1, 30), serialize(new Put(-1, 30), 80));
+    }
+
+}
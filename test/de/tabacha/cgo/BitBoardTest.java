@@ -0,0 +1,86 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+
+/**
+ * The cases of AbstractBoardTestCase, run against BitBoard.
+ */
+public class BitBoardTest extends AbstractBoardTestCase {
+
+    public BitBoardTest(String arg0) {
+        super(arg0);
+    }
+
+    protected Board createBoard() {
+        return new BitBoard();
+    }
+
+    protected Board createBoard(byte[][] fields, Field ballField, boolean whoseTurn) {
+        return new BitBoard(fields, ballField, whoseTurn);
+    }
+
+    protected void clear(Board b) {
+        ((BitBoard)b).clear();
+    }
+
+    protected void nextTurn(Board b) {
+        ((BitBoard)b).nextTurn();
+    }
+
+    protected void put(Board b, Put move) throws InvalidMoveException {
+        ((BitBoard)b).put(move);
+    }
+
+    protected void jump(Board b, Jump move) throws InvalidMoveException {
+        ((BitBoard)b).jump(move);
+    }
+
+    protected void jumpOnce(Board b, byte dir, Move move) throws InvalidMoveException {
+        ((BitBoard)b).jumpOnce(dir, move);
+    }
+
+    /*
+     * Runs in all directions, also across word boundaries, compared with DefaultBoard.
+     */
+    public void testSameAsDefaultBoard() throws InvalidMoveException
+    {
+        java.util.Random random = new java.util.Random(4711);
+        for (int game=0; game<200; game++) {
+            DefaultBoard reference = new DefaultBoard();
+            board.reset();
+            while (!reference.getBall().isInGoal()) {
+                Field ball = reference.getBall();
+                byte dir = (byte)random.nextInt(8);
+                Move m;
+                if (reference.on(ball.fieldIn(dir)) == Constants.PIECE && random.nextInt(3) == 0)
+                    m = new Jump(new byte[]{dir});
+                else {
+                    Field f = new Field(ball.col() + random.nextInt(7) - 3, ball.row() + random.nextInt(7) - 3);
+                    if (f.isOutside() || reference.on(f) != Constants.EMPTY)
+                        continue;
+                    m = new Put(f);
+                }
+                try {
+                    reference.move(m);
+                } catch (InvalidMoveException e) {
+                    // jumped outside: the boards must agree on that, too
+                    try {
+                        board.move(m);
+                        fail();
+                    } catch (InvalidMoveException e2) {
+                        assertEquals(e.getMessage(), e2.getMessage());
+                    }
+                    break;
+                }
+                board.move(m);
+                assertEquals(reference.getBall(), board.getBall());
+                assertEquals(reference.zobrist(), board.zobrist());
+                assertTrue(java.util.Arrays.deepEquals(reference.toArray(), board.toArray()));
+                assertTrue(java.util.Arrays.deepEquals(reference.upsideDown().toArray(), board.upsideDown().toArray()));
+            }
+        }
+    }
+
+}
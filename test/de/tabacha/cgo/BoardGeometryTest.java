@@ -0,0 +1,104 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import junit.framework.TestCase;
+
+import de.tabacha.cgo.strategy.MikeGo;
+import de.tabacha.cgo.strategy.SimpleEngine;
+
+
+/**
+ * Tests of BoardGeometry.
+ */
+public class BoardGeometryTest extends TestCase {
+
+    public BoardGeometryTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testOf() {
+        assertTrue(BoardGeometry.of(19, 19) == BoardGeometry.DEFAULT);
+        assertTrue(BoardGeometry.of(9, 9) == BoardGeometry.of(9, 9));
+        assertFalse(BoardGeometry.of(9, 11) == BoardGeometry.of(11, 9));
+        int[] wrong = {3, 8, 20, 41};
+        for (int i=0; i < wrong.length; i++) {
+            try {
+                BoardGeometry.of(wrong[i], 19);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+
+    public void testSquares() {
+        BoardGeometry g = BoardGeometry.of(9, 7);
+        assertEquals(63, g.squareCount());
+        assertEquals(4, g.kickOffCol());
+        assertEquals(3, g.kickOffRow());
+        int sq = g.square(2, 5);
+        assertEquals(2, g.col(sq));
+        assertEquals(5, g.row(sq));
+        assertEquals(g.square(3, 4), g.neighbor(sq, Constants.NE));
+        assertEquals(Constants.NO_SQUARE, g.square(9, 0));
+        assertEquals(Constants.NO_SQUARE, g.neighbor(g.square(8, 3), Constants.E));
+        assertTrue(g.isInGoalOf(Constants.DOWN, 4, 6));
+        assertFalse(g.isInGoalOf(Constants.DOWN, 4, 5));
+        assertTrue(g.isInGoalOf(Constants.UP, 4, 0));
+        assertEquals(1, g.upsideDownRow(5));
+        for (sq=0; sq < Constants.SQUARE_COUNT; sq++)
+            for (byte dir=Constants.FIRST_DIRECTION; dir <= Constants.LAST_DIRECTION; dir++)
+                assertEquals(Constants.NEIGHBOR[(sq << 3) | dir], BoardGeometry.DEFAULT.neighbor(sq, dir));
+    }
+
+    public void testSmallBoard() throws InvalidMoveException {
+        BoardGeometry g = BoardGeometry.of(9, 9);
+        DefaultBoard board = new DefaultBoard(g);
+        assertTrue(board.geometry() == g);
+        assertEquals(new Field(4, 4), board.getBall());
+        assertEquals(9, board.toArray().length);
+        assertEquals(Zobrist.of(board), board.zobrist());
+        assertFalse(board.equals(new DefaultBoard()));
+
+        Snapshot s = Snapshot.start(g);
+        assertEquals(new Snapshot(board), s);
+        for (int r=5; r < 8; r++) {
+            board.move(new Put(4, r));
+            s = s.after(new Put(4, r));
+            board.move(new Put(0, r));
+            s = s.after(new Put(0, r));
+        }
+        Jump j = new Jump(new byte[]{Constants.S});
+        board.move(j);
+        s = s.after(j);
+        assertEquals(new Field(4, 8), board.getBall());
+        assertTrue(board.getBall().isInGoalOf(Constants.DOWN, g));
+        assertFalse(board.getBall().isInGoalOf(Constants.DOWN));
+        assertEquals(board.getBall(), s.getBall());
+        assertEquals(board.zobrist(), s.zobrist());
+        assertEquals(new Field(4, 0), s.upsideDown().getBall());
+        assertEquals(Constants.PIECE, s.upsideDown().on(0, 1));
+        assertEquals(new Put(0, 8), new Put(0, 0).upsideDown(g));
+    }
+
+    public void testEngines() throws InvalidMoveException {
+        int[] sizes = {5, 9, 39};
+        Engine[] engines = {new SimpleEngine(), new MikeGo()};
+        for (int i=0; i < sizes.length; i++)
+            for (int e=0; e < engines.length; e++) {
+                BoardGeometry g = BoardGeometry.of(sizes[i], sizes[i]);
+                engines[e].initGame(4711);
+                DefaultBoard board = new DefaultBoard(g);
+                for (int n=0; n < 400 && !board.getBall().isInGoal(g); n++) {
+                    Move m;
+                    if (board.whoseTurn() == Constants.UP)
+                        m = engines[e].think((Board)board.clone());
+                    else
+                        m = engines[e].think(board.upsideDown()).upsideDown(g);
+                    board.move(m);
+                }
+            }
+    }
+
+}
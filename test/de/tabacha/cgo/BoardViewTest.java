@@ -0,0 +1,71 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of BoardView.
+ */
+public class BoardViewTest extends TestCase {
+
+    private DefaultBoard board;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        board = new DefaultBoard();
+        board.move(new Put(3, 4));
+        board.move(new Put(9, 10));
+        board.move(new Put(9, 11));
+    }
+
+    public BoardViewTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testSameAsUpsideDown() {
+        Board copy = board.upsideDown();
+        Board view = BoardView.flipped(board);
+        assertTrue(Arrays.deepEquals(copy.toArray(), view.toArray()));
+        assertEquals(copy.getBall(), view.getBall());
+        assertEquals(copy.ballSquare(), view.ballSquare());
+        assertEquals(copy.whoseTurn(), view.whoseTurn());
+        assertEquals(copy.zobrist(), view.zobrist());
+        for (int sq=0; sq < Constants.SQUARE_COUNT; sq++)
+            assertEquals(copy.onSquare(sq), view.onSquare(sq));
+        assertEquals(Constants.PIECE, view.on(3, 14));
+        assertEquals(Constants.PIECE, view.on(new Field(9, 8)));
+        assertEquals(copy, view.clone());
+    }
+
+    public void testFlipBack() {
+        BoardView view = BoardView.flipped(board);
+        Board back = view.upsideDown();
+        assertTrue(back instanceof BoardView);
+        assertFalse(((BoardView)back).isFlipped());
+        assertTrue(((BoardView)back).getBoard() == board);
+        assertEquals(board.zobrist(), back.zobrist());
+        assertTrue(BoardView.flipped(view).getBoard() == board);
+        assertTrue(Arrays.deepEquals(board.toArray(), back.toArray()));
+    }
+
+    public void testLiveAndReadOnly() throws InvalidMoveException {
+        BoardView view = BoardView.flipped(board);
+        Move jump = new Jump(new byte[]{Constants.N});
+        Board copy = (Board)view.clone();
+        copy.move(jump);
+        board.move(view.toBoard(jump));
+        assertEquals(copy.getBall(), view.getBall());
+        assertEquals(Constants.EMPTY, view.on(9, 8));
+        try {
+            view.move(new Put(1, 1));
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of ConcurrentBoard.
+ */
+public class ConcurrentBoardTest extends TestCase {
+
+    private ConcurrentBoard board;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        board = new ConcurrentBoard();
+    }
+
+    public ConcurrentBoardTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testVersion() throws InvalidMoveException {
+        long v = board.version();
+        assertEquals(Constants.KICK_OFF_FIELD, board.getBall());
+        assertEquals(v, board.version());
+        board.move(new Put(9, 10));
+        assertTrue(board.version() > v);
+        assertEquals(Constants.PIECE, board.on(9, 10));
+        assertEquals(Constants.DOWN, board.whoseTurn());
+
+        v = board.version();
+        board.makeMove(new Jump(new byte[]{Constants.S}));
+        assertTrue(board.version() > v);
+        assertEquals(new Field(9, 11), board.getBall());
+        board.unmakeMove();
+        assertEquals(Constants.PIECE, board.on(9, 10));
+        assertEquals(new DefaultBoard().zobrist() ^ Zobrist.piece(9, 10) ^ Zobrist.DOWN_TO_MOVE,
+                     board.zobrist());
+    }
+
+    public void testCopies() throws InvalidMoveException {
+        board.move(new Put(1, 2));
+        Board copy = (Board)board.clone();
+        board.move(new Put(3, 4));
+        assertEquals(Constants.EMPTY, copy.on(3, 4));
+        assertEquals(Constants.PIECE, board.upsideDown().on(3, Constants.ROW_COUNT-1-4));
+        Snapshot s = board.snapshot();
+        assertEquals(board.zobrist(), s.zobrist());
+        assertEquals(Constants.PIECE, s.on(1, 2));
+    }
+
+    public void testIsLegal() throws InvalidMoveException {
+        Jump south = new Jump(new byte[]{Constants.S});
+        assertFalse(board.isLegal(south));
+        long v = board.version();
+        Snapshot s = board.snapshot();
+        assertTrue(board.isLegal(new Put(9, 10)));
+        assertEquals(v, board.version());
+        assertSame(s, board.snapshot());
+        board.move(new Put(9, 10));
+        assertTrue(board.isLegal(south));
+        assertFalse(board.isLegal(new Put(9, 10)));
+        assertNotSame(s, board.snapshot());
+    }
+
+    /** A reader thread must always see complete positions while another thread makes moves. */
+    public void testConcurrentReads() throws InterruptedException {
+        final boolean[] failed = {false};
+        Thread reader = new Thread() {
+                public void run() {
+                    while (!isInterrupted()) {
+                        Snapshot s = board.snapshot();
+                        if (s.zobrist() != Zobrist.of(s))
+                            failed[0] = true;
+                        board.toArray();
+                        board.getBall();
+                        board.isLegal(new Put(0, 1));
+                    }
+                }
+            };
+        reader.start();
+        try {
+            java.util.Random random = new java.util.Random(1234);
+            for (int i=0; i < 2000; i++) {
+                board.reset();
+                for (int j=0; j < 20; j++) {
+                    int col = random.nextInt(Constants.COL_COUNT);
+                    int row = random.nextInt(Constants.ROW_COUNT);
+                    if (board.on(col, row) == Constants.EMPTY)
+                        board.move(new Put(col, row));
+                }
+            }
+        } catch (InvalidMoveException e) {
+            fail(e.getMessage());
+        } finally {
+            reader.interrupt();
+            reader.join();
+        }
+        assertFalse(failed[0]);
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of Jump.
+ */
+public class JumpTest extends TestCase {
+
+    public JumpTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testImmutable() {
+        byte[] directions = {Constants.S, Constants.E};
+        Jump jump = new Jump(directions);
+        directions[0] = Constants.N;
+        assertEquals(Constants.S, jump.leap(0));
+        jump.toArray()[1] = Constants.W;
+        assertEquals(Constants.E, jump.leap(1));
+        assertTrue(jump.clone() == jump);
+        assertEquals(2, jump.size());
+        assertTrue(new Jump().isEmpty());
+        try {
+            jump.leap(2);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    public void testEquals() {
+        Jump jump = new Jump(new byte[]{Constants.S, Constants.E});
+        assertEquals(jump, new Jump(new byte[]{Constants.S, Constants.E, Constants.N}, 2));
+        assertEquals(jump.hashCode(), new Jump(new byte[]{Constants.S, Constants.E}).hashCode());
+        assertFalse(jump.equals(new Jump(new byte[]{Constants.S})));
+        assertEquals(jump, jump.upsideDown().upsideDown());
+    }
+
+    public void testDirection() {
+        for (byte dir = Constants.FIRST_DIRECTION; dir <= Constants.LAST_DIRECTION; dir++)
+            assertEquals(dir, Jump.direction(new Jump(new byte[]{dir}).toString().substring(7)));
+        assertEquals(Constants.NW, Jump.direction("nw"));
+        try {
+            Jump.direction("X");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testBuilder() {
+        Jump.Builder builder = new Jump.Builder();
+        assertTrue(builder.isEmpty());
+        assertEquals(-1, builder.pop());
+        for (int i=0; i < 30; i++)
+            builder.push((byte)(i % 8));
+        assertEquals(30, builder.size());
+        Jump jump = builder.toJump();
+        assertEquals(5, builder.pop());
+        assertEquals(30, jump.size());
+        assertEquals(5, jump.leap(29));
+        assertEquals(29, builder.toJump().size());
+
+        builder = new Jump.Builder(jump);
+        assertEquals(jump, builder.toJump());
+        builder.clear();
+        assertTrue(builder.toJump().isEmpty());
+    }
+
+    /** The same jump is made on two boards at the same time. */
+    public void testShared() throws Exception {
+        final Jump jump = new Jump(new byte[]{Constants.S, Constants.E});
+        final DefaultBoard[] boards = new DefaultBoard[2];
+        final Exception[] failure = new Exception[1];
+        Thread[] threads = new Thread[2];
+        for (int t=0; t < threads.length; t++) {
+            final int n = t;
+            threads[t] = new Thread() {
+                    public void run() {
+                        try {
+                            for (int i=0; i < 2000; i++) {
+                                DefaultBoard board = new DefaultBoard();
+                                board.move(new Put(9, 10));
+                                board.move(new Put(10, 11));
+                                board.move(jump);
+                                boards[n] = board;
+                            }
+                        } catch (InvalidMoveException e) {
+                            failure[0] = e;
+                        }
+                    }
+                };
+            threads[t].start();
+        }
+        for (int t=0; t < threads.length; t++)
+            threads[t].join();
+        if (failure[0] != null)
+            throw failure[0];
+        assertEquals(new Field(11, 11), boards[0].getBall());
+        assertEquals(boards[0], boards[1]);
+    }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of MoveGenerator.
+ */
+public class MoveGeneratorTest extends TestCase {
+
+    private MoveGenerator generator;
+    private MoveList moves;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        generator = new MoveGenerator();
+        moves = new MoveList();
+    }
+
+    public MoveGeneratorTest(String arg0) {
+        super(arg0);
+    }
+
+    /** Finds all jumps with Board.isLegal, leap by leap. */
+    private static void collectJumps(DefaultBoard board, Jump.Builder prefix, Set jumps)
+        throws InvalidMoveException {
+        for (byte dir=Constants.FIRST_DIRECTION; dir <= Constants.LAST_DIRECTION; dir++) {
+            prefix.push(dir);
+            Jump jump = prefix.toJump();
+            if (board.isLegal(jump)) {
+                jumps.add(jump);
+                board.makeMove(jump);
+                Field ball = board.getBall();
+                board.unmakeMove();
+                if (!ball.isInGoal(board.geometry()) && ball.square(board.geometry()) != Constants.NO_SQUARE)
+                    collectJumps(board, prefix, jumps);
+            }
+            prefix.pop();
+        }
+    }
+
+    public void testAllMoves() throws InvalidMoveException {
+        Random random = new Random(5);
+        for (int n=0; n < 30; n++) {
+            DefaultBoard board = TestPositions.randomPosition((n % 2 == 0) ? BoardGeometry.DEFAULT : BoardGeometry.of(7, 9), random, 15 + n);
+            Set expected = new HashSet();
+            collectJumps(board, new Jump.Builder(), expected);
+
+            generator.setPosition(board);
+            generator.generate(MoveGenerator.ALL, moves);
+            Set jumps = new HashSet();
+            int puts = 0;
+            for (int i=0; i < moves.size(); i++) {
+                Move m = moves.toMove(i, board.geometry());
+                assertTrue(m.toString(), board.isLegal(m));
+                if (moves.isPutAt(i))
+                    puts++;
+                else
+                    assertTrue(jumps.add(m));
+            }
+            assertEquals(expected, jumps);
+            int empty = 0;
+            for (int sq=0; sq < board.geometry().squareCount(); sq++)
+                if (board.onSquare(sq) == Constants.EMPTY)
+                    empty++;
+            assertEquals(empty, puts);
+            // the position of the generator is unchanged
+            assertTrue(java.util.Arrays.deepEquals(board.toArray(), generator.toArray()));
+        }
+    }
+
+    /** The generator and Snapshot check moves like DefaultBoard, without changing the position. */
+    public void testIsLegal() throws InvalidMoveException {
+        Random random = new Random(9);
+        for (int n=0; n < 16; n++) {
+            DefaultBoard board = TestPositions.randomPosition((n % 2 == 0) ? BoardGeometry.DEFAULT : BoardGeometry.of(7, 9), random, 15 + n);
+            Snapshot snapshot = new Snapshot(board);
+            generator.setPosition(board);
+            Set jumps = new HashSet();
+            collectJumps(board, new Jump.Builder(), jumps);
+            jumps.add(new Jump());
+            for (Iterator it = jumps.iterator(); it.hasNext(); ) {
+                Jump.Builder builder = new Jump.Builder((Jump)it.next());
+                for (byte dir=Constants.FIRST_DIRECTION; dir <= Constants.LAST_DIRECTION; dir++) {
+                    builder.push(dir);
+                    Jump jump = builder.toJump();
+                    assertEquals(jump.toString(), board.isLegal(jump), generator.isLegal(jump));
+                    assertEquals(jump.toString(), board.isLegal(jump), snapshot.isLegal(jump));
+                    builder.pop();
+                }
+            }
+            Jump noDirection = new Jump(new byte[]{Constants.LAST_DIRECTION + 1});
+            assertFalse(generator.isLegal(noDirection));
+            assertFalse(snapshot.isLegal(noDirection));
+            for (int sq=0; sq < board.geometry().squareCount(); sq++) {
+                Put put = new Put(board.geometry().col(sq), board.geometry().row(sq));
+                assertEquals(board.isLegal(put), generator.isLegal(put));
+                assertEquals(board.isLegal(put), snapshot.isLegal(put));
+            }
+            assertTrue(java.util.Arrays.deepEquals(board.toArray(), generator.toArray()));
+            assertEquals(board.getBall(), generator.getBall());
+        }
+    }
+
+    public void testFilters() throws InvalidMoveException {
+        DefaultBoard board = new DefaultBoard();
+        board.move(new Put(9, 10));
+        board.move(new Put(9, 12));
+        board.move(new Put(10, 9));
+
+        generator.setPosition(board);
+        generator.generate(MoveGenerator.JUMPS, moves);
+        // E, and S followed by S over the second piece
+        assertEquals(3, moves.size());
+        assertEquals(new Jump(new byte[]{Constants.E}), moves.toMove(0, BoardGeometry.DEFAULT));
+        assertEquals(new Jump(new byte[]{Constants.S, Constants.S}), moves.toMove(1, BoardGeometry.DEFAULT));
+        assertEquals(new Jump(new byte[]{Constants.S}), moves.toMove(2, BoardGeometry.DEFAULT));
+        assertEquals(9, generator.minReachedRow());
+        assertEquals(13, generator.maxReachedRow());
+
+        generator.generate(MoveGenerator.SINGLE_LEAPS, moves);
+        assertEquals(2, moves.size());
+
+        generator.generate(MoveGenerator.RELEVANT_PUTS, moves);
+        for (int i=0; i < moves.size(); i++)
+            assertTrue(moves.isPutAt(i));
+        Set relevant = new HashSet();
+        for (int i=0; i < moves.size(); i++)
+            relevant.add(moves.toMove(i, BoardGeometry.DEFAULT));
+        assertTrue(relevant.contains(new Put(8, 8)));   // next to the ball
+        assertTrue(relevant.contains(new Put(9, 13)));  // where a leap lands
+        assertTrue(relevant.contains(new Put(10, 14))); // next to a landing field
+        assertFalse(relevant.contains(new Put(0, 0)));
+        assertEquals(relevant.size(), moves.size());
+
+        assertEquals(13, generator.rowRange(new int[2])[1]);
+    }
+
+    public void testRelevantPuts() {
+        Random random = new Random(21);
+        for (int n=0; n < 10; n++) {
+            DefaultBoard board = TestPositions.randomPosition(BoardGeometry.of(11, 13), random, 20 + 3*n);
+            generator.setPosition(board);
+            generator.generate(MoveGenerator.RELEVANT_PUTS, moves);
+            int[] first = new int[moves.size()];
+            for (int i=0; i < moves.size(); i++) {
+                first[i] = MoveList.square(moves.get(i));
+                assertEquals(Constants.EMPTY, board.onSquare(first[i]));
+                // column by column, like all puts
+                if (i > 0) {
+                    int c0 = board.geometry().col(first[i-1]), c1 = board.geometry().col(first[i]);
+                    assertTrue(c0 < c1 || (c0 == c1 && first[i-1] < first[i]));
+                }
+            }
+            // again, without searching the jumps
+            generator.generate(MoveGenerator.RELEVANT_PUTS, moves);
+            assertEquals(first.length, moves.size());
+            for (int i=0; i < first.length; i++)
+                assertEquals(first[i], MoveList.square(moves.get(i)));
+            generator.generate(MoveGenerator.OTHER_PUTS, moves);
+            int others = moves.size();
+            generator.generate(MoveGenerator.PUTS, moves);
+            assertEquals(moves.size(), first.length + others);
+        }
+    }
+
+    /** Collects the shortest length and the rows of every position reached by jumps, by Zobrist key.
+        The key is computed from the pieces the jump removed; the jumps reported by DISTINCT_JUMPS
+        are also made on a board, which checks that they are legal and give the position of the key. */
+    private static Map outcomes(final DefaultBoard board, MoveGenerator generator, final int filter) {
+        final Map result = new HashMap();
+        int count = 0;
+        final int[] pieces = new int[board.geometry().squareCount()];
+        for (int sq=0; sq < pieces.length; sq++)
+            if (board.onSquare(sq) == Constants.PIECE)
+                pieces[count++] = sq;
+        final int pieceCount = count;
+        final long start = board.zobrist() ^ Zobrist.DOWN_TO_MOVE ^ Zobrist.ball(board.ballSquare());
+        final Board check = new BitBoard(board);
+        generator.generate(filter, new MoveGenerator.Listener() {
+                public boolean jumpFound(MoveGenerator g, int minRow, int maxRow) {
+                    long k = start ^ Zobrist.ball(g.ballSquare());
+                    for (int i=0; i < pieceCount; i++)
+                        if (g.onSquare(pieces[i]) != Constants.PIECE)
+                            k ^= Zobrist.piece(pieces[i]);
+                    if (filter == MoveGenerator.DISTINCT_JUMPS) {
+                        try {
+                            check.makeMove(g.toJump());
+                        } catch (InvalidMoveException e) {
+                            fail(e.getMessage());
+                        }
+                        assertEquals(check.zobrist(), k);
+                        check.unmakeMove();
+                    }
+                    Long key = new Long(k);
+                    int[] old = (int[])result.get(key);
+                    if (old == null || g.leapCount() < old[0])
+                        result.put(key, new int[]{g.leapCount(), minRow, maxRow, old == null ? 1 : old[3] + 1});
+                    else
+                        old[3]++;
+                    return false;
+                }
+                public boolean putFound(MoveGenerator g, int square) {
+                    return false;
+                }
+            });
+        return result;
+    }
+
+    public void testDistinctJumps() {
+        Random random = new Random(8);
+        for (int n=0; n < 20; n++) {
+            DefaultBoard board = TestPositions.randomPosition(BoardGeometry.DEFAULT, random, 30 + 2*n);
+            generator.setPosition(board);
+            Map all = outcomes(board, generator, MoveGenerator.JUMPS);
+            int min = generator.minReachedRow(), max = generator.maxReachedRow();
+            Map distinct = outcomes(board, generator, MoveGenerator.DISTINCT_JUMPS);
+            assertEquals(min, generator.minReachedRow());
+            assertEquals(max, generator.maxReachedRow());
+            assertEquals(all.keySet(), distinct.keySet());
+            for (java.util.Iterator it = all.keySet().iterator(); it.hasNext(); ) {
+                Object key = it.next();
+                int[] a = (int[])all.get(key);
+                int[] d = (int[])distinct.get(key);
+                assertEquals(a[0], d[0]);
+                assertEquals(a[1], d[1]);
+                assertEquals(a[2], d[2]);
+                assertEquals(1, d[3]);
+            }
+            assertTrue(java.util.Arrays.deepEquals(board.toArray(), generator.toArray()));
+        }
+    }
+
+    public void testLongChain() throws InvalidMoveException {
+        // rows 1 to 11: six rows of nine leaps and five leaps between them
+        Jump.Builder builder = new Jump.Builder();
+        DefaultBoard board = TestPositions.zigzag(11, Constants.DOWN, builder);
+        Jump chain = builder.toJump();
+        assertEquals(59, chain.size());
+        assertTrue(board.isLegal(chain));
+
+        generator.setPosition(board);
+        generator.generate(MoveGenerator.JUMPS, moves);
+        // one jump for each length; a jump is reported after the jumps that continue it
+        assertEquals(chain.size(), moves.size());
+        for (int i=0; i < moves.size(); i++) {
+            assertEquals(chain.size() - i, moves.leapCountAt(i));
+            builder = new Jump.Builder();
+            for (int j=0; j < chain.size() - i; j++)
+                builder.push(chain.leap(j));
+            assertEquals(builder.toJump(), moves.toMove(i, BoardGeometry.DEFAULT));
+        }
+        assertEquals(1, generator.minReachedRow());
+        assertEquals(11, generator.maxReachedRow());
+        assertTrue(java.util.Arrays.deepEquals(board.toArray(), generator.toArray()));
+
+        generator.generate(MoveGenerator.DISTINCT_JUMPS, moves);
+        assertEquals(chain.size(), moves.size());
+        assertEquals(chain, moves.toMove(0, BoardGeometry.DEFAULT));
+        assertEquals(11, generator.maxReachedRow());
+    }
+
+    public void testListener() throws InvalidMoveException {
+        DefaultBoard board = new DefaultBoard();
+        board.move(new Put(9, 10));
+        board.move(new Put(9, 12));
+        generator.setPosition(board);
+        final int[] calls = new int[2];
+        boolean stopped = generator.generate(MoveGenerator.ALL, new MoveGenerator.Listener() {
+                public boolean jumpFound(MoveGenerator g, int minRow, int maxRow) {
+                    calls[0]++;
+                    if (g.leapCount() == 2) {
+                        assertEquals(new Field(9, 13), g.getBall());
+                        assertEquals(Constants.EMPTY, g.on(9, 9));
+                        assertEquals(Constants.EMPTY, g.on(9, 12));
+                        assertEquals(13, minRow);
+                    } else {
+                        assertTrue(g.isLegal(new Jump(new byte[]{Constants.S})));
+                        assertFalse(g.isLegal(new Jump(new byte[]{Constants.N})));
+                        assertFalse(g.isLegal(new Put(9, 12)));
+                        assertEquals(11, minRow);
+                        assertEquals(13, maxRow);
+                    }
+                    return false;
+                }
+                public boolean putFound(MoveGenerator g, int square) {
+                    calls[1]++;
+                    assertEquals(Constants.PIECE, g.onSquare(square));
+                    return calls[1] == 3;
+                }
+            });
+        assertTrue(stopped);
+        assertEquals(2, calls[0]);
+        assertEquals(3, calls[1]);
+        assertEquals(Constants.BALL, generator.on(9, 9));
+        assertEquals(Constants.PIECE, generator.on(9, 12));
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of MoveList.
+ */
+public class MoveListTest extends TestCase {
+
+    private MoveList list;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        list = new MoveList();
+    }
+
+    public MoveListTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testPut() {
+        for (int sq=0; sq < Constants.SQUARE_COUNT; sq++) {
+            long move = MoveList.put(sq);
+            assertTrue(MoveList.isPut(move));
+            assertEquals(sq, MoveList.square(move));
+        }
+        assertFalse(MoveList.isPut(MoveList.EMPTY_JUMP));
+        list.add(new Put(3, 17), BoardGeometry.DEFAULT);
+        assertEquals(1, list.size());
+        assertTrue(list.isPutAt(0));
+        assertEquals(new Put(3, 17), list.toMove(0, BoardGeometry.DEFAULT));
+    }
+
+    public void testGeometry() {
+        BoardGeometry g = BoardGeometry.of(7, 9);
+        list.add(new Put(3, 4), g);
+        assertEquals(g.square(3, 4), MoveList.square(list.get(0)));
+        assertEquals(new Put(3, 4), list.toMove(0, g));
+        try {
+            list.add(new Put(8, 1), g);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testPushPopLeap() {
+        long jump = MoveList.EMPTY_JUMP;
+        for (int i=0; i < MoveList.MAX_PACKED_LEAPS; i++)
+            jump = MoveList.pushLeap(jump, (byte)(i % 8));
+        assertFalse(MoveList.isPut(jump));
+        assertEquals(MoveList.MAX_PACKED_LEAPS, MoveList.leapCount(jump));
+        for (int i=0; i < MoveList.MAX_PACKED_LEAPS; i++)
+            assertEquals(i % 8, MoveList.leap(jump, i));
+        for (int i=0; i < MoveList.MAX_PACKED_LEAPS; i++)
+            jump = MoveList.popLeap(jump);
+        assertEquals(MoveList.EMPTY_JUMP, jump);
+    }
+
+    public void testJumps() {
+        byte[] leaps = new byte[40];
+        for (int i=0; i < leaps.length; i++)
+            leaps[i] = (byte)((i * 3) % 8);
+        list.addJump(leaps, 2);
+        list.addJump(leaps, 25);
+        list.addJump(leaps, MoveList.MAX_PACKED_LEAPS);
+        list.addJump(leaps, 40);
+        list.addPut(0);
+        int[] lengths = {2, 25, MoveList.MAX_PACKED_LEAPS, 40};
+        for (int j=0; j < lengths.length; j++) {
+            assertFalse(list.isPutAt(j));
+            assertEquals(lengths[j], list.leapCountAt(j));
+            Jump jump = (Jump)list.toMove(j, BoardGeometry.DEFAULT);
+            assertEquals(lengths[j], jump.size());
+            for (int i=0; i < lengths[j]; i++) {
+                assertEquals(leaps[i], list.leapAt(j, i));
+                assertEquals(leaps[i], jump.leap(i));
+            }
+        }
+        assertTrue(list.isPutAt(4));
+        assertEquals(0, MoveList.square(list.get(4)));
+
+        Jump jump = (Jump)list.toMove(3, BoardGeometry.DEFAULT);
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.add(jump, BoardGeometry.DEFAULT);
+        assertEquals(jump.toString(), list.toMove(0, BoardGeometry.DEFAULT).toString());
+    }
+
+    public void testGrow() {
+        for (int sq=0; sq < Constants.SQUARE_COUNT; sq++)
+            list.addPut(sq);
+        assertEquals(Constants.SQUARE_COUNT, list.size());
+        for (int sq=0; sq < Constants.SQUARE_COUNT; sq++)
+            assertEquals(sq, MoveList.square(list.get(sq)));
+        list.truncate(10);
+        assertEquals(10, list.size());
+        try {
+            list.get(10);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+}
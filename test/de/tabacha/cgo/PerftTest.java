@@ -0,0 +1,144 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of Perft.
+ */
+public class PerftTest extends TestCase {
+
+    public PerftTest(String arg0) {
+        super(arg0);
+    }
+
+    /** Finds all jumps with Board.isLegal, leap by leap. */
+    private static void collectJumps(DefaultBoard board, Jump.Builder prefix, List jumps)
+        throws InvalidMoveException {
+        for (byte dir=Constants.FIRST_DIRECTION; dir <= Constants.LAST_DIRECTION; dir++) {
+            prefix.push(dir);
+            Jump jump = prefix.toJump();
+            if (board.isLegal(jump)) {
+                jumps.add(jump);
+                board.makeMove(jump);
+                Field ball = board.getBall();
+                board.unmakeMove();
+                if (!ball.isInGoal(board.geometry()) && ball.square(board.geometry()) != Constants.NO_SQUARE)
+                    collectJumps(board, prefix, jumps);
+            }
+            prefix.pop();
+        }
+    }
+
+    /** Counts like Perft, with the moves found by Board.isLegal. */
+    private static long reference(DefaultBoard board, int depth) throws InvalidMoveException {
+        if (depth == 0)
+            return 1;
+        if (board.getBall().isInGoal(board.geometry()))
+            return 0;
+        List moves = new ArrayList();
+        collectJumps(board, new Jump.Builder(), moves);
+        BoardGeometry g = board.geometry();
+        for (int sq=0; sq < g.squareCount(); sq++)
+            if (board.onSquare(sq) == Constants.EMPTY)
+                moves.add(new Put(g.col(sq), g.row(sq)));
+        long count = 0;
+        for (int i=0; i < moves.size(); i++) {
+            board.makeMove((Move)moves.get(i));
+            count += reference(board, depth - 1);
+            board.unmakeMove();
+        }
+        return count;
+    }
+
+    /** A small board where the ball can reach the goals within three moves. */
+    private static DefaultBoard smallBoard() throws InvalidMoveException {
+        DefaultBoard board = new DefaultBoard(BoardGeometry.of(5, 5));
+        board.move(new Put(2, 3));
+        board.move(new Put(1, 1));
+        return board;
+    }
+
+    public void testStart() throws InterruptedException {
+        Perft perft = new Perft(new DefaultBoard());
+        int fields = BoardGeometry.DEFAULT.squareCount();
+        assertEquals(1, perft.count(0));
+        assertEquals(fields - 1, perft.count(1));
+        // no piece next to the ball yet: the moves are the puts; then the 8 jumps over a neighbor
+        assertEquals((fields - 1) * (fields - 2) + 8, perft.count(2));
+        // the moves made by both counts
+        assertEquals(2 * (fields - 1) + (fields - 1) * (fields - 2) + 8, perft.nodes());
+
+        long[] counts = perft.divide(2, 1);
+        assertEquals(fields - 1, counts.length);
+        long total = 0;
+        for (int i=0; i < counts.length; i++)
+            total += counts[i];
+        assertEquals((fields - 1) * (fields - 2) + 8, total);
+    }
+
+    public void testReference() throws InvalidMoveException, InterruptedException {
+        DefaultBoard board = smallBoard();
+        long expected = reference(board, 3);
+        Perft perft = new Perft(board);
+        assertEquals(expected, perft.count(3));
+
+        // with hashing: same count, fewer moves made
+        Perft hashed = new Perft(board);
+        hashed.setHashBits(12);
+        assertEquals(expected, hashed.count(3));
+        assertTrue(hashed.nodes() < perft.nodes());
+
+        // divided among threads
+        List moves = perft.moves();
+        long[] counts = hashed.divide(3, 3);
+        assertEquals(moves.size(), counts.length);
+        long total = 0;
+        for (int i=0; i < counts.length; i++) {
+            DefaultBoard after = (DefaultBoard)board.clone();
+            after.move((Move)moves.get(i));
+            assertEquals(reference(after, 2), counts[i]);
+            total += counts[i];
+        }
+        assertEquals(expected, total);
+    }
+
+    public void testGameOver() throws InvalidMoveException {
+        DefaultBoard board = smallBoard();
+        // jump into the goal of DOWN
+        board.move(new Jump(new byte[]{Constants.S}));
+        assertTrue(board.getBall().isInGoal(board.geometry()));
+        Perft perft = new Perft(board);
+        assertEquals(0, perft.moves().size());
+        assertEquals(1, perft.count(0));
+        assertEquals(0, perft.count(2));
+        assertEquals(0, perft.nodes());
+    }
+
+    public void testParseMove() {
+        assertEquals(new Put(9, 10), Perft.parseMove("9,10"));
+        assertEquals(new Jump(new byte[]{Constants.S, Constants.SW}), Perft.parseMove("S-sw"));
+        try {
+            Perft.parseMove("S-X");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            Perft.parseMove("9,");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new Perft(new DefaultBoard()).setHashBits(Perft.MAX_HASH_BITS + 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
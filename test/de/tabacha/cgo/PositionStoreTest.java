@@ -0,0 +1,147 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of PositionStore.
+ */
+public class PositionStoreTest extends TestCase {
+
+    public PositionStoreTest(String arg0) {
+        super(arg0);
+    }
+
+    /** Plays random moves and returns all positions. */
+    private static ArrayList randomPositions(BoardGeometry g, int count) {
+        ArrayList positions = new ArrayList();
+        Random random = new Random(17);
+        DefaultBoard board = new DefaultBoard(g);
+        while (positions.size() < count) {
+            if (board.getBall().isInGoal(g))
+                board.reset();
+            Field ball = board.getBall();
+            try {
+                if (random.nextInt(3) == 0)
+                    board.move(new Jump(new byte[]{(byte)random.nextInt(8)}));
+                else
+                    board.move(new Put(ball.col() + random.nextInt(5) - 2, ball.row() + random.nextInt(5) - 2));
+            } catch (InvalidMoveException e) {
+                board = new DefaultBoard(g);
+                continue;
+            }
+            positions.add(board.clone());
+        }
+        return positions;
+    }
+
+    private static void assertSame(Board expected, Board actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getBall(), actual.getBall());
+        assertEquals(expected.zobrist(), actual.zobrist());
+    }
+
+    public void testInMemory() {
+        BoardGeometry[] sizes = {BoardGeometry.DEFAULT, BoardGeometry.of(9, 9), BoardGeometry.of(39, 39)};
+        for (int s=0; s < sizes.length; s++) {
+            ArrayList positions = randomPositions(sizes[s], 500);
+            // small segments, so the positions are spread over several
+            PositionStore store = new PositionStore(sizes[s], 4096);
+            for (int i=0; i < positions.size(); i++)
+                assertEquals(i, store.add((Board)positions.get(i)));
+            assertEquals(positions.size(), store.size());
+            for (int i=positions.size()-1; i >= 0; i--)
+                assertSame((Board)positions.get(i), store.get(i));
+            int i = 0;
+            for (Iterator it = store.iterator(); it.hasNext(); i++)
+                assertSame((Board)positions.get(i), (Board)it.next());
+            assertEquals(positions.size(), i);
+        }
+        assertEquals(48, new PositionStore(BoardGeometry.DEFAULT).recordBytes());
+    }
+
+    public void testErrors() {
+        PositionStore store = new PositionStore(BoardGeometry.DEFAULT);
+        try {
+            store.get(0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+        try {
+            store.add(new DefaultBoard(BoardGeometry.of(9, 9)));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testFile() throws Exception {
+        File file = File.createTempFile("positions", ".cgps");
+        try {
+            ArrayList positions = randomPositions(BoardGeometry.DEFAULT, 300);
+            PositionStore store = new PositionStore(BoardGeometry.DEFAULT, file);
+            for (int i=0; i < positions.size(); i++)
+                store.add((Board)positions.get(i));
+            store.close();
+
+            store = PositionStore.open(file);
+            assertEquals(positions.size(), store.size());
+            assertTrue(store.geometry() == BoardGeometry.DEFAULT);
+            for (int i=0; i < positions.size(); i++)
+                assertSame((Board)positions.get(i), store.get(i));
+            store.add(new DefaultBoard());
+            assertSame(new DefaultBoard(), store.get(positions.size()));
+            store.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testFileFormat() throws Exception {
+        File file = File.createTempFile("positions", ".cgps");
+        try {
+            PositionStore store = new PositionStore(BoardGeometry.DEFAULT, file);
+            DefaultBoard board = new DefaultBoard();
+            board.addPiece(0, 0);
+            store.add(board);
+            store.close();
+            // big-endian, whatever the byte order of this machine: the first long holds the piece on square 0
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.seek(16);
+                assertEquals(1L, raf.readLong());
+                // cut into the segment of the position
+                raf.setLength(raf.length() - 1);
+            } finally {
+                raf.close();
+            }
+            try {
+                PositionStore.open(file);
+                fail();
+            } catch (IOException e) {
+            }
+            // shorter than the header
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(10);
+            raf.close();
+            try {
+                PositionStore.open(file);
+                fail();
+            } catch (IOException e) {
+            }
+            assertEquals(10, file.length());
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of Reachability.
+ */
+public class ReachabilityTest extends TestCase {
+
+    public ReachabilityTest(String arg0) {
+        super(arg0);
+    }
+
+    /** Rows and goals of every jump, with the generator; index 2 and 3 are the goals of UP and DOWN. */
+    private static int[] walk(Board board) {
+        final int[] found = new int[]{board.getBall().row(), board.getBall().row(), 0, 0};
+        final BoardGeometry g = board.geometry();
+        MoveGenerator generator = new MoveGenerator();
+        generator.setPosition(board);
+        generator.generate(MoveGenerator.JUMPS, new MoveGenerator.Listener() {
+                public boolean jumpFound(MoveGenerator m, int minRow, int maxRow) {
+                    int row = Math.max(0, Math.min(m.ballRow(), g.rows() - 1));
+                    if (row == 0 || row == g.rows() - 1 || m.ballSquare() != Constants.NO_SQUARE) {
+                        found[0] = Math.min(found[0], row);
+                        found[1] = Math.max(found[1], row);
+                    }
+                    if (g.isInGoalOf(Constants.UP, m.ballCol(), m.ballRow()))
+                        found[2] = 1;
+                    if (g.isInGoalOf(Constants.DOWN, m.ballCol(), m.ballRow()))
+                        found[3] = 1;
+                    return false;
+                }
+                public boolean putFound(MoveGenerator m, int square) {
+                    return false;
+                }
+            });
+        return found;
+    }
+
+    public void testExact() {
+        Random random = new Random(22);
+        Reachability reachability = new Reachability();
+        for (int n=0; n < 32; n++) {
+            DefaultBoard board = TestPositions.randomPosition((n % 2 == 0) ? BoardGeometry.DEFAULT : BoardGeometry.of(9, 11), random, 5 + n);
+            if (board.getBall().isInGoal(board.geometry()))
+                continue;
+            int[] expected = walk(board);
+            reachability.analyse(board);
+            assertTrue(reachability.isExact());
+            assertEquals(expected[0], reachability.minRow());
+            assertEquals(expected[1], reachability.maxRow());
+            assertEquals(expected[2] != 0, reachability.canReachGoalOf(Constants.UP));
+            assertEquals(expected[3] != 0, reachability.canReachGoalOf(Constants.DOWN));
+            // the generator gives the same rows
+            MoveGenerator generator = new MoveGenerator();
+            generator.setPosition(board);
+            int[] minMax = generator.rowRange(new int[2]);
+            assertEquals(expected[0], minMax[0]);
+            assertEquals(expected[1], minMax[1]);
+            assertTrue(java.util.Arrays.deepEquals(board.toArray(), generator.toArray()));
+        }
+    }
+
+    /** A chain of 379 leaps on the largest board; the search needs a level per leap. */
+    public void testLongChain() {
+        Jump.Builder leaps = new Jump.Builder();
+        BoardGeometry g = BoardGeometry.of(BoardGeometry.MAX_SIZE, BoardGeometry.MAX_SIZE);
+        DefaultBoard board = TestPositions.zigzag(g, g.rows() - 2, Constants.DOWN, leaps);
+        assertEquals(379, leaps.size());
+        Reachability reachability = new Reachability();
+        reachability.setIncremental(true);
+        reachability.analyse(board);
+        assertTrue(reachability.isExact());
+        assertEquals(379, reachability.stateCount());
+        assertEquals(1, reachability.minRow());
+        assertEquals(g.rows() - 2, reachability.maxRow());
+        assertFalse(reachability.canReachGoalOf(Constants.DOWN));
+        // a piece below the end of the chain leads into the goal
+        reachability.addPiece(g.square(g.cols() - 1, g.rows() - 1));
+        assertEquals(g.rows() - 1, reachability.maxRow());
+        assertTrue(reachability.canReachGoalOf(Constants.DOWN));
+        reachability.rollback();
+        assertEquals(g.rows() - 2, reachability.maxRow());
+    }
+
+    public void testEstimate() {
+        Random random = new Random(23);
+        Reachability exact = new Reachability();
+        for (int states=0; states < 20; states += 4) {
+            Reachability bounded = new Reachability(states);
+            for (int n=0; n < 20; n++) {
+                DefaultBoard board = TestPositions.randomPosition(BoardGeometry.DEFAULT, random, 15 + n);
+                exact.analyse(board);
+                bounded.analyse(board);
+                assertTrue(bounded.stateCount() <= states);
+                if (bounded.isExact())
+                    assertEquals(exact.stateCount(), bounded.stateCount());
+                // never narrower than the truth
+                assertTrue(bounded.minRow() <= exact.minRow());
+                assertTrue(bounded.maxRow() >= exact.maxRow());
+                assertTrue(bounded.canReachGoalOf(Constants.UP) || !exact.canReachGoalOf(Constants.UP));
+                assertTrue(bounded.canReachGoalOf(Constants.DOWN) || !exact.canReachGoalOf(Constants.DOWN));
+            }
+        }
+    }
+
+    /** Compares the results of an analyser to those of another one. */
+    private static void assertSame(Reachability expected, Reachability actual) {
+        assertEquals(expected.minRow(), actual.minRow());
+        assertEquals(expected.maxRow(), actual.maxRow());
+        assertEquals(expected.canReachGoalOf(Constants.UP), actual.canReachGoalOf(Constants.UP));
+        assertEquals(expected.canReachGoalOf(Constants.DOWN), actual.canReachGoalOf(Constants.DOWN));
+    }
+
+    public void testAddPiece() {
+        Random random = new Random(24);
+        Reachability incremental = new Reachability();
+        incremental.setIncremental(true);
+        Reachability bounded = new Reachability(6);
+        bounded.setIncremental(true);
+        Reachability plain = new Reachability();
+        Reachability fresh = new Reachability();
+        Reachability base = new Reachability();
+        for (int n=0; n < 12; n++) {
+            DefaultBoard board = TestPositions.randomPosition((n % 2 == 0) ? BoardGeometry.DEFAULT : BoardGeometry.of(9, 11), random, 10 + 2*n);
+            BoardGeometry g = board.geometry();
+            base.analyse(board);
+            incremental.analyse(board);
+            bounded.analyse(board);
+            plain.analyse(board);
+            int unchanged = 0;
+            for (int sq=0; sq < g.squareCount(); sq++) {
+                if (board.onSquare(sq) != Constants.EMPTY)
+                    continue;
+                DefaultBoard after = (DefaultBoard)board.clone();
+                after.addPiece(g.col(sq), g.row(sq));
+                fresh.analyse(after);
+                incremental.addPiece(sq);
+                assertTrue(incremental.isExact());
+                assertSame(fresh, incremental);
+                if (incremental.stateCount() == 0)
+                    unchanged++;
+                incremental.rollback();
+                assertSame(base, incremental);
+                assertEquals(base.stateCount(), incremental.stateCount());
+
+                bounded.addPiece(sq);
+                assertTrue(bounded.minRow() <= fresh.minRow());
+                assertTrue(bounded.maxRow() >= fresh.maxRow());
+                assertTrue(bounded.canReachGoalOf(Constants.UP) || !fresh.canReachGoalOf(Constants.UP));
+                assertTrue(bounded.canReachGoalOf(Constants.DOWN) || !fresh.canReachGoalOf(Constants.DOWN));
+                bounded.rollback();
+
+                // searched again completely
+                plain.addPiece(sq);
+                assertSame(fresh, plain);
+                assertEquals(fresh.stateCount(), plain.stateCount());
+                plain.rollback();
+                assertSame(base, plain);
+            }
+            // most fields are never looked at
+            assertTrue(unchanged > 0);
+        }
+    }
+
+    /** An incremental analysis with more positions than it records still gives the right results. */
+    public void testTooManyToRecord() {
+        Random random = new Random(26);
+        Reachability incremental = new Reachability();
+        incremental.setIncremental(true);
+        Reachability plain = new Reachability();
+        DefaultBoard board;
+        int puts = 40;
+        do {
+            board = TestPositions.randomPosition(BoardGeometry.DEFAULT, random, puts);
+            puts += 10;
+            plain.analyse(board);
+        } while (!plain.isExact() || plain.stateCount() <= Reachability.MAX_RECORDED_STATES);
+        incremental.analyse(board);
+        assertTrue(incremental.isExact());
+        assertEquals(plain.stateCount(), incremental.stateCount());
+        assertSame(plain, incremental);
+
+        BoardGeometry g = board.geometry();
+        Reachability fresh = new Reachability();
+        int checked = 0;
+        for (int sq=0; sq < g.squareCount() && checked < 10; sq += 7) {
+            if (board.onSquare(sq) != Constants.EMPTY)
+                continue;
+            DefaultBoard after = (DefaultBoard)board.clone();
+            after.addPiece(g.col(sq), g.row(sq));
+            fresh.analyse(after);
+            incremental.addPiece(sq);
+            assertSame(fresh, incremental);
+            assertEquals(fresh.stateCount(), incremental.stateCount());
+            incremental.rollback();
+            assertSame(plain, incremental);
+            checked++;
+        }
+    }
+
+    public void testRowRangeOfPuts() {
+        Random random = new Random(25);
+        MoveGenerator generator = new MoveGenerator();
+        for (int n=0; n < 10; n++) {
+            DefaultBoard board = TestPositions.randomPosition(BoardGeometry.DEFAULT, random, 15 + 2*n);
+            generator.setPosition(board);
+            final int[] puts = new int[1];
+            generator.generate(MoveGenerator.ALL, new MoveGenerator.Listener() {
+                    public boolean jumpFound(MoveGenerator g, int minRow, int maxRow) {
+                        // a jump in between needs the analysis of its own position
+                        g.rowRange(new int[2]);
+                        return false;
+                    }
+                    public boolean putFound(MoveGenerator g, int square) {
+                        int[] minMax = g.rowRange(new int[2]);
+                        Reachability fresh = new Reachability();
+                        fresh.analyse(new DefaultBoard(g.toArray(), g.getBall(), Constants.DOWN));
+                        assertEquals(fresh.minRow(), minMax[0]);
+                        assertEquals(fresh.maxRow(), minMax[1]);
+                        puts[0]++;
+                        return false;
+                    }
+                });
+            assertTrue(puts[0] > 0);
+        }
+    }
+
+    public void testNoJump() {
+        DefaultBoard board = new DefaultBoard();
+        Reachability reachability = new Reachability();
+        reachability.analyse(board);
+        assertEquals(board.getBall().row(), reachability.minRow());
+        assertEquals(board.getBall().row(), reachability.maxRow());
+        assertFalse(reachability.canReachGoalOf(Constants.UP));
+        assertFalse(reachability.canReachGoalOf(Constants.DOWN));
+        assertEquals(0, reachability.stateCount());
+        try {
+            new Reachability(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
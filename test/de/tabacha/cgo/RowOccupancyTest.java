@@ -0,0 +1,92 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of RowOccupancy.
+ */
+public class RowOccupancyTest extends TestCase {
+
+    public RowOccupancyTest(String arg0) {
+        super(arg0);
+    }
+
+    /** Counts the cone field by field. */
+    private static int countCone(Board b, int col, int row, int fromRow, int toRow) {
+        int count = 0;
+        for (int r=fromRow; r <= toRow; r++)
+            for (int c=0; c < b.geometry().cols(); c++)
+                if (Math.abs(c - col) <= Math.abs(r - row) && b.on(c, r) == Constants.PIECE)
+                    count++;
+        return count;
+    }
+
+    private static void assertOccupancy(DefaultBoard b) {
+        RowOccupancy expected = new RowOccupancy(b.toArray());
+        for (int r=0; r < b.geometry().rows(); r++) {
+            assertEquals(expected.mask(r), b.rowMask(r));
+            assertEquals(expected.count(r), b.rowCount(r));
+        }
+        Field ball = b.getBall();
+        assertEquals(countCone(b, ball.col(), ball.row(), ball.row()+2, Math.min(ball.row()+5, b.geometry().rows()-1)),
+                     b.countCone(ball.col(), ball.row(), ball.row()+2, ball.row()+5));
+    }
+
+    public void testCounts() {
+        RowOccupancy occupancy = new RowOccupancy(5);
+        occupancy.add(0, 1);
+        occupancy.add(4, 1);
+        occupancy.add(2, 3);
+        assertEquals(3, occupancy.total());
+        assertEquals(2, occupancy.count(1));
+        assertEquals(0x11L, occupancy.mask(1));
+        assertEquals(1, occupancy.count(1, 1, 4));
+        assertEquals(2, occupancy.count(1, -3, 70));
+        assertEquals(0, occupancy.count(1, 3, 1));
+        assertEquals(0, occupancy.count(7, 0, 4));
+        assertEquals(3, occupancy.countRows(-1, 9));
+        assertTrue(occupancy.isPiece(2, 3));
+        assertFalse(occupancy.isPiece(-1, 3));
+        // cone from (2, 0): row 1 columns 1..3, row 3 columns 0..4
+        assertEquals(1, occupancy.countCone(2, 0, 1, 4));
+        assertEquals(2, occupancy.upsideDown().count(3));
+        assertEquals(1, occupancy.upsideDown().count(1));
+        occupancy.remove(4, 1);
+        assertEquals(1, occupancy.count(1));
+        assertEquals(2, ((RowOccupancy)occupancy.clone()).total());
+        occupancy.clear();
+        assertEquals(0, occupancy.total());
+    }
+
+    public void testDefaultBoard() throws InvalidMoveException {
+        DefaultBoard board = new DefaultBoard();
+        Random random = new Random(11);
+        for (int i=0; i < 400; i++) {
+            Field ball = board.getBall();
+            try {
+                if (random.nextInt(4) == 0)
+                    board.makeMove(new Jump(new byte[]{(byte)random.nextInt(8)}));
+                else
+                    board.makeMove(new Put(ball.col() + random.nextInt(5) - 2, ball.row() + random.nextInt(5) - 2));
+            } catch (InvalidMoveException e) {
+                continue;
+            }
+            assertOccupancy(board);
+            if (board.getBall().isInGoal() || random.nextInt(5) == 0) {
+                board.unmakeMove();
+                assertOccupancy(board);
+            }
+        }
+        assertOccupancy((DefaultBoard)board.clone());
+        assertOccupancy((DefaultBoard)board.upsideDown());
+        board.reset();
+        assertEquals(0, board.rowCount(9));
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of Snapshot.
+ */
+public class SnapshotTest extends TestCase {
+
+    public SnapshotTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testStart() {
+        DefaultBoard board = new DefaultBoard();
+        assertEquals(new Snapshot(board), Snapshot.START);
+        assertEquals(board.zobrist(), Snapshot.START.zobrist());
+        assertEquals(Constants.KICK_OFF_FIELD, Snapshot.START.getBall());
+        assertEquals(Constants.BALL, Snapshot.START.on(Constants.KICK_OFF_FIELD));
+        assertEquals(board, Snapshot.START.clone());
+    }
+
+    public void testPutSharesRows() throws InvalidMoveException {
+        Snapshot start = Snapshot.START;
+        Snapshot next = start.after(new Put(3, 4));
+        assertEquals(Constants.EMPTY, start.on(3, 4));
+        assertEquals(Constants.PIECE, next.on(3, 4));
+        assertEquals(Constants.DOWN, next.whoseTurn());
+        for (int r=0; r < Constants.ROW_COUNT; r++)
+            assertEquals(r != 4, next.sharesRow(start, r));
+    }
+
+    public void testJumpSharesRows() throws InvalidMoveException {
+        Snapshot s = Snapshot.START
+            .after(new Put(9, 10))
+            .after(new Put(9, 11));
+        Snapshot next = s.after(new Jump(new byte[]{Constants.S}));
+        assertEquals(new Field(9, 12), next.getBall());
+        assertEquals(Constants.EMPTY, next.on(9, 9));
+        assertEquals(Constants.EMPTY, next.on(9, 10));
+        assertEquals(Constants.EMPTY, next.on(9, 11));
+        assertEquals(Constants.PIECE, s.on(9, 10));
+        for (int r=0; r < Constants.ROW_COUNT; r++)
+            assertEquals(r < 9 || r > 12, next.sharesRow(s, r));
+        try {
+            s.after(new Jump(new byte[]{Constants.N}));
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals("error.move.jump_wrongdir", e.getMessage());
+        }
+        try {
+            s.after(new Put(9, 10));
+            fail();
+        } catch (InvalidMoveException e) {
+            assertEquals("error.move.put_not_empty", e.getMessage());
+        }
+        assertEquals(Constants.PIECE, s.on(9, 10));
+    }
+
+    public void testIsLegal() throws InvalidMoveException {
+        Snapshot s = Snapshot.START.after(new Put(9, 10));
+        assertTrue(s.isLegal(new Jump(new byte[]{Constants.S})));
+        assertFalse(s.isLegal(new Jump(new byte[]{Constants.S, Constants.S})));
+        assertFalse(s.isLegal(new Put(9, 9)));
+        assertTrue(BoardView.flipped(s).isLegal(new Jump(new byte[]{Constants.N})));
+        // the pieces removed by earlier leaps are gone
+        Snapshot two = s.after(new Put(9, 12));
+        assertTrue(two.isLegal(new Jump(new byte[]{Constants.S, Constants.S})));
+        assertFalse(two.isLegal(new Jump(new byte[]{Constants.S, Constants.S, Constants.N})));
+        assertFalse(two.isLegal(new Jump(new byte[]{Constants.S, Constants.N})));
+        assertEquals(Constants.PIECE, two.on(9, 12));
+        assertEquals(Constants.PIECE, s.on(9, 10));
+        try {
+            s.tryMove(new Put(1, 1));
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    public void testImmutable() {
+        try {
+            Snapshot.START.addPiece(1, 1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        Board copy = (Board)Snapshot.START.clone();
+        copy.addPiece(1, 1);
+        assertEquals(Constants.EMPTY, Snapshot.START.on(1, 1));
+    }
+
+    public void testSameAsDefaultBoard() throws InvalidMoveException {
+        java.util.Random random = new java.util.Random(815);
+        for (int game=0; game<200; game++) {
+            DefaultBoard reference = new DefaultBoard();
+            Snapshot s = Snapshot.START;
+            while (!reference.getBall().isInGoal()) {
+                Field ball = reference.getBall();
+                byte dir = (byte)random.nextInt(8);
+                Move m;
+                if (reference.on(ball.fieldIn(dir)) == Constants.PIECE && random.nextInt(3) == 0)
+                    m = new Jump(new byte[]{dir});
+                else {
+                    Field f = new Field(ball.col() + random.nextInt(7) - 3, ball.row() + random.nextInt(7) - 3);
+                    if (f.isOutside() || reference.on(f) != Constants.EMPTY)
+                        continue;
+                    m = new Put(f);
+                }
+                Snapshot before = s;
+                try {
+                    reference.move(m);
+                } catch (InvalidMoveException e) {
+                    try {
+                        s.after(m);
+                        fail();
+                    } catch (InvalidMoveException e2) {
+                        assertEquals(e.getMessage(), e2.getMessage());
+                    }
+                    break;
+                }
+                s = s.after(m);
+                assertEquals(reference.getBall(), s.getBall());
+                assertEquals(reference.whoseTurn(), s.whoseTurn());
+                assertEquals(reference.zobrist(), s.zobrist());
+                assertEquals(Zobrist.of(s), s.zobrist());
+                assertTrue(java.util.Arrays.deepEquals(reference.toArray(), s.toArray()));
+                assertTrue(java.util.Arrays.deepEquals(reference.upsideDown().toArray(), s.upsideDown().toArray()));
+                assertEquals(reference.upsideDown().zobrist(), s.upsideDown().zobrist());
+                assertFalse(s.equals(before));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of StagedMoves.
+ */
+public class StagedMovesTest extends TestCase {
+
+    public StagedMovesTest(String arg0) {
+        super(arg0);
+    }
+
+    /** Collects the moves of a filter as Put and Jump objects. */
+    private static Set generate(Board board, int filter) {
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        generator.setPosition(board);
+        generator.generate(filter, moves);
+        Set result = new HashSet();
+        for (int i=0; i < moves.size(); i++)
+            result.add(moves.toMove(i, board.geometry()));
+        return result;
+    }
+
+    public void testStages() {
+        Random random = new Random(13);
+        StagedMoves staged = new StagedMoves();
+        assertFalse(staged.hasNext());
+        for (int n=0; n < 20; n++) {
+            BoardGeometry g = (n % 2 == 0) ? BoardGeometry.DEFAULT : BoardGeometry.of(7, 9);
+            DefaultBoard board = new DefaultBoard(g);
+            for (int i=0; i < 10 + 2*n; i++) {
+                Field ball = board.getBall();
+                try {
+                    board.move(new Put(ball.col() + random.nextInt(5) - 2, ball.row() + random.nextInt(5) - 2));
+                } catch (InvalidMoveException e) {
+                }
+            }
+            staged.setPosition(board);
+
+            Set all = new HashSet();
+            Set near = new HashSet();
+            Set others = new HashSet();
+            int stage = -1;
+            while (staged.hasNext()) {
+                Move m = staged.nextMove();
+                assertTrue(all.add(m));
+                assertTrue(staged.stage() >= stage);
+                stage = staged.stage();
+                if (stage <= StagedMoves.JUMPS) {
+                    assertTrue(m instanceof Jump);
+                    DefaultBoard after = (DefaultBoard)board.clone();
+                    assertEquals(Constants.LEGAL, after.tryMove(m));
+                    assertEquals(stage == StagedMoves.GOAL_JUMPS,
+                                 after.getBall().isInGoalOf(board.whoseTurn(), g));
+                } else {
+                    assertTrue(m instanceof Put);
+                    (stage == StagedMoves.NEAR_PUTS ? near : others).add(m);
+                }
+            }
+            assertEquals(generate(board, MoveGenerator.ALL), all);
+            assertEquals(generate(board, MoveGenerator.RELEVANT_PUTS), near);
+            assertEquals(generate(board, MoveGenerator.OTHER_PUTS), others);
+        }
+        try {
+            staged.next();
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+    }
+
+    public void testGoalJumpFirst() {
+        BoardGeometry g = BoardGeometry.DEFAULT;
+        int lastRow = g.rows() - 1;
+        byte[][] fields = new byte[g.rows()][g.cols()];
+        fields[lastRow - 2][9] = Constants.BALL;
+        fields[lastRow - 1][9] = Constants.PIECE;
+        fields[lastRow - 2][8] = Constants.PIECE;
+        DefaultBoard board = new DefaultBoard(fields, new Field(9, lastRow - 2), Constants.DOWN);
+
+        StagedMoves staged = new StagedMoves(board);
+        assertEquals(new Jump(new byte[]{Constants.S}), staged.nextMove());
+        assertEquals(StagedMoves.GOAL_JUMPS, staged.stage());
+        staged.skipStage();
+        assertEquals(new Jump(new byte[]{Constants.W}), staged.nextMove());
+        assertEquals(StagedMoves.JUMPS, staged.stage());
+        staged.nextMove();
+        assertEquals(StagedMoves.NEAR_PUTS, staged.stage());
+        // the rest of the near puts is skipped
+        staged.skipStage();
+        int others = 0;
+        while (staged.hasNext()) {
+            Move m = staged.nextMove();
+            assertEquals(StagedMoves.OTHER_PUTS, staged.stage());
+            assertFalse(m.equals(new Put(9, lastRow - 3)));
+            others++;
+        }
+        assertEquals(generate(board, MoveGenerator.OTHER_PUTS).size(), others);
+
+        // the opponent wins with the same jump
+        board = new DefaultBoard(fields, new Field(9, lastRow - 2), Constants.UP);
+        staged.setPosition(board);
+        staged.nextMove();
+        assertEquals(StagedMoves.JUMPS, staged.stage());
+    }
+
+}
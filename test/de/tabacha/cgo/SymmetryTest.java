@@ -0,0 +1,64 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of Symmetry.
+ */
+public class SymmetryTest extends TestCase {
+
+    public SymmetryTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testStartIsSymmetric() {
+        Board start = new DefaultBoard();
+        assertEquals(start.zobrist(), Symmetry.mirroredZobrist(start));
+        assertFalse(Symmetry.isMirrored(start));
+        assertTrue(Symmetry.canonical(start) == start);
+    }
+
+    public void testMirror() throws InvalidMoveException {
+        DefaultBoard board = new DefaultBoard();
+        board.move(new Put(3, 8));
+        DefaultBoard other = new DefaultBoard();
+        other.move(new Put(15, 8));
+        assertFalse(board.zobrist() == other.zobrist());
+        assertEquals(other.zobrist(), Symmetry.mirroredZobrist(board));
+        assertEquals(Symmetry.zobrist(board), Symmetry.zobrist(other));
+        assertTrue(Symmetry.isMirrored(board) != Symmetry.isMirrored(other));
+        assertEquals(other, Symmetry.mirrored(board));
+        assertEquals(Symmetry.canonical(board), Symmetry.canonical(other));
+
+        Snapshot s = new Snapshot(board);
+        assertTrue(Symmetry.mirrored(s) instanceof Snapshot);
+        assertEquals(new Snapshot(other), Symmetry.mirrored(s));
+    }
+
+    public void testMoves() throws InvalidMoveException {
+        BoardGeometry g = BoardGeometry.of(9, 9);
+        assertEquals(new Put(6, 1), new Put(2, 1).mirrored(g));
+        assertEquals("Jumps: N NW W SW S SE E NE",
+                     new Jump(new byte[]{Constants.N, Constants.NE, Constants.E, Constants.SE,
+                                         Constants.S, Constants.SW, Constants.W, Constants.NW})
+                     .mirrored(g).toString());
+
+        // a move on the canonical form, mapped back, does the same on the position
+        DefaultBoard board = new DefaultBoard();
+        board.move(new Put(8, 10));
+        board.move(new Put(2, 2));
+        board.move(new Put(12, 3));
+        Board canonical = Symmetry.canonical((Board)board.clone());
+        Move jump = Symmetry.toCanonical(new Jump(new byte[]{Constants.SW}), board);
+        Move back = Symmetry.fromCanonical(jump, board);
+        canonical.move(jump);
+        board.move(back);
+        assertEquals(Symmetry.zobrist(board), Symmetry.zobrist(canonical));
+        assertEquals(new Field(7, 11), board.getBall());
+    }
+
+}
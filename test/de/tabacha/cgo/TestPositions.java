@@ -0,0 +1,58 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo;
+
+import java.util.Random;
+
+
+/**
+ * Positions for the tests.
+ */
+public final class TestPositions {
+
+    private TestPositions() {
+    }
+
+    /** Plays random puts around the ball; puts on occupied fields are skipped. */
+    public static DefaultBoard randomPosition(BoardGeometry g, Random random, int puts) {
+        DefaultBoard board = new DefaultBoard(g);
+        for (int i=0; i < puts; i++) {
+            Field ball = board.getBall();
+            try {
+                board.move(new Put(ball.col() + random.nextInt(7) - 3, ball.row() + random.nextInt(7) - 3));
+            } catch (InvalidMoveException e) {
+            }
+        }
+        return board;
+    }
+
+    /** Returns a board of the default size with a zigzag chain of single pieces and no other piece.
+        The ball starts at (0,1) and leaps east along row 1, south over a piece at the end of the row,
+        west along row 3, and so on, down to the last row given.
+        @param lastRow An odd row, below 18.
+        @param leaps Gets the leaps of the whole chain. */
+    public static DefaultBoard zigzag(int lastRow, boolean whoseTurn, Jump.Builder leaps) {
+        return zigzag(BoardGeometry.DEFAULT, lastRow, whoseTurn, leaps);
+    }
+
+    /** Returns a board with the zigzag chain of zigzag(int, boolean, Jump.Builder).
+        @param lastRow An odd row, below the last row of the board. */
+    public static DefaultBoard zigzag(BoardGeometry geometry, int lastRow, boolean whoseTurn, Jump.Builder leaps) {
+        byte[][] fields = new byte[geometry.rows()][geometry.cols()];
+        int last = geometry.cols() - 1;
+        for (int row=1; row <= lastRow; row += 2) {
+            boolean east = row % 4 == 1;
+            for (int c=1; c < last; c += 2) {
+                fields[row][east ? c : last - c] = Constants.PIECE;
+                leaps.push(east ? Constants.E : Constants.W);
+            }
+            if (row < lastRow) {
+                fields[row + 1][east ? last : 0] = Constants.PIECE;
+                leaps.push(Constants.S);
+            }
+        }
+        return new DefaultBoard(fields, new Field(0, 1), whoseTurn);
+    }
+
+}
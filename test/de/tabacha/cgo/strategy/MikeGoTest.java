@@ -0,0 +1,77 @@
+/*
+ * $Id$
+ */
+package de.tabacha.cgo.strategy;
+
+import de.tabacha.cgo.*;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Fixes the moves MikeGo chooses. The moves of the first tests were recorded
+ * with the engine as it was before it used MoveGenerator and Reachability.
+ */
+public class MikeGoTest extends TestCase {
+
+    public MikeGoTest(String arg0) {
+        super(arg0);
+    }
+
+    private static Move think(Board board) {
+        MikeGo engine = new MikeGo();
+        engine.initGame(7);
+        return engine.think((Board)board.clone());
+    }
+
+    public void testFixedPositions() throws InvalidMoveException {
+        DefaultBoard board = new DefaultBoard();
+        assertEquals(new Put(8, 8), think(board));
+        int[][] puts = {{9,10}, {8,11}, {10,11}, {9,12}, {7,9}, {11,13}, {9,14}, {10,9}, {8,8}, {12,12}};
+        for (int i=0; i < 6; i++)
+            board.move(new Put(puts[i][0], puts[i][1]));
+        assertEquals(new Put(10, 8), think(board));
+        for (int i=6; i < puts.length; i++)
+            board.move(new Put(puts[i][0], puts[i][1]));
+        assertEquals(new Jump(new byte[]{Constants.NW}), think(board));
+    }
+
+    public void testGame() throws InvalidMoveException {
+        String expected = "Put(8,8) Put(8,10) Put(6,6) Put(6,12) Jumps: NW NW Put(6,6) Put(6,4) Put(8,8) Jumps: NE "
+            + "Put(6,4) Put(5,5) Put(3,7) Put(6,2) Jumps: SW SW Put(3,7) Put(4,6) Put(5,5) Put(3,9) Put(6,4) Jumps: SE "
+            + "Put(3,9) Put(2,8) Put(2,7) Put(4,5) Put(4,7) Put(1,7) Put(1,6) Jumps: NW E SE N SE SE SW SW "
+            + "Put(6,12) Put(6,14) Put(8,10) Put(8,16) Jumps: NE NE Put(9,10) Put(8,8) Put(8,12) Put(6,6) "
+            + "Jumps: S SW SW Put(6,14) Put(8,14) ";
+        MikeGo first = new MikeGo();
+        first.initGame(1);
+        MikeGo second = new MikeGo();
+        second.initGame(2);
+        DefaultBoard board = new DefaultBoard();
+        StringBuffer played = new StringBuffer();
+        for (int i=0; i < 40 && !board.getBall().isInGoal(); i++) {
+            Move m = ((i % 2 == 0) ? first : second).think((Board)board.clone());
+            played.append(m).append(' ');
+            board.move(m);
+        }
+        assertEquals(expected, played.toString());
+    }
+
+    public void testLongChains() {
+        // the whole chain of 59 leaps reaches the farthest row
+        Jump.Builder chain = new Jump.Builder();
+        DefaultBoard board = TestPositions.zigzag(11, Constants.DOWN, chain);
+        assertEquals(chain.toJump(), think(board));
+        // the other side blocks the chain at its start
+        assertEquals(new Put(18, 1), think(TestPositions.zigzag(11, Constants.UP, new Jump.Builder())));
+
+        // 80 leaps into the goal
+        chain = new Jump.Builder();
+        board = TestPositions.zigzag(15, Constants.DOWN, chain);
+        board.addPiece(0, 16);
+        board.addPiece(0, 17);
+        chain.push(Constants.S);
+        assertEquals(80, chain.size());
+        assertEquals(chain.toJump(), think(board));
+    }
+
+}